@@ -1,19 +1,36 @@
 package org.woftnw.dreamvisitorhub;
 
+import org.jetbrains.annotations.Nullable;
 import org.woftnw.dreamvisitorhub.config.Config;
 import org.woftnw.dreamvisitorhub.data.repository.*;
+import org.woftnw.dreamvisitorhub.functions.EconomyLedger;
+import org.woftnw.dreamvisitorhub.functions.Leaderboard;
+import org.woftnw.dreamvisitorhub.functions.NameIndex;
+import org.woftnw.dreamvisitorhub.metrics.Metrics;
+import org.woftnw.dreamvisitorhub.metrics.MetricsServer;
 import org.woftnw.dreamvisitorhub.pb.PocketBase;
 import org.woftnw.dreamvisitorhub.util.ConfigLoader;
 import org.woftnw.dreamvisitorhub.util.PBConfigLoader;
+import org.woftnw.mc_renderer.RenderCache;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class App {
     private static final Logger logger = Logger.getLogger("DreamvisitorHub");
     private static final String CONFIG_PATH = "config.yml";
+    private static final int DEFAULT_USER_CACHE_SIZE = 1000;
+    private static final int DEFAULT_USER_CACHE_TTL_SECONDS = 300;
+    private static final String ECONOMY_LEDGER_LOG_PATH = "economy-ledger.log";
+    private static final int DEFAULT_LEDGER_FLUSH_INTERVAL_MS = 1000;
+    private static final int DEFAULT_LEDGER_SNAPSHOT_INTERVAL_MINUTES = 60;
+    private static final int DEFAULT_RENDER_CACHE_MEMORY_MB = 32;
+    private static final int DEFAULT_RENDER_CACHE_DISK_MB = 256;
 
     private static PocketBase pb;
     private static Map<String, Object> config;
@@ -23,6 +40,10 @@ public class App {
     private static InfractionRepository infractionRepository;
     private static AltRepository altRepository;
     private static ChatMessagesRepository chatMessagesRepository;
+    private static EconomyLedger economyLedger;
+    private static Leaderboard leaderboard;
+    private static NameIndex nameIndex;
+    private static RenderCache renderCache;
 
     public static void main(String[] args) throws InterruptedException, IOException {
         logger.info("Starting DreamvisitorHub...");
@@ -33,12 +54,24 @@ public class App {
         // Initialize PocketBase with the minimal configuration
         pb = PocketBase.fromConfig(initialConfig);
 
+        startMetrics(initialConfig);
+
         // Initialize repositories
-        userRepository = new PocketBaseUserRepository(pb);
+        userRepository = createUserRepository(initialConfig);
         itemRepository = new PocketBaseItemRepository(pb);
         userInventoryRepository = new PocketBaseUserInventoryRepository(pb, userRepository, itemRepository);
         infractionRepository = new PocketBaseInfractionRepository(pb, userRepository);
         chatMessagesRepository = new PocketBaseChatMessageRepository(pb);
+        economyLedger = createEconomyLedger(initialConfig);
+        renderCache = createRenderCache(initialConfig);
+
+        // Rank users by balance in the background, keeping up with every balance saved from here on
+        leaderboard = new Leaderboard(userRepository);
+        leaderboard.start();
+
+        // Keep the names that commands autocomplete in memory
+        nameIndex = new NameIndex(userRepository, itemRepository);
+        nameIndex.start();
 
         try {
             // Try to load configuration from PocketBase
@@ -70,6 +103,83 @@ public class App {
         Bot.startBot(config);
     }
 
+    /**
+     * Serve metrics on the local metricsPort if one is configured, and collect PocketBase request timings for them.
+     */
+    private static void startMetrics(Map<String, Object> config) {
+        if (!(config.get("metricsPort") instanceof Number port)) return;
+        try {
+            MetricsServer.start(port.intValue());
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to start the metrics server on port " + port, e);
+            return;
+        }
+        pb.setRequestListener(Metrics::recordPocketBaseRequest);
+    }
+
+    /**
+     * Create the user repository. With userReplica enabled, the whole collection is held in memory and kept current
+     * through realtime events. Otherwise, lookups are cached unless the cache is disabled with a userCacheSize of 0.
+     * Cached users are updated as soon as a realtime event reports a change to them, so the time to live only bounds
+     * how long a change can go unnoticed while realtime is down. With dailyClaimGuard enabled, PocketBase rejects a
+     * second daily claim on the same day, which needs the daily_claims collection.
+     */
+    private static UserRepository createUserRepository(Map<String, Object> config) {
+        PocketBaseUserRepository repository = new PocketBaseUserRepository(pb, Boolean.TRUE.equals(config.get("dailyClaimGuard")));
+
+        if (Boolean.TRUE.equals(config.get("userReplica"))) {
+            ReplicatedUserRepository replica = new ReplicatedUserRepository(pb, repository);
+            if (!replica.start()) logger.warning("Failed to load the user replica, retrying in the background");
+            Runtime.getRuntime().addShutdownHook(new Thread(replica::stop, "UserReplicaShutdown"));
+            return replica;
+        }
+
+        int cacheSize = config.get("userCacheSize") instanceof Number size ? size.intValue() : DEFAULT_USER_CACHE_SIZE;
+        int cacheTtl = config.get("userCacheTtlSeconds") instanceof Number ttl ? ttl.intValue() : DEFAULT_USER_CACHE_TTL_SECONDS;
+        if (cacheSize <= 0) return repository;
+
+        logger.info("Caching up to " + cacheSize + " users for " + cacheTtl + " seconds");
+        CachingUserRepository cache = new CachingUserRepository(repository, cacheSize, Duration.ofSeconds(cacheTtl));
+        cache.updateOnChange(pb.realtime(), repository);
+        return cache;
+    }
+
+    /**
+     * Create and start the economy ledger if economyLedger is enabled. It needs the economy_transactions and
+     * balance_snapshots collections.
+     */
+    @Nullable
+    private static EconomyLedger createEconomyLedger(Map<String, Object> config) {
+        if (!Boolean.TRUE.equals(config.get("economyLedger"))) return null;
+
+        int flushInterval = config.get("economyLedgerFlushIntervalMs") instanceof Number ms ? ms.intValue() : DEFAULT_LEDGER_FLUSH_INTERVAL_MS;
+        int snapshotInterval = config.get("economyLedgerSnapshotIntervalMinutes") instanceof Number minutes ? minutes.intValue() : DEFAULT_LEDGER_SNAPSHOT_INTERVAL_MINUTES;
+        EconomyLedger ledger = new EconomyLedger(new PocketBaseTransactionRepository(pb),
+                new PocketBaseBalanceSnapshotRepository(pb), Path.of(ECONOMY_LEDGER_LOG_PATH), pb.getBatchSize(),
+                Duration.ofMillis(flushInterval), Duration.ofMinutes(snapshotInterval));
+        try {
+            ledger.start();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to open the economy ledger log, transactions will not be recorded", e);
+            return null;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(ledger::stop, "EconomyLedgerShutdown"));
+        return ledger;
+    }
+
+    /**
+     * Create the cache of rendered skin images. It keeps renderCacheMemoryMb of images in memory. If
+     * renderCacheDirectory is set, up to renderCacheDiskMb of them are also kept there, dropping the least recently
+     * used first.
+     */
+    private static RenderCache createRenderCache(Map<String, Object> config) {
+        int memoryMb = config.get("renderCacheMemoryMb") instanceof Number mb ? mb.intValue() : DEFAULT_RENDER_CACHE_MEMORY_MB;
+        int diskMb = config.get("renderCacheDiskMb") instanceof Number mb ? mb.intValue() : DEFAULT_RENDER_CACHE_DISK_MB;
+        String directory = config.get("renderCacheDirectory") instanceof String path ? path : "";
+        return new RenderCache(memoryMb * 1024L * 1024L, directory.isEmpty() ? null : Path.of(directory),
+                diskMb * 1024L * 1024L);
+    }
+
     public static String getConfigPath() {
         return CONFIG_PATH;
     }
@@ -108,4 +218,24 @@ public class App {
     public static ChatMessagesRepository getChatMessageRepository() {
         return chatMessagesRepository;
     }
+
+    /**
+     * @return the economy ledger, or null if it is disabled
+     */
+    @Nullable
+    public static EconomyLedger getEconomyLedger() {
+        return economyLedger;
+    }
+
+    public static Leaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    public static NameIndex getNameIndex() {
+        return nameIndex;
+    }
+
+    public static RenderCache getRenderCache() {
+        return renderCache;
+    }
 }
@@ -9,6 +9,7 @@ import org.jetbrains.annotations.NotNull;
 import org.woftnw.dreamvisitorhub.commands.framework.CommandManager;
 import org.woftnw.dreamvisitorhub.functions.ChatBridge;
 
+import java.time.Duration;
 import java.util.Map;
 
 /**
@@ -16,6 +17,12 @@ import java.util.Map;
  */
 public class Bot {
 
+    /**
+     * How long a command may take to respond before its reply is deferred. Discord gives up after three seconds, and
+     * the deferral itself still has to reach Discord in time.
+     */
+    private static final int DEFAULT_COMMAND_DEFER_AFTER_MS = 1500;
+
     private static CommandManager commandManager;
     private static Guild guild;
     private static JDA bot;
@@ -48,7 +55,8 @@ public class Bot {
             throw new RuntimeException(e);
         }
 
-        commandManager = new CommandManager(guild);
+        int deferAfter = config.get("commandDeferAfterMs") instanceof Number ms ? ms.intValue() : DEFAULT_COMMAND_DEFER_AFTER_MS;
+        commandManager = new CommandManager(guild, Duration.ofMillis(deferAfter));
         bot.addEventListener(commandManager);
 
         ChatBridge.start();
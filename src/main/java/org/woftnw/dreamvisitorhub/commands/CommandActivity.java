@@ -49,14 +49,14 @@ public class CommandActivity extends ExecutableSlashCommand {
         else if (activityType.equalsIgnoreCase("WATCHING"))
             type = Activity.ActivityType.WATCHING;
         else {
-            event.reply("Invalid activity type.").queue();
+            reply(event, "Invalid activity type.");
         }
 
         // Set presence
         if (type != Activity.ActivityType.CUSTOM_STATUS) {
             assert activity != null;
             Bot.getJda().getPresence().setActivity(Activity.of(type, activity));
-            event.reply("Activity set!").setEphemeral(true).queue();
+            reply(event, "Activity set!", true);
         }
     }
 
@@ -29,44 +29,37 @@ public class CommandBalance extends ExecutableSlashCommand {
 
     @Override
     protected void onCommand(@NotNull SlashCommandInteraction event) {
-        String title;
-        String description;
-        boolean error = false;
+        User targetUser = event.getOption("member", OptionMapping::getAsUser);
+        User lookupUser = targetUser != null ? targetUser : event.getUser();
 
-        String currencyIcon = Config.get(ConfigKey.CURRENCY_ICON);
+        track(event, App.getUserRepository().findByDiscordIdAsync(lookupUser.getId())).thenAccept(user -> {
+            String title;
+            String description;
+            boolean error = false;
+
+            String currencyIcon = Config.get(ConfigKey.CURRENCY_ICON);
 
-        User targetUser = event.getOption("member", OptionMapping::getAsUser);
-        if (targetUser != null) {
-            Optional<DVUser> user = App.getUserRepository().findByDiscordId(targetUser.getId());
-            if (user.isEmpty()) {
-                title = "User not found";
-                description = targetUser.getAsMention() + " could not be found in the data base. Contact a staff member.";
-                error = true;
-            } else {
-                double balance;
-                balance = user.get().getBalance();
-                title = "User balance";
-                description = targetUser.getAsMention() + " has " + currencyIcon + Formatter.formatMoney(balance) + ".";
-            }
-        } else {
-            Optional<DVUser> user = App.getUserRepository().findByDiscordId(event.getUser().getId());
             if (user.isEmpty()) {
                 title = "User not found";
-                description = event.getUser().getAsMention() + " could not be found in the data base. Contact a staff member.";
+                description = lookupUser.getAsMention() + " could not be found in the data base. Contact a staff member.";
                 error = true;
             } else {
                 double balance;
                 balance = user.get().getBalance();
                 title = "User balance";
-                description = "You have " + currencyIcon + Formatter.formatMoney(balance) + ".";
+                if (targetUser != null) {
+                    description = targetUser.getAsMention() + " has " + currencyIcon + Formatter.formatMoney(balance) + ".";
+                } else {
+                    description = "You have " + currencyIcon + Formatter.formatMoney(balance) + ".";
+                }
             }
-        }
 
-        EmbedBuilder embed = new EmbedBuilder();
-        embed.setTitle(title).setDescription(description);
-        if (error) embed.setColor(Color.red);
+            EmbedBuilder embed = new EmbedBuilder();
+            embed.setTitle(title).setDescription(description);
+            if (error) embed.setColor(Color.red);
 
-        event.replyEmbeds(embed.build()).queue();
+            replyEmbeds(event, embed.build());
+        });
     }
 
     @Override
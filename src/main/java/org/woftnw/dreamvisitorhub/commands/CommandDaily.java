@@ -17,8 +17,11 @@ import org.woftnw.dreamvisitorhub.Bot;
 import org.woftnw.dreamvisitorhub.commands.framework.ExecutableSlashCommand;
 import org.woftnw.dreamvisitorhub.config.Config;
 import org.woftnw.dreamvisitorhub.config.ConfigKey;
+import org.woftnw.dreamvisitorhub.data.repository.UserRepository;
 import org.woftnw.dreamvisitorhub.data.type.DVUser;
+import org.woftnw.dreamvisitorhub.data.type.Transaction;
 import org.woftnw.dreamvisitorhub.functions.Economy;
+import org.woftnw.dreamvisitorhub.pb.PocketBase;
 import org.woftnw.dreamvisitorhub.util.Formatter;
 
 import java.awt.*;
@@ -28,8 +31,12 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.Collections;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class CommandDaily extends ExecutableSlashCommand {
+    private static final Logger LOGGER = Logger.getLogger(CommandDaily.class.getName());
 
     @Override
     public SlashCommandData getCommandData() {
@@ -39,7 +46,38 @@ public class CommandDaily extends ExecutableSlashCommand {
     @Override
     protected void onCommand(@NotNull SlashCommandInteraction event) {
         User sender = event.getUser();
-        Optional<DVUser> optionalUser = App.getUserRepository().findByDiscordId(sender.getId());
+        long snowflakeId = sender.getIdLong();
+
+        // Repeated and concurrent claims are rejected here, before the user is looked up
+        if (Economy.hasClaimedDailyToday(snowflakeId)) {
+            replyAlreadyClaimed(event);
+            return;
+        }
+        if (!Economy.tryLockDaily(snowflakeId)) {
+            reply(event, "Your daily reward is already being claimed.", true);
+            return;
+        }
+
+        track(event, App.getUserRepository().findByDiscordIdAsync(sender.getId())
+                .thenCompose(optionalUser -> claim(event, sender, optionalUser))
+                .whenComplete((result, e) -> Economy.unlockDaily(snowflakeId)))
+                .exceptionally(e -> {
+                    LOGGER.log(Level.SEVERE, "Failed to save daily reward for " + sender.getName(), e);
+                    EmbedBuilder embedBuilder = new EmbedBuilder();
+                    embedBuilder.setColor(Color.red).setTitle("Reward not claimed").setDescription("Your reward could not be saved. Try again later.");
+                    replyEmbeds(event, embedBuilder.build());
+                    return null;
+                });
+    }
+
+    /**
+     * Claim the reward once the user has been looked up.
+     *
+     * @return a future that completes once the reply has been sent
+     */
+    @NotNull
+    private CompletableFuture<Void> claim(@NotNull SlashCommandInteraction event, @NotNull User sender,
+                                          @NotNull Optional<DVUser> optionalUser) {
         DVUser user;
 
         // Initialize user if they do not exist
@@ -55,20 +93,38 @@ public class CommandDaily extends ExecutableSlashCommand {
         double reward;
 
         try {
-            reward = Economy.claimDaily(user);
+            reward = Economy.claimDaily(user, event.getId());
         } catch (Economy.CoolDownException e) {
-            Duration duration = Duration.between(LocalDateTime.now(), LocalDateTime.of(LocalDate.now().plusDays(1), LocalTime.MIDNIGHT));
-            embedBuilder.setColor(Color.red).setTitle("Reward already claimed").setDescription("You have already claimed your daily reward for today. You cannot claim your daily reward for " + Formatter.chooseCountForm(duration.toHoursPart(), "hour", "hours") + " and " + Formatter.chooseCountForm(duration.toMinutesPart(), "minute", "minutes") + ".");
-            event.replyEmbeds(embedBuilder.build()).queue();
-            return;
+            Economy.markDailyClaimed(sender.getIdLong());
+            replyAlreadyClaimed(event);
+            return CompletableFuture.completedFuture(null);
         }
-        App.getUserRepository().save(user);
 
-        embedBuilder.setTitle("Claimed daily reward");
-        embedBuilder.setDescription("You earned " + Config.get(ConfigKey.CURRENCY_ICON) + reward + " today.\nCome back tomorrow for your next reward.")
-                .setFooter("Your new balance is " + user.getBalance() + "\nThis brings your streak to " + Formatter.chooseCountForm(user.getDailyStreak(), "day", "days") + ".")
-                .setColor(Color.GREEN);
-        event.replyEmbeds(embedBuilder.build()).queue();
+        // The reward is added on the server, which also rejects a second claim on the same day
+        return App.getUserRepository().claimDailyAsync(user, reward, LocalDate.now()).thenAccept(savedUser -> {
+            Economy.markDailyClaimed(sender.getIdLong());
+            Economy.recordTransaction(savedUser.getId(), Transaction.Type.DAILY, reward, event.getId());
+            embedBuilder.setTitle("Claimed daily reward");
+            embedBuilder.setDescription("You earned " + Config.get(ConfigKey.CURRENCY_ICON) + reward + " today.\nCome back tomorrow for your next reward.")
+                    .setFooter("Your new balance is " + savedUser.getBalance() + "\nThis brings your streak to " + Formatter.chooseCountForm(savedUser.getDailyStreak(), "day", "days") + ".")
+                    .setColor(Color.GREEN);
+            replyEmbeds(event, embedBuilder.build());
+        }).exceptionallyCompose(e -> {
+            if (!(PocketBase.unwrap(e) instanceof UserRepository.DailyAlreadyClaimedException)) {
+                return CompletableFuture.failedFuture(e);
+            }
+            // Claimed through another interaction or hub since the user was loaded, which is not a failure
+            Economy.markDailyClaimed(sender.getIdLong());
+            replyAlreadyClaimed(event);
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    private static void replyAlreadyClaimed(@NotNull SlashCommandInteraction event) {
+        Duration duration = Duration.between(LocalDateTime.now(), LocalDateTime.of(LocalDate.now().plusDays(1), LocalTime.MIDNIGHT));
+        EmbedBuilder embedBuilder = new EmbedBuilder();
+        embedBuilder.setColor(Color.red).setTitle("Reward already claimed").setDescription("You have already claimed your daily reward for today. You cannot claim your daily reward for " + Formatter.chooseCountForm(duration.toHoursPart(), "hour", "hours") + " and " + Formatter.chooseCountForm(duration.toMinutesPart(), "minute", "minutes") + ".");
+        replyEmbeds(event, embedBuilder.build());
     }
 
     @Override
@@ -0,0 +1,72 @@
+package org.woftnw.dreamvisitorhub.commands;
+
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.SlashCommandInteraction;
+import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
+import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+import org.jetbrains.annotations.NotNull;
+import org.woftnw.dreamvisitorhub.App;
+import org.woftnw.dreamvisitorhub.commands.framework.ExecutableSlashCommand;
+import org.woftnw.dreamvisitorhub.config.Config;
+import org.woftnw.dreamvisitorhub.config.ConfigKey;
+import org.woftnw.dreamvisitorhub.functions.Leaderboard;
+import org.woftnw.dreamvisitorhub.util.Formatter;
+
+import java.awt.*;
+import java.util.List;
+
+public class CommandLeaderboard extends ExecutableSlashCommand {
+    private static final int PAGE_SIZE = 10;
+
+    @Override
+    public SlashCommandData getCommandData() {
+        return Commands.slash("leaderboard", "See who has the highest balance.")
+                .addOptions(new OptionData(OptionType.INTEGER, "page", "[Optional] The page to show", false).setMinValue(1));
+    }
+
+    @Override
+    protected void onCommand(@NotNull SlashCommandInteraction event) {
+        Leaderboard leaderboard = App.getLeaderboard();
+        if (!leaderboard.isReady()) {
+            reply(event, "The leaderboard is still loading. Try again in a moment.", true);
+            return;
+        }
+
+        int page = event.getOption("page", 1, OptionMapping::getAsInt);
+        int pageCount = Math.max(1, (leaderboard.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+        List<Leaderboard.Entry> entries = leaderboard.getPage(page - 1, PAGE_SIZE);
+
+        EmbedBuilder embed = new EmbedBuilder();
+        embed.setTitle("Leaderboard");
+
+        if (entries.isEmpty()) {
+            embed.setDescription("There is nobody on page " + page + ". The leaderboard has " + Formatter.chooseCountForm(pageCount, "page", "pages") + ".");
+            embed.setColor(Color.red);
+            replyEmbeds(event, embed.build());
+            return;
+        }
+
+        String currencyIcon = Config.get(ConfigKey.CURRENCY_ICON);
+        StringBuilder description = new StringBuilder();
+        int rank = (page - 1) * PAGE_SIZE;
+        for (Leaderboard.Entry entry : entries) {
+            rank++;
+            String name = entry.discordId() != null ? "<@" + entry.discordId() + ">" : entry.name();
+            description.append("**").append(rank).append(".** ").append(name).append(" - ")
+                    .append(currencyIcon).append(Formatter.formatMoney(entry.balance())).append("\n");
+        }
+        embed.setDescription(description.toString());
+        embed.setFooter("Page " + page + " of " + pageCount);
+
+        replyEmbeds(event, embed.build());
+    }
+
+    @Override
+    protected void onAutoComplete(CommandAutoCompleteInteractionEvent event) {
+        noAutoComplete();
+    }
+}
@@ -21,8 +21,13 @@ import java.io.IOException;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class CommandLink extends ExecutableSlashCommand {
+    private static final Logger LOGGER = Logger.getLogger(CommandLink.class.getName());
+
     @Override
     public @NotNull SlashCommandData getCommandData() {
         return Commands.slash("link", "Link a Discord account to a Minecraft account.")
@@ -31,27 +36,57 @@ public class CommandLink extends ExecutableSlashCommand {
                 .setDefaultPermissions(DefaultMemberPermissions.DISABLED);
     }
 
+    @Override
+    protected boolean isEphemeral() {
+        return true;
+    }
+
     @Override
     protected void onCommand(@NotNull SlashCommandInteraction event) {
         final User targetUser = Objects.requireNonNull(event.getOption("user")).getAsUser();
         final String username = Objects.requireNonNull(event.getOption("username")).getAsString();
 
+        UserRepository userRepository = App.getUserRepository();
+
+        // Look up the Discord side while the Mojang API is queried
+        CompletableFuture<Optional<DVUser>> fromDiscord = userRepository.findByDiscordIdAsync(targetUser.getId());
+
         UUID uuid = null;
         try {
             uuid = Mojang.getUuidOfUsername(username);
         } catch (IOException | IllegalArgumentException ignored) {
         }
 
-        UserRepository userRepository = App.getUserRepository();
-
-        final Optional<DVUser> optionalTargetDvUserFromDiscord = userRepository.findByDiscordId(targetUser.getId());
-        Optional<DVUser> optionalTargetDvUserFromMinecraft;
+        CompletableFuture<Optional<DVUser>> fromMinecraft;
         if (uuid != null) {
-            optionalTargetDvUserFromMinecraft = userRepository.findByUuid(uuid);
+            fromMinecraft = userRepository.findByUuidAsync(uuid);
         } else {
-            optionalTargetDvUserFromMinecraft = userRepository.findByMinecraftUsername(username);
+            fromMinecraft = userRepository.findByMinecraftUsernameAsync(username);
         }
 
+        final UUID finalUuid = uuid;
+        track(event, fromDiscord.thenCombine(fromMinecraft, (optionalFromDiscord, optionalFromMinecraft) ->
+                        link(event, targetUser, username, finalUuid, optionalFromDiscord, optionalFromMinecraft))
+                .thenCompose(future -> future))
+                .exceptionally(e -> {
+                    LOGGER.log(Level.SEVERE, "Failed to link " + targetUser.getName() + " to " + username, e);
+                    EmbedBuilder embed = new EmbedBuilder();
+                    embed.setTitle("Accounts not linked").setDescription("The user record could not be saved. Try again later.").setColor(Color.red);
+                    replyEmbeds(event, embed.build(), true);
+                    return null;
+                });
+    }
+
+    /**
+     * Link the accounts once both lookups have completed.
+     *
+     * @return a future that completes once the reply has been sent
+     */
+    @NotNull
+    private CompletableFuture<Void> link(@NotNull SlashCommandInteraction event, @NotNull User targetUser,
+                                         @NotNull String username, @Nullable UUID uuid,
+                                         @NotNull Optional<DVUser> optionalTargetDvUserFromDiscord,
+                                         @NotNull Optional<DVUser> optionalTargetDvUserFromMinecraft) {
         if (optionalTargetDvUserFromDiscord.isPresent() && optionalTargetDvUserFromMinecraft.isPresent()) {
             final DVUser targetDvUserFromDiscord = optionalTargetDvUserFromDiscord.get();
             final DVUser targetDvUserFromMinecraft = optionalTargetDvUserFromMinecraft.get();
@@ -70,14 +105,14 @@ public class CommandLink extends ExecutableSlashCommand {
                                         "\n<@" + targetDvUserFromMinecraft.getDiscordId() + ">",
                                 true
                         );
-                event.replyEmbeds(embed.build()).setEphemeral(true).queue();
-                return;
+                replyEmbeds(event, embed.build(), true);
+                return CompletableFuture.completedFuture(null);
             }
             // Both already refer to the same user
             EmbedBuilder embed = new EmbedBuilder();
             embed.setTitle("No changes made").setDescription("Those accounts are already linked to a user.").setColor(Color.BLUE);
-            event.replyEmbeds(embed.build()).setEphemeral(true).queue();
-            return;
+            replyEmbeds(event, embed.build(), true);
+            return CompletableFuture.completedFuture(null);
         }
 
         DVUser computeUser = null;
@@ -100,24 +135,25 @@ public class CommandLink extends ExecutableSlashCommand {
         computeUser.setMcUuid(uuid);
         computeUser.setMcUsername(username);
 
-        userRepository.save(computeUser);
-
-        StringBuilder description = new StringBuilder(targetUser.getAsMention() + "** is now linked to **`" + username + "`**.**");
-        if (oldDiscordId != null && !Objects.equals(oldDiscordId, targetUser.getId()))
-            description.append("\nThe account was unattached from the previous Discord account <@").append(oldDiscordId).append(">.");
-        if (oldMcName != null && !Objects.equals(oldMcName.toLowerCase(), username.toLowerCase()))
-            description.append("\nThe account was unattached from the previous Minecraft account `").append(oldMcName).append("`.");
-        if (uuid == null)
-            description.append("\nNo UUID could be found with that username, so only the Minecraft username has been recorded.");
-        if (created)
-            description.append("\nNo record previously existed for the Discord or Minecraft account, so this record has been added as a new user.");
+        final boolean finalCreated = created;
+        return App.getUserRepository().saveAsync(computeUser).thenAccept(savedUser -> {
+            StringBuilder description = new StringBuilder(targetUser.getAsMention() + "** is now linked to **`" + username + "`**.**");
+            if (oldDiscordId != null && !Objects.equals(oldDiscordId, targetUser.getId()))
+                description.append("\nThe account was unattached from the previous Discord account <@").append(oldDiscordId).append(">.");
+            if (oldMcName != null && !Objects.equals(oldMcName.toLowerCase(), username.toLowerCase()))
+                description.append("\nThe account was unattached from the previous Minecraft account `").append(oldMcName).append("`.");
+            if (uuid == null)
+                description.append("\nNo UUID could be found with that username, so only the Minecraft username has been recorded.");
+            if (finalCreated)
+                description.append("\nNo record previously existed for the Discord or Minecraft account, so this record has been added as a new user.");
 
-        EmbedBuilder embed = new EmbedBuilder();
-        embed.setTitle("Accounts linked");
-        embed.setDescription(description.toString().strip());
-        embed.setColor(Color.GREEN);
+            EmbedBuilder embed = new EmbedBuilder();
+            embed.setTitle("Accounts linked");
+            embed.setDescription(description.toString().strip());
+            embed.setColor(Color.GREEN);
 
-        event.replyEmbeds(embed.build()).setEphemeral(true).queue();
+            replyEmbeds(event, embed.build(), true);
+        });
     }
 
     @Override
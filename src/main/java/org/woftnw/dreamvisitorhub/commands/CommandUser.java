@@ -17,6 +17,7 @@ import net.dv8tion.jda.api.interactions.components.buttons.Button;
 import net.dv8tion.jda.api.interactions.components.buttons.ButtonStyle;
 import net.dv8tion.jda.api.utils.FileUpload;
 import net.dv8tion.jda.api.utils.TimeFormat;
+import net.dv8tion.jda.api.utils.messages.MessageCreateBuilder;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -24,6 +25,8 @@ import org.woftnw.dreamvisitorhub.App;
 import org.woftnw.dreamvisitorhub.commands.framework.ExecutableSlashCommand;
 import org.woftnw.dreamvisitorhub.data.type.DVUser;
 import org.woftnw.dreamvisitorhub.util.Mojang;
+import org.woftnw.mc_renderer.RenderCache;
+import org.woftnw.mc_renderer.RendererConfig;
 import org.woftnw.mc_renderer.TextureLoader;
 
 import java.awt.*;
@@ -35,6 +38,8 @@ import java.util.UUID;
 import java.util.logging.Logger;
 
 public class CommandUser extends ExecutableSlashCommand {
+    private static final int HEAD_SIZE = 512;
+    private static final RendererConfig HEAD_CONFIG = new RendererConfig().setDimensions(HEAD_SIZE, HEAD_SIZE);
 
     @Override
     public SlashCommandData getCommandData() {
@@ -43,11 +48,16 @@ public class CommandUser extends ExecutableSlashCommand {
                         new SubcommandData("discord", "Search by Discord user")
                                 .addOption(OptionType.USER, "user", "The user to search for.", true),
                         new SubcommandData("minecraft", "Search by Minecraft username")
-                                .addOption(OptionType.STRING, "username", "The username to search for.", true)
+                                .addOption(OptionType.STRING, "username", "The username to search for.", true, true)
                 )
                 .setDefaultPermissions(DefaultMemberPermissions.DISABLED);
     }
 
+    @Override
+    protected boolean isEphemeral() {
+        return true;
+    }
+
     @Override
     protected void onCommand(@NotNull SlashCommandInteraction event) {
 
@@ -55,7 +65,7 @@ public class CommandUser extends ExecutableSlashCommand {
 
         if (subcommand == null) {
             EmbedBuilder embed = new EmbedBuilder().setColor(Color.red).setDescription("You need to specify subcommand \"discord\" or \"minecraft\".");
-            event.replyEmbeds(embed.build()).setEphemeral(true).queue();
+            replyEmbeds(event, embed.build(), true);
             return;
         }
 
@@ -65,7 +75,7 @@ public class CommandUser extends ExecutableSlashCommand {
 
                 if (targetUser == null) {
                     EmbedBuilder embed = new EmbedBuilder().setColor(Color.red).setDescription("You must provide a user.");
-                    event.replyEmbeds(embed.build()).setEphemeral(true).queue();
+                    replyEmbeds(event, embed.build(), true);
                     return;
                 }
 
@@ -77,7 +87,7 @@ public class CommandUser extends ExecutableSlashCommand {
                     EmbedBuilder embed = new EmbedBuilder().setColor(Color.yellow).setTitle("User not found.").setDescription(targetUser.getAsMention() + " does not exist in the database. Would you like to add them?");
                     // TODO: Make button "userinit-discord-<discord_id>" add user
                     ActionRow buttons = ActionRow.of(Button.of(ButtonStyle.PRIMARY, "userinit-discord-" + targetUser.getId(), "Add to user database", Emoji.fromFormatted("\uD83D\uDCDD")));
-                    event.replyEmbeds(embed.build()).addComponents(buttons).setEphemeral(true).queue();
+                    reply(event, new MessageCreateBuilder().setEmbeds(embed.build()).addComponents(buttons).build(), true);
                     return;
                 }
 
@@ -92,7 +102,7 @@ public class CommandUser extends ExecutableSlashCommand {
 
                 if (username == null) {
                     EmbedBuilder embed = new EmbedBuilder().setColor(Color.red).setDescription("You must provide a username.");
-                    event.replyEmbeds(embed.build()).setEphemeral(true).queue();
+                    replyEmbeds(event, embed.build(), true);
                     return;
                 }
 
@@ -102,7 +112,7 @@ public class CommandUser extends ExecutableSlashCommand {
                     EmbedBuilder embed = new EmbedBuilder().setColor(Color.yellow).setDescription("No user with that username could be found. Would you like to add them?");
                     // TODO: Make button "userinit-minecraftusername-<minecraft_username>" add user
                     ActionRow buttons = ActionRow.of(Button.of(ButtonStyle.PRIMARY, "userinit-minecraftusername-" + username, "Add to user database", Emoji.fromFormatted("\uD83D\uDCDD")));
-                    event.replyEmbeds(embed.build()).addComponents(buttons).setEphemeral(true).queue();
+                    reply(event, new MessageCreateBuilder().setEmbeds(embed.build()).addComponents(buttons).build(), true);
                     return;
                 }
 
@@ -113,7 +123,7 @@ public class CommandUser extends ExecutableSlashCommand {
             }
             default -> {
                 EmbedBuilder embed = new EmbedBuilder().setColor(Color.red).setDescription(subcommand + " is not a valid subcommand. You need to specify subcommand \"discord\" or \"minecraft\".");
-                event.replyEmbeds(embed.build()).setEphemeral(true).queue();
+                replyEmbeds(event, embed.build(), true);
             }
         }
     }
@@ -164,18 +174,19 @@ public class CommandUser extends ExecutableSlashCommand {
         if (uuid != null) {
             // If the UUID exists, try to get the skin and add it to the embed
             try {
-                ByteBuffer byteBuffer = TextureLoader.extractAndScaleMinecraftHead(TextureLoader.loadTextureFromUrl(Mojang.getSkinUrl(String.valueOf(uuid))), 512);
-                byte[] byteArray = new byte[byteBuffer.remaining()];
-                byteBuffer.get(byteArray);
+                byte[] skin = TextureLoader.loadBytesFromUrl(Mojang.getSkinUrl(String.valueOf(uuid)));
+                // Players are looked up often, so the head is only cut out again when their skin changes
+                byte[] byteArray = App.getRenderCache().get(RenderCache.Key.of(skin, "head", HEAD_CONFIG),
+                        () -> TextureLoader.extractAndScaleMinecraftHeadBytes(ByteBuffer.wrap(skin), HEAD_SIZE));
                 embed.setThumbnail("attachment://face.png");
 
                 // This requires the image to be uploaded as an attachment (it will not appear as one though)
-                event.replyFiles(FileUpload.fromData(byteArray, "face.png")).setEmbeds(embed.build()).setEphemeral(true).queue();
+                reply(event, new MessageCreateBuilder().addFiles(FileUpload.fromData(byteArray, "face.png")).setEmbeds(embed.build()).build(), true);
             } catch (IOException ignore) {
-                event.replyEmbeds(embed.build()).setEphemeral(true).queue();
+                replyEmbeds(event, embed.build(), true);
             }
         } else {
-            event.replyEmbeds(embed.build()).setEphemeral(true).queue();
+            replyEmbeds(event, embed.build(), true);
         }
     }
 
@@ -188,6 +199,9 @@ public class CommandUser extends ExecutableSlashCommand {
 
     @Override
     protected void onAutoComplete(CommandAutoCompleteInteractionEvent event) {
-        noAutoComplete();
+        if (event.getFocusedOption().getName().equals("username")) {
+            // Answered from memory, so that suggestions keep up with typing
+            event.replyChoiceStrings(App.getNameIndex().getMinecraftUsernames().complete(event.getFocusedOption().getValue())).queue();
+        }
     }
 }
@@ -0,0 +1,122 @@
+package org.woftnw.dreamvisitorhub.commands;
+
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.SlashCommandInteraction;
+import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+import org.jetbrains.annotations.NotNull;
+import org.woftnw.dreamvisitorhub.App;
+import org.woftnw.dreamvisitorhub.commands.framework.ExecutableSlashCommand;
+import org.woftnw.dreamvisitorhub.config.Config;
+import org.woftnw.dreamvisitorhub.config.ConfigKey;
+import org.woftnw.dreamvisitorhub.data.type.DVUser;
+import org.woftnw.dreamvisitorhub.data.type.Transaction;
+import org.woftnw.dreamvisitorhub.functions.Economy;
+import org.woftnw.dreamvisitorhub.util.Formatter;
+
+import java.awt.*;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class CommandWork extends ExecutableSlashCommand {
+    private static final Logger LOGGER = Logger.getLogger(CommandWork.class.getName());
+
+    @Override
+    public SlashCommandData getCommandData() {
+        return Commands.slash("work", "Work for a reward.");
+    }
+
+    @Override
+    protected void onCommand(@NotNull SlashCommandInteraction event) {
+        User sender = event.getUser();
+        long snowflakeId = sender.getIdLong();
+
+        // Users on cooldown are turned away here, before the user is looked up
+        Duration remaining = Economy.getWorkCooldownRemaining(snowflakeId);
+        if (!remaining.isZero()) {
+            replyOnCooldown(event, remaining);
+            return;
+        }
+        if (!Economy.tryLockWork(snowflakeId)) {
+            reply(event, "You are already working.", true);
+            return;
+        }
+
+        track(event, App.getUserRepository().findByDiscordIdAsync(sender.getId())
+                .thenCompose(optionalUser -> work(event, sender, optionalUser))
+                .whenComplete((result, e) -> Economy.unlockWork(snowflakeId)))
+                .exceptionally(e -> {
+                    LOGGER.log(Level.SEVERE, "Failed to save work reward for " + sender.getName(), e);
+                    EmbedBuilder embedBuilder = new EmbedBuilder();
+                    embedBuilder.setColor(Color.red).setTitle("Work not rewarded").setDescription("Your reward could not be saved. Try again later.");
+                    replyEmbeds(event, embedBuilder.build());
+                    return null;
+                });
+    }
+
+    /**
+     * Work once the user has been looked up.
+     *
+     * @return a future that completes once the reply has been sent
+     */
+    @NotNull
+    private CompletableFuture<Void> work(@NotNull SlashCommandInteraction event, @NotNull User sender,
+                                         @NotNull Optional<DVUser> optionalUser) {
+        DVUser user;
+
+        // Initialize user if they do not exist
+        if (optionalUser.isEmpty()) {
+            user = new DVUser();
+            user.setDiscordId(sender.getId());
+            user.setDiscordUsername(sender.getName());
+            user.setDiscordImg(sender.getAvatarUrl());
+        } else user = optionalUser.get();
+
+        double reward;
+
+        try {
+            reward = Economy.work(user);
+        } catch (Economy.CoolDownException e) {
+            Economy.markWorked(sender.getIdLong(), user.getLastWork());
+            replyOnCooldown(event, Duration.between(OffsetDateTime.now(), user.getLastWork().plus(Economy.getWorkCooldown())));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // The reward is added on the server, so concurrent changes to the balance are not lost
+        return App.getUserRepository().adjustBalanceAsync(user, reward).thenAccept(savedUser -> {
+            Economy.markWorked(sender.getIdLong(), savedUser.getLastWork());
+            Economy.recordTransaction(savedUser.getId(), Transaction.Type.WORK, reward, event.getId());
+            EmbedBuilder embedBuilder = new EmbedBuilder();
+            embedBuilder.setTitle("Work complete")
+                    .setDescription("You earned " + Config.get(ConfigKey.CURRENCY_ICON) + Formatter.formatMoney(reward) + ".\nYou can work again in " + formatDuration(Economy.getWorkCooldown()) + ".")
+                    .setFooter("Your new balance is " + Formatter.formatMoney(savedUser.getBalance()))
+                    .setColor(Color.GREEN);
+            replyEmbeds(event, embedBuilder.build());
+        });
+    }
+
+    private static void replyOnCooldown(@NotNull SlashCommandInteraction event, @NotNull Duration remaining) {
+        EmbedBuilder embedBuilder = new EmbedBuilder();
+        embedBuilder.setColor(Color.red).setTitle("Still on cooldown").setDescription("You have worked recently. You cannot work again for " + formatDuration(remaining) + ".");
+        replyEmbeds(event, embedBuilder.build());
+    }
+
+    @NotNull
+    private static String formatDuration(@NotNull Duration duration) {
+        // Round up, so that a few seconds left do not show as zero minutes
+        Duration rounded = duration.plusSeconds(59).truncatedTo(ChronoUnit.MINUTES);
+        return Formatter.chooseCountForm((int) rounded.toHours(), "hour", "hours") + " and " + Formatter.chooseCountForm(rounded.toMinutesPart(), "minute", "minutes");
+    }
+
+    @Override
+    protected void onAutoComplete(CommandAutoCompleteInteractionEvent event) {
+        noAutoComplete();
+    }
+}
@@ -0,0 +1,114 @@
+package org.woftnw.dreamvisitorhub.commands.framework;
+
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A sorted in-memory index of names for autocompletion, so that suggestions can be given without a request to
+ * PocketBase.
+ *
+ * <p>
+ * Each name belongs to a record ID, and putting a new name for the ID replaces the old one. Names are matched by
+ * case-insensitive prefix, which is a range lookup in the sorted index followed by a walk over at most the matches
+ * that are returned.
+ * </p>
+ */
+public class AutocompleteIndex {
+    /**
+     * Sorts before every other character, so that a name's keys come before those of longer names it is a prefix of
+     */
+    private static final char SEPARATOR = '\0';
+
+    /**
+     * Lower case name, separator and record ID, to the name as it was given
+     */
+    private final NavigableMap<String, String> names = new ConcurrentSkipListMap<>();
+    private final Map<String, String> keysById = new ConcurrentHashMap<>();
+
+    /**
+     * Set the name of a record
+     *
+     * @param id   Record ID
+     * @param name The name, or null to remove the record
+     */
+    public void put(@NotNull String id, @Nullable String name) {
+        keysById.compute(id, (key, oldKey) -> {
+            if (oldKey != null) names.remove(oldKey);
+            if (name == null || name.isBlank()) return null;
+            String newKey = name.toLowerCase(Locale.ROOT) + SEPARATOR + id;
+            names.put(newKey, name);
+            return newKey;
+        });
+    }
+
+    /**
+     * Set the name of a record unless it already has one, for filling the index without overwriting newer changes
+     *
+     * @param id   Record ID
+     * @param name The name
+     */
+    public void putIfAbsent(@NotNull String id, @Nullable String name) {
+        keysById.computeIfAbsent(id, key -> {
+            if (name == null || name.isBlank()) return null;
+            String newKey = name.toLowerCase(Locale.ROOT) + SEPARATOR + id;
+            names.put(newKey, name);
+            return newKey;
+        });
+    }
+
+    /**
+     * Remove a record
+     *
+     * @param id Record ID
+     */
+    public void remove(@NotNull String id) {
+        put(id, null);
+    }
+
+    /**
+     * @return the number of records with a name
+     */
+    public int size() {
+        return keysById.size();
+    }
+
+    /**
+     * Find the names starting with some text, ignoring case
+     *
+     * @param prefix The text typed so far
+     * @param limit  The most names to return
+     * @return Matching names in alphabetical order, without duplicates
+     */
+    @NotNull
+    public List<String> complete(@NotNull String prefix, int limit) {
+        String lowerPrefix = prefix.toLowerCase(Locale.ROOT);
+        Set<String> matches = new LinkedHashSet<>();
+        for (Map.Entry<String, String> entry : names.tailMap(lowerPrefix).entrySet()) {
+            if (matches.size() >= limit || !entry.getKey().startsWith(lowerPrefix)) break;
+            matches.add(entry.getValue());
+        }
+        return new ArrayList<>(matches);
+    }
+
+    /**
+     * Find as many names as Discord accepts in one autocompletion
+     *
+     * @param prefix The text typed so far
+     * @return Matching names in alphabetical order
+     */
+    @NotNull
+    public List<String> complete(@NotNull String prefix) {
+        return complete(prefix, OptionData.MAX_CHOICES);
+    }
+}
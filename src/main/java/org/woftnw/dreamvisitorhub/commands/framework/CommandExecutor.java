@@ -0,0 +1,108 @@
+package org.woftnw.dreamvisitorhub.commands.framework;
+
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs command handlers away from JDA's event thread, so that a handler waiting on PocketBase or the Mojang API does
+ * not hold up other interactions.
+ *
+ * <p>
+ * Discord only waits three seconds for the first response to an interaction. If a handler has not responded within
+ * the defer budget, the reply is deferred for it, and the replies made through
+ * {@link ExecutableSlashCommand#reply(net.dv8tion.jda.api.interactions.commands.SlashCommandInteraction, String)}
+ * and its siblings are then sent through the interaction hook instead.
+ * </p>
+ * <p>
+ * Handlers run on virtual threads when the Java runtime has them, and on a cached pool of daemon threads otherwise.
+ * </p>
+ */
+public class CommandExecutor {
+    private static final Logger LOGGER = Logger.getLogger(CommandExecutor.class.getName());
+
+    private final ExecutorService workers = createWorkers();
+    private final ScheduledExecutorService deferTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "CommandDeferTimer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final long deferAfterMillis;
+
+    /**
+     * Create a command executor
+     *
+     * @param deferAfter How long a handler may take to respond before the reply is deferred for it
+     */
+    public CommandExecutor(@NotNull Duration deferAfter) {
+        this.deferAfterMillis = deferAfter.toMillis();
+    }
+
+    /**
+     * Run a command on a worker thread, deferring the reply if it has not been answered in time
+     *
+     * @param command The command matching the event
+     * @param event   The slash command event
+     */
+    public void execute(@NotNull ExecutableSlashCommand command, @NotNull SlashCommandInteractionEvent event) {
+        // Handlers that reply from a callback return before they reply, so the timer is never cancelled. It does
+        // nothing once the interaction has been answered.
+        deferTimer.schedule(() -> command.deferIfUnanswered(event), deferAfterMillis, TimeUnit.MILLISECONDS);
+        workers.execute(() -> {
+            try {
+                command.execute(event);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Command /" + command.getName() + " failed", e);
+                EmbedBuilder embed = new EmbedBuilder();
+                embed.setColor(Color.red).setTitle("Something went wrong").setDescription("The command could not be completed. Try again later.");
+                ExecutableSlashCommand.replyErrorIfUnanswered(event, embed.build());
+            }
+        });
+    }
+
+    /**
+     * Run an autocompletion on a worker thread. Autocompletions cannot be deferred.
+     *
+     * @param command The command matching the event
+     * @param event   The autocomplete event
+     */
+    public void autoComplete(@NotNull ExecutableSlashCommand command, @NotNull CommandAutoCompleteInteractionEvent event) {
+        workers.execute(() -> {
+            try {
+                command.autoComplete(event);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Autocompletion for /" + command.getName() + " failed", e);
+            }
+        });
+    }
+
+    @NotNull
+    private static ExecutorService createWorkers() {
+        try {
+            // Virtual threads are only available from Java 21, so they are looked up rather than linked against
+            ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            LOGGER.info("Running commands on virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            AtomicInteger count = new AtomicInteger();
+            ThreadFactory factory = runnable -> {
+                Thread thread = new Thread(runnable, "CommandWorker-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newCachedThreadPool(factory);
+        }
+    }
+}
@@ -5,29 +5,57 @@ import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
 import org.jetbrains.annotations.NotNull;
 import org.woftnw.dreamvisitorhub.commands.*;
 
 import java.awt.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * The CommandManager is responsible for handling all Discord slash commands. It registers commands to the guild and
  * handles command autocomplete and execution by invoking the appropriate {@link ExecutableSlashCommand} methods.
  */
 public class CommandManager extends ListenerAdapter {
+    private static final Logger LOGGER = Logger.getLogger(CommandManager.class.getName());
+
+    /**
+     * Where the hash of the last registered commands is kept, to skip registration when nothing changed.
+     */
+    private static final String COMMAND_HASH_PATH = "commands.sha256";
 
     /**
      * We use guild commands instead of global commands because they are faster to update and Dreamvisitor is only
      * intended to work in one guild anyway.
      */
     private final Guild guild;
-    private final List<ExecutableSlashCommand> commands = new ArrayList<>();
+    private final CommandExecutor executor;
+    /**
+     * Commands by name, so that each interaction is dispatched with a single lookup.
+     */
+    private final Map<String, ExecutableSlashCommand> commands = new LinkedHashMap<>();
 
-    public CommandManager(Guild guild) {
+    /**
+     * @param guild      The guild to register commands to
+     * @param deferAfter How long a command may take to respond before its reply is deferred
+     */
+    public CommandManager(Guild guild, Duration deferAfter) {
         this.guild = guild;
+        this.executor = new CommandExecutor(deferAfter);
 
         // !!!
         // THIS IS WHERE TO ADD COMMANDS
@@ -36,18 +64,66 @@ public class CommandManager extends ListenerAdapter {
         commands.add(new CommandActivity());
         commands.add(new CommandBalance());
         commands.add(new CommandDaily());
+        commands.add(new CommandLeaderboard());
         commands.add(new CommandLink());
         commands.add(new CommandUser());
+        commands.add(new CommandWork());
 
-        this.commands.addAll(commands);
+        for (ExecutableSlashCommand command : commands) {
+            if (this.commands.putIfAbsent(command.getName(), command) != null) {
+                throw new IllegalStateException("There is more than one command named " + command.getName());
+            }
+        }
         registerAllCommands();
     }
 
     /**
-     * An internal method to register commands to the guild.
+     * An internal method to register commands to the guild. All commands are sent in one request, which also removes
+     * commands that no longer exist. If the commands are the same as those last registered, nothing is sent.
      */
     private void registerAllCommands() {
-        commands.forEach(command -> guild.upsertCommand(command.getCommandData()).queue());
+        List<SlashCommandData> commandData = commands.values().stream()
+                .map(ExecutableSlashCommand::getCachedCommandData)
+                .sorted(Comparator.comparing(SlashCommandData::getName))
+                .toList();
+        String hash = hashCommands(commandData);
+        Path hashPath = Path.of(COMMAND_HASH_PATH);
+
+        try {
+            if (Files.exists(hashPath) && hash.equals(Files.readString(hashPath).strip())) {
+                LOGGER.info("Commands have not changed since they were last registered");
+                return;
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to read " + COMMAND_HASH_PATH + ", registering commands anyway", e);
+        }
+
+        guild.updateCommands().addCommands(commandData).queue(registered -> {
+            LOGGER.info("Registered " + registered.size() + " commands");
+            try {
+                Files.writeString(hashPath, hash);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to write " + COMMAND_HASH_PATH + ", commands will be registered again on the next start", e);
+            }
+        }, e -> LOGGER.log(Level.SEVERE, "Failed to register commands", e));
+    }
+
+    /**
+     * Hash the serialized commands together with the guild, so that registering to another guild is not skipped.
+     */
+    @NotNull
+    private String hashCommands(@NotNull List<SlashCommandData> commandData) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(guild.getId().getBytes(StandardCharsets.UTF_8));
+            for (SlashCommandData data : commandData) {
+                digest.update(data.toData().toJson());
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java runtime has SHA-256
+            throw new IllegalStateException(e);
+        }
     }
 
     /**
@@ -56,22 +132,17 @@ public class CommandManager extends ListenerAdapter {
      */
     @Override
     public void onSlashCommandInteraction(@NotNull SlashCommandInteractionEvent event) {
-        for (ExecutableSlashCommand command : commands) {
-            if (Objects.equals(command.getCommandData().getName(), event.getName())) {
-                command.execute(event);
-                return;
-            }
+        ExecutableSlashCommand command = commands.get(event.getName());
+        if (command != null) {
+            executor.execute(command, event);
+            return;
         }
 
-        // If we get to this point, there are no commands that match. This can happen if a command is removed from the code, but not from Discord's side.
-        // This is not dangerous, but we should delete the command.
+        // If we get to this point, there are no commands that match. Registration replaces the whole command list, so
+        // this can only happen if a Discord client still shows a command from before the last registration.
         EmbedBuilder noMatchEmbed = new EmbedBuilder();
-        noMatchEmbed.setColor(Color.RED).setTitle("No commands match your request.").setDescription("This command was removed, but not deleted. It will be deleted shortly.");
-        event.reply("That command doesn't exist anymore.").addEmbeds(noMatchEmbed.build()).queue();
-
-        // Delete the command
-        String commandId = event.getCommandId();
-        guild.deleteCommandById(commandId).queue();
+        noMatchEmbed.setColor(Color.RED).setTitle("No commands match your request.").setDescription("This command was removed. Restart Discord to refresh your commands.");
+        event.reply("That command doesn't exist anymore.").addEmbeds(noMatchEmbed.build()).setEphemeral(true).queue();
     }
 
     /**
@@ -80,11 +151,7 @@ public class CommandManager extends ListenerAdapter {
      */
     @Override
     public void onCommandAutoCompleteInteraction(@NotNull CommandAutoCompleteInteractionEvent event) {
-        for (ExecutableSlashCommand command : commands) {
-            if (Objects.equals(command.getCommandData().getName(), event.getName())) {
-                command.autoComplete(event);
-                return;
-            }
-        }
+        ExecutableSlashCommand command = commands.get(event.getName());
+        if (command != null) executor.autoComplete(command, event);
     }
 }
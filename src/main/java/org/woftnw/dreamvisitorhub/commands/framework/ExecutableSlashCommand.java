@@ -1,11 +1,23 @@
 package org.woftnw.dreamvisitorhub.commands.framework;
 
+import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
 import net.dv8tion.jda.api.interactions.commands.SlashCommandInteraction;
 import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+import net.dv8tion.jda.api.utils.messages.MessageCreateData;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.woftnw.dreamvisitorhub.metrics.Metrics;
 
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This is the abstract representation for a slash command.
@@ -26,6 +38,39 @@ public abstract class ExecutableSlashCommand {
      */
     public abstract SlashCommandData getCommandData();
 
+    private volatile SlashCommandData cachedCommandData;
+
+    // Work handed over through track() by handlers that are still running, by interaction ID
+    private final Map<Long, CompletableFuture<?>> trackedWork = new ConcurrentHashMap<>();
+
+    // Interactions deferred by the CommandExecutor that have not been replied to yet. Weak, so that interactions
+    // nobody replies to are not kept.
+    private static final Set<SlashCommandInteraction> deferredOnly =
+            Collections.newSetFromMap(Collections.synchronizedMap(new WeakHashMap<>()));
+
+    /**
+     * The command data built by {@link #getCommandData()}, built only once. Building it again for every interaction
+     * would allocate a new tree of options each time.
+     */
+    @NotNull
+    public final SlashCommandData getCachedCommandData() {
+        SlashCommandData data = cachedCommandData;
+        if (data == null) {
+            // Building it twice at the same time is harmless, both results are equal
+            data = getCommandData();
+            cachedCommandData = data;
+        }
+        return data;
+    }
+
+    /**
+     * The name of this command, as used in interactions.
+     */
+    @NotNull
+    public final String getName() {
+        return getCachedCommandData().getName();
+    }
+
     // These abstract methods are overridden by each command class, but they are protected so that the CommandManager
     // uses the autoComplete() and execute() below instead, both of which do a preliminary check to make sure that the
     // command inside the event and the command being executed match. This should happen anyway in the CommandManager,
@@ -38,7 +83,7 @@ public abstract class ExecutableSlashCommand {
      * @param event the {@link CommandAutoCompleteInteractionEvent} context
      */
     public void autoComplete(@NotNull CommandAutoCompleteInteractionEvent event) {
-        if (Objects.equals(event.getName(), getCommandData().getName())) {
+        if (Objects.equals(event.getName(), getName())) {
             onAutoComplete(event);
         } else {
             throw new IllegalArgumentException("This command doesn't match the given CommandAutoCompleteInteractionEvent.");
@@ -50,13 +95,135 @@ public abstract class ExecutableSlashCommand {
      * @param event the {@link SlashCommandInteraction} context
      */
     public void execute(@NotNull SlashCommandInteraction event) {
-        if (Objects.equals(event.getName(), getCommandData().getName())) {
-            onCommand(event);
+        if (Objects.equals(event.getName(), getName())) {
+            long start = System.nanoTime();
+            CompletableFuture<?> work;
+            try {
+                onCommand(event);
+                work = trackedWork.remove(event.getIdLong());
+            } catch (RuntimeException e) {
+                trackedWork.remove(event.getIdLong());
+                recordCompletion(start, e);
+                throw e;
+            }
+            if (work == null) recordCompletion(start, null);
+            else work.whenComplete((result, e) -> recordCompletion(start, e));
         } else {
             throw new IllegalArgumentException("This command doesn't match the given SlashCommandInteraction.");
         }
     }
 
+    private void recordCompletion(long start, @Nullable Throwable error) {
+        if (error != null) Metrics.COMMAND_ERRORS.labels(getName()).increment();
+        Metrics.COMMAND_DURATION.labels(getName()).observeSince(start);
+    }
+
+    /**
+     * Hand over work that the handler finishes in callbacks. The command is then measured until the future completes
+     * rather than until {@link #onCommand(SlashCommandInteraction)} returns, and counted as an error if the future
+     * fails. Call this from the handler at most once per interaction, and handle failures on the returned future as
+     * before.
+     *
+     * @param event The interaction being handled
+     * @param work  A future that completes once the command is done
+     * @return the same future
+     */
+    @NotNull
+    protected final <T> CompletableFuture<T> track(@NotNull SlashCommandInteraction event, @NotNull CompletableFuture<T> work) {
+        trackedWork.put(event.getIdLong(), work);
+        return work;
+    }
+
+    /**
+     * Whether the reply is ephemeral if it has to be deferred before the handler responds. Commands whose replies are
+     * all ephemeral should return true.
+     */
+    protected boolean isEphemeral() {
+        return false;
+    }
+
+    /**
+     * Defer the reply if nobody has answered the interaction yet. Called by the {@link CommandExecutor} once the
+     * handler has used up its time.
+     */
+    void deferIfUnanswered(@NotNull SlashCommandInteraction event) {
+        // Replies lock the event as well, so an interaction is never acknowledged twice
+        synchronized (event) {
+            if (!event.isAcknowledged()) {
+                event.deferReply(isEphemeral()).queue();
+                deferredOnly.add(event);
+                Metrics.COMMAND_DEFERRED.labels(getName()).increment();
+            }
+        }
+    }
+
+    /**
+     * Reply with an error unless the handler has already replied. An interaction that was only deferred still gets
+     * the error through its hook, but one that was answered is not given a second message.
+     *
+     * @param event The interaction to reply to
+     * @param embed The error
+     */
+    static void replyErrorIfUnanswered(@NotNull SlashCommandInteraction event, @NotNull MessageEmbed embed) {
+        synchronized (event) {
+            if (event.isAcknowledged() && !deferredOnly.contains(event)) return;
+            replyEmbeds(event, embed, true);
+        }
+    }
+
+    /**
+     * Reply to an interaction, or send the reply through the interaction hook if it was already deferred. Commands
+     * should use this rather than replying to the event directly, since they cannot know whether the
+     * {@link CommandExecutor} has deferred the reply for them.
+     *
+     * @param event     The interaction to reply to
+     * @param message   The reply
+     * @param ephemeral Whether only the user should see the reply. If the reply was deferred, the deferral decides.
+     */
+    protected static void reply(@NotNull SlashCommandInteraction event, @NotNull MessageCreateData message, boolean ephemeral) {
+        synchronized (event) {
+            deferredOnly.remove(event);
+            if (event.isAcknowledged()) {
+                event.getHook().sendMessage(message).setEphemeral(ephemeral).queue(sent -> recordReply(event, true));
+            } else {
+                event.reply(message).setEphemeral(ephemeral).queue(sent -> recordReply(event, false));
+            }
+        }
+    }
+
+    private static void recordReply(@NotNull SlashCommandInteraction event, boolean deferred) {
+        long latency = Duration.between(event.getTimeCreated(), OffsetDateTime.now()).toNanos();
+        Metrics.COMMAND_REPLY_LATENCY.labels(event.getName(), String.valueOf(deferred)).observe(latency);
+    }
+
+    /**
+     * Reply with text. See {@link #reply(SlashCommandInteraction, MessageCreateData, boolean)}.
+     */
+    protected static void reply(@NotNull SlashCommandInteraction event, @NotNull String content, boolean ephemeral) {
+        reply(event, MessageCreateData.fromContent(content), ephemeral);
+    }
+
+    /**
+     * Reply with text that everyone can see. See {@link #reply(SlashCommandInteraction, MessageCreateData, boolean)}.
+     */
+    protected static void reply(@NotNull SlashCommandInteraction event, @NotNull String content) {
+        reply(event, content, false);
+    }
+
+    /**
+     * Reply with an embed. See {@link #reply(SlashCommandInteraction, MessageCreateData, boolean)}.
+     */
+    protected static void replyEmbeds(@NotNull SlashCommandInteraction event, @NotNull MessageEmbed embed, boolean ephemeral) {
+        reply(event, MessageCreateData.fromEmbeds(embed), ephemeral);
+    }
+
+    /**
+     * Reply with an embed that everyone can see. See {@link #reply(SlashCommandInteraction, MessageCreateData, boolean)}.
+     */
+    protected static void replyEmbeds(@NotNull SlashCommandInteraction event, @NotNull MessageEmbed embed) {
+        replyEmbeds(event, embed, false);
+    }
+
     /**
      * This can be used within onAutoComplete for commands which do not have any autocomplete arguments.
      */
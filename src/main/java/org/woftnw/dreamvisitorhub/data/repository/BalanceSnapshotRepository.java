@@ -0,0 +1,26 @@
+package org.woftnw.dreamvisitorhub.data.repository;
+
+import org.woftnw.dreamvisitorhub.data.type.BalanceSnapshot;
+
+import java.util.Optional;
+
+/**
+ * Repository interface for balance snapshots of the economy ledger
+ */
+public interface BalanceSnapshotRepository {
+    /**
+     * Find the most recent snapshot of a user's balance
+     *
+     * @param userId PocketBase ID of the user
+     * @return Optional containing the snapshot with the latest cutoff, if the user has one
+     */
+    Optional<BalanceSnapshot> findLatestByUser(String userId);
+
+    /**
+     * Create a snapshot
+     *
+     * @param snapshot Snapshot to create
+     * @return Saved snapshot
+     */
+    BalanceSnapshot save(BalanceSnapshot snapshot);
+}
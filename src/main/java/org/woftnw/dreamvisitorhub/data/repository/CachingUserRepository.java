@@ -0,0 +1,508 @@
+package org.woftnw.dreamvisitorhub.data.repository;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.woftnw.dreamvisitorhub.data.type.DVUser;
+import org.woftnw.dreamvisitorhub.pb.PocketBaseRealtime;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A read-through cache in front of another UserRepository.
+ *
+ * <p>
+ * Users found by any lookup are kept by record ID for a limited time, together with indexes from Discord ID,
+ * Minecraft UUID and Minecraft username to the record ID. Usernames are matched exactly, like the PocketBase filter
+ * does. Later lookups by any of those keys are answered
+ * from memory. When the cache is full, the least recently used user is evicted.
+ * </p>
+ * <p>
+ * Saves and deletes go through this repository, so the cache and its indexes are updated with them. Changes made
+ * elsewhere, such as by another hub or in the PocketBase dashboard, are picked up once the cached user expires or is
+ * invalidated. {@link #updateOnChange(PocketBaseRealtime, PocketBaseUserRepository)} applies changes to cached users
+ * as soon as PocketBase reports them.
+ * </p>
+ * <p>
+ * A lookup that is still loading when its user changes could put the old version in the cache. While loads are
+ * running, the versions reported by changes and invalidations are therefore remembered per user, and a load only puts
+ * a user that is not older.
+ * </p>
+ * <p>
+ * Users are copied on the way in and out, so changing a returned user has no effect until it is saved.
+ * </p>
+ */
+public class CachingUserRepository implements UserRepository {
+    private final UserRepository delegate;
+    private final int maxSize;
+    private final long ttlNanos;
+
+    // Guarded by this
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, String> idsByDiscordId = new HashMap<>();
+    private final Map<UUID, String> idsByUuid = new HashMap<>();
+    private final Map<String, String> idsByMcUsername = new HashMap<>();
+    /**
+     * Incremented by {@link #invalidateAll()}, so that a load started before it does not put an old version back
+     */
+    private long generation = 0;
+    private int loadsInFlight = 0;
+    /**
+     * The latest version of each user changed or invalidated while loads were running. Loaded users older than it are
+     * not cached. Cleared once no load is running.
+     */
+    private final Map<String, Guard> guards = new HashMap<>();
+
+    // Statistics
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * Create a cache in front of a repository
+     *
+     * @param delegate The repository to load users from
+     * @param maxSize  The maximum number of users to keep
+     * @param ttl      How long a user is kept after it was loaded or saved
+     */
+    public CachingUserRepository(@NotNull UserRepository delegate, int maxSize, @NotNull Duration ttl) {
+        if (maxSize < 1) throw new IllegalArgumentException("Cache size must be at least 1");
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    @Override
+    public Optional<DVUser> findById(String id) {
+        return lookup(id, () -> delegate.findById(id));
+    }
+
+    @Override
+    public Optional<DVUser> findByUuid(UUID uuid) {
+        return lookup(idFor(idsByUuid, uuid), () -> delegate.findByUuid(uuid));
+    }
+
+    @Override
+    public Optional<DVUser> findByDiscordId(String discordId) {
+        return lookup(idFor(idsByDiscordId, discordId), () -> delegate.findByDiscordId(discordId));
+    }
+
+    @Override
+    public Optional<DVUser> findBySnowflakeId(Long snowflakeId) {
+        return lookup(idFor(idsByDiscordId, snowflakeId.toString()), () -> delegate.findBySnowflakeId(snowflakeId));
+    }
+
+    @Override
+    public Optional<DVUser> findByMinecraftUsername(String mcUsername) {
+        return lookup(idFor(idsByMcUsername, mcUsername), () -> delegate.findByMinecraftUsername(mcUsername));
+    }
+
+    @Override
+    public List<DVUser> findAll() {
+        // Full scans are passed through so that they don't evict the users that are actually looked up
+        return delegate.findAll();
+    }
+
+    @Override
+    public boolean streamAll(Consumer<DVUser> consumer) {
+        return delegate.streamAll(consumer);
+    }
+
+    @Override
+    public Map<String, DVUser> findAllByIds(Collection<String> ids) {
+        Map<String, DVUser> users = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (String id : ids) {
+            DVUser cached = get(id);
+            if (cached != null) {
+                hits.increment();
+                users.put(id, cached);
+            } else if (missing.add(id)) {
+                misses.increment();
+            }
+        }
+
+        // Everything that is not cached is loaded together
+        if (!missing.isEmpty()) {
+            long generation = beginLoad();
+            Map<String, DVUser> loaded = Map.of();
+            try {
+                loaded = delegate.findAllByIds(missing);
+            } finally {
+                finishLoad(loaded.values(), generation);
+            }
+            users.putAll(loaded);
+        }
+        return users;
+    }
+
+    @Override
+    public DVUser save(DVUser user) {
+        DVUser saved;
+        try {
+            saved = delegate.save(user);
+        } catch (RuntimeException e) {
+            // The record may or may not have changed
+            if (user.getId() != null) invalidate(user.getId());
+            throw e;
+        }
+        put(saved);
+        return saved;
+    }
+
+    @Override
+    public DVUser adjustBalance(DVUser user, double amount) {
+        DVUser saved;
+        try {
+            saved = delegate.adjustBalance(user, amount);
+        } catch (RuntimeException e) {
+            if (user.getId() != null) invalidate(user.getId());
+            throw e;
+        }
+        put(saved);
+        return saved;
+    }
+
+    @Override
+    public void delete(DVUser user) {
+        try {
+            delegate.delete(user);
+        } finally {
+            if (user.getId() != null) invalidate(user.getId());
+        }
+    }
+
+    @Override
+    public void deleteById(String id) {
+        try {
+            delegate.deleteById(id);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        delegate.addListener(listener);
+    }
+
+    @Override
+    public List<DVUser> getAllWhere(String filter) {
+        return delegate.getAllWhere(filter);
+    }
+
+    @Override
+    public CompletableFuture<Optional<DVUser>> findByIdAsync(String id) {
+        return lookupAsync(id, () -> delegate.findByIdAsync(id));
+    }
+
+    @Override
+    public CompletableFuture<Optional<DVUser>> findByUuidAsync(UUID uuid) {
+        return lookupAsync(idFor(idsByUuid, uuid), () -> delegate.findByUuidAsync(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Optional<DVUser>> findByDiscordIdAsync(String discordId) {
+        return lookupAsync(idFor(idsByDiscordId, discordId), () -> delegate.findByDiscordIdAsync(discordId));
+    }
+
+    @Override
+    public CompletableFuture<Optional<DVUser>> findBySnowflakeIdAsync(Long snowflakeId) {
+        return lookupAsync(idFor(idsByDiscordId, snowflakeId.toString()),
+                () -> delegate.findBySnowflakeIdAsync(snowflakeId));
+    }
+
+    @Override
+    public CompletableFuture<Optional<DVUser>> findByMinecraftUsernameAsync(String mcUsername) {
+        return lookupAsync(idFor(idsByMcUsername, mcUsername), () -> delegate.findByMinecraftUsernameAsync(mcUsername));
+    }
+
+    @Override
+    public CompletableFuture<List<DVUser>> findAllAsync() {
+        return delegate.findAllAsync();
+    }
+
+    @Override
+    public CompletableFuture<DVUser> saveAsync(DVUser user) {
+        return delegate.saveAsync(user).whenComplete((saved, e) -> {
+            if (e != null) {
+                if (user.getId() != null) invalidate(user.getId());
+            } else {
+                put(saved);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<DVUser> adjustBalanceAsync(DVUser user, double amount) {
+        return delegate.adjustBalanceAsync(user, amount).whenComplete((saved, e) -> {
+            if (e != null) {
+                if (user.getId() != null) invalidate(user.getId());
+            } else {
+                put(saved);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<DVUser> claimDailyAsync(DVUser user, double reward, LocalDate day) {
+        return delegate.claimDailyAsync(user, reward, day).whenComplete((saved, e) -> {
+            if (e != null) {
+                if (user.getId() != null) invalidate(user.getId());
+            } else {
+                put(saved);
+            }
+        });
+    }
+
+    /**
+     * Remove a user from the cache, so that the next lookup loads it again
+     *
+     * @param id PocketBase record ID
+     */
+    public synchronized void invalidate(@NotNull String id) {
+        // The current version is unknown, so a load that is already running must not cache the user at all
+        guard(id, new Guard(null, true));
+        Entry entry = entries.remove(id);
+        if (entry != null) removeIndexes(entry.user());
+    }
+
+    /**
+     * Remove all users from the cache
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        idsByDiscordId.clear();
+        idsByUuid.clear();
+        idsByMcUsername.clear();
+    }
+
+    /**
+     * Apply changes to cached users as soon as PocketBase reports them, so that changes made elsewhere are not served
+     * from the cache until they expire. A changed user replaces the cached one unless it is older, so the events of
+     * this hub's own saves leave the cache as it is. Deleted users are removed. Changes made while the realtime
+     * connection was down are not reported, so the whole cache is dropped whenever it (re-)connects.
+     *
+     * @param realtime The realtime client to receive events from
+     * @param source   The repository whose records the events carry, used to read them
+     */
+    public void updateOnChange(@NotNull PocketBaseRealtime realtime, @NotNull PocketBaseUserRepository source) {
+        realtime.subscribe(PocketBaseUserRepository.COLLECTION_NAME + "/*", event -> {
+            if (event.record() == null || event.action() == null) return;
+            DVUser user = source.mapToUser(event.record());
+            if (user.getId() == null) return;
+
+            switch (event.action()) {
+                case "create", "update" -> applyChange(user);
+                case "delete" -> applyDelete(user);
+                default -> {
+                }
+            }
+        });
+        realtime.onConnect(this::invalidateAll);
+    }
+
+    /**
+     * @return a snapshot of the cache statistics
+     */
+    @NotNull
+    public CacheStats getStats() {
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), size, maxSize);
+    }
+
+    private Optional<DVUser> lookup(@Nullable String id, @NotNull Supplier<Optional<DVUser>> loader) {
+        DVUser cached = id != null ? get(id) : null;
+        if (cached != null) {
+            hits.increment();
+            return Optional.of(cached);
+        }
+
+        misses.increment();
+        long generation = beginLoad();
+        Optional<DVUser> loaded = Optional.empty();
+        try {
+            loaded = loader.get();
+        } finally {
+            finishLoad(loaded.stream().toList(), generation);
+        }
+        return loaded;
+    }
+
+    private CompletableFuture<Optional<DVUser>> lookupAsync(@Nullable String id,
+                                                            @NotNull Supplier<CompletableFuture<Optional<DVUser>>> loader) {
+        DVUser cached = id != null ? get(id) : null;
+        if (cached != null) {
+            hits.increment();
+            return CompletableFuture.completedFuture(Optional.of(cached));
+        }
+
+        misses.increment();
+        long generation = beginLoad();
+        CompletableFuture<Optional<DVUser>> future;
+        try {
+            future = loader.get();
+        } catch (RuntimeException e) {
+            finishLoad(List.of(), generation);
+            throw e;
+        }
+        return future.whenComplete((loaded, e) ->
+                finishLoad(loaded != null ? loaded.stream().toList() : List.of(), generation));
+    }
+
+    @Nullable
+    private synchronized <K> String idFor(@NotNull Map<K, String> index, @Nullable K key) {
+        return key != null ? index.get(key) : null;
+    }
+
+    /**
+     * Get a copy of a cached user, dropping it if it has expired
+     */
+    @Nullable
+    private synchronized DVUser get(@NotNull String id) {
+        Entry entry = entries.get(id);
+        if (entry == null) return null;
+
+        if (System.nanoTime() - entry.expiresAt() > 0) {
+            entries.remove(id);
+            removeIndexes(entry.user());
+            expirations.increment();
+            return null;
+        }
+        return entry.user().copy();
+    }
+
+    /**
+     * Register a load that is about to start
+     *
+     * @return the generation to pass to {@link #finishLoad(Collection, long)}
+     */
+    private synchronized long beginLoad() {
+        loadsInFlight++;
+        return generation;
+    }
+
+    /**
+     * Put the users of a finished load, leaving out any that were changed or invalidated since it started
+     */
+    private synchronized void finishLoad(@NotNull Collection<DVUser> users, long loadGeneration) {
+        if (generation == loadGeneration) {
+            for (DVUser user : users) {
+                Guard guard = guards.get(user.getId());
+                if (guard == null || guard.allows(user)) put(user);
+            }
+        }
+        if (--loadsInFlight == 0) guards.clear();
+    }
+
+    /**
+     * Remember the latest version of a user for the loads that are running
+     */
+    private synchronized void guard(@NotNull String id, @NotNull Guard guard) {
+        if (loadsInFlight > 0) guards.put(id, guard);
+    }
+
+    /**
+     * Replace a cached user with a newer version reported by PocketBase. Users that are not cached are not added.
+     */
+    private synchronized void applyChange(@NotNull DVUser user) {
+        guard(user.getId(), new Guard(user.getUpdated(), false));
+        if (entries.containsKey(user.getId())) put(user);
+    }
+
+    /**
+     * Remove a user that PocketBase reported as deleted
+     */
+    private synchronized void applyDelete(@NotNull DVUser user) {
+        guard(user.getId(), new Guard(user.getUpdated(), true));
+        Entry entry = entries.remove(user.getId());
+        if (entry != null) removeIndexes(entry.user());
+    }
+
+    private synchronized void put(@Nullable DVUser user) {
+        if (user == null || user.getId() == null) return;
+
+        Entry previous = entries.get(user.getId());
+        if (previous != null) {
+            // A slow load must not overwrite a newer version that was saved in the meantime
+            if (isOlder(user, previous.user())) return;
+            removeIndexes(previous.user());
+        }
+
+        DVUser copy = user.copy();
+        entries.put(copy.getId(), new Entry(copy, System.nanoTime() + ttlNanos));
+        addIndexes(copy);
+
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            DVUser eldest = iterator.next().getValue().user();
+            iterator.remove();
+            removeIndexes(eldest);
+            evictions.increment();
+        }
+    }
+
+    private static boolean isOlder(@NotNull DVUser user, @NotNull DVUser than) {
+        return user.getUpdated() != null && than.getUpdated() != null && user.getUpdated().isBefore(than.getUpdated());
+    }
+
+    private void addIndexes(@NotNull DVUser user) {
+        if (user.getDiscordId() != null) idsByDiscordId.put(user.getDiscordId(), user.getId());
+        if (user.getMinecraftUuid() != null) idsByUuid.put(user.getMinecraftUuid(), user.getId());
+        if (user.getMinecraftUsername() != null) idsByMcUsername.put(user.getMinecraftUsername(), user.getId());
+    }
+
+    private void removeIndexes(@NotNull DVUser user) {
+        // Only remove keys that still point at this user; another user may have taken them over
+        if (user.getDiscordId() != null) idsByDiscordId.remove(user.getDiscordId(), user.getId());
+        if (user.getMinecraftUuid() != null) idsByUuid.remove(user.getMinecraftUuid(), user.getId());
+        if (user.getMinecraftUsername() != null) idsByMcUsername.remove(user.getMinecraftUsername(), user.getId());
+    }
+
+    private record Entry(DVUser user, long expiresAt) {
+    }
+
+    /**
+     * The latest known version of a user that a running load may have missed
+     *
+     * @param updated When the user was last updated, or null if unknown
+     * @param deleted Whether the user was deleted or invalidated, in which case only a later version may be cached
+     */
+    private record Guard(@Nullable OffsetDateTime updated, boolean deleted) {
+        boolean allows(@NotNull DVUser user) {
+            if (updated == null || user.getUpdated() == null) return false;
+            return deleted ? user.getUpdated().isAfter(updated) : !user.getUpdated().isBefore(updated);
+        }
+    }
+
+    /**
+     * Cache statistics
+     *
+     * @param hits        Lookups answered from the cache
+     * @param misses      Lookups passed on to PocketBase
+     * @param evictions   Users removed because the cache was full
+     * @param expirations Users removed because their time to live had passed
+     * @param size        Users currently cached
+     * @param maxSize     Maximum number of users cached
+     */
+    public record CacheStats(long hits, long misses, long evictions, long expirations, int size, int maxSize) {
+        /**
+         * @return the fraction of lookups answered from the cache
+         */
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+}
@@ -3,9 +3,12 @@ package org.woftnw.dreamvisitorhub.data.repository;
 import org.woftnw.dreamvisitorhub.data.type.ChatMessage;
 import org.woftnw.dreamvisitorhub.data.type.DVUser;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Repository interface for User data operations
@@ -41,6 +44,13 @@ public interface ChatMessagesRepository {
      */
     void delete(ChatMessage chatMessage);
 
+    /**
+     * Delete several chat messages with as few requests as possible
+     *
+     * @param chatMessages Chat messages to delete
+     */
+    void deleteAll(Collection<ChatMessage> chatMessages);
+
     /**
      * Delete a chat message by ID
      *
@@ -55,4 +65,37 @@ public interface ChatMessagesRepository {
      * @return List of chat messages matching the condition
      */
     List<ChatMessage> getAllWhere(String filter);
+
+    /**
+     * Listen for chat messages as they are created. The listener is called from the realtime connection thread.
+     *
+     * @param listener Called with every newly created chat message
+     */
+    void subscribe(Consumer<ChatMessage> listener);
+
+    // Asynchronous variants. These do not block the calling thread and complete with an empty Optional or list where
+    // their blocking counterparts would return one.
+
+    /**
+     * Asynchronous version of {@link #findById(String)}
+     *
+     * @param id PocketBase record ID
+     * @return Future of an Optional containing the chat message if found
+     */
+    CompletableFuture<Optional<ChatMessage>> findByIdAsync(String id);
+
+    /**
+     * Asynchronous version of {@link #findAll()}
+     *
+     * @return Future of a list of all chat messages
+     */
+    CompletableFuture<List<ChatMessage>> findAllAsync();
+
+    /**
+     * Asynchronous version of {@link #save(ChatMessage)}. The future fails if the chat message could not be saved.
+     *
+     * @param chatMessage Chat message to save
+     * @return Future of the saved chat message
+     */
+    CompletableFuture<ChatMessage> saveAsync(ChatMessage chatMessage);
 }
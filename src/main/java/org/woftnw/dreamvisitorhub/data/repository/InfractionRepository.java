@@ -4,6 +4,7 @@ import org.woftnw.dreamvisitorhub.data.type.Infraction;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Repository interface for Infraction data operations
@@ -40,6 +41,14 @@ public interface InfractionRepository {
      */
     List<Infraction> findAll();
 
+    /**
+     * Pass every infraction to a consumer as it is read, without holding all infractions in memory
+     *
+     * @param consumer Called with each infraction
+     * @return true if all infractions were read, false if reading failed part way
+     */
+    boolean streamAll(Consumer<Infraction> consumer);
+
     /**
      * Save an infraction (create or update)
      *
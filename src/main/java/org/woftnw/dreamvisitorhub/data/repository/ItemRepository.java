@@ -2,8 +2,11 @@ package org.woftnw.dreamvisitorhub.data.repository;
 
 import org.woftnw.dreamvisitorhub.data.type.Item;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Repository interface for Item data operations
@@ -32,6 +35,14 @@ public interface ItemRepository {
      */
     List<Item> findAll();
 
+    /**
+     * Find several items by their PocketBase IDs at once
+     *
+     * @param ids PocketBase record IDs
+     * @return Map from record ID to item, without the IDs that were not found
+     */
+    Map<String, Item> findAllByIds(Collection<String> ids);
+
     /**
      * Get all enabled items
      *
@@ -61,6 +72,14 @@ public interface ItemRepository {
      */
     void deleteById(String id);
 
+    /**
+     * Register a listener that is told about every item saved or deleted through this repository. Listeners are
+     * called on the thread that completed the change and must not block.
+     *
+     * @param listener Listener to add
+     */
+    void addListener(Listener listener);
+
     /**
      * Get all items matching a filter
      *
@@ -68,4 +87,58 @@ public interface ItemRepository {
      * @return List of items matching the filter
      */
     List<Item> getAllWhere(String filter);
+
+    // Asynchronous variants. These do not block the calling thread and complete with an empty Optional or list where
+    // their blocking counterparts would return one.
+
+    /**
+     * Asynchronous version of {@link #findById(String)}
+     *
+     * @param id PocketBase record ID
+     * @return Future of an Optional containing the item if found
+     */
+    CompletableFuture<Optional<Item>> findByIdAsync(String id);
+
+    /**
+     * Asynchronous version of {@link #findByName(String)}
+     *
+     * @param name Item name
+     * @return Future of an Optional containing the item if found
+     */
+    CompletableFuture<Optional<Item>> findByNameAsync(String name);
+
+    /**
+     * Asynchronous version of {@link #findAll()}
+     *
+     * @return Future of a list of all items
+     */
+    CompletableFuture<List<Item>> findAllAsync();
+
+    /**
+     * Asynchronous version of {@link #save(Item)}. The future fails if the item could not be saved.
+     *
+     * @param item Item to save
+     * @return Future of the saved item
+     */
+    CompletableFuture<Item> saveAsync(Item item);
+
+    /**
+     * Receives changes made through an ItemRepository
+     */
+    interface Listener {
+        /**
+         * Called after an item was created or updated
+         *
+         * @param item The item as saved
+         */
+        void onSaved(Item item);
+
+        /**
+         * Called after an item was deleted
+         *
+         * @param id PocketBase ID of the deleted item
+         */
+        default void onDeleted(String id) {
+        }
+    }
 }
@@ -85,10 +85,10 @@ public record PocketBaseAltRepository(PocketBase pocketBase, UserRepository user
     @Override
     public List<Alt> findAll() {
         try {
-            List<JsonObject> records = pocketBase.getFullList(COLLECTION_NAME, 500, null, null, null, null);
-            return records.stream()
-                    .map(this::mapToAlt)
-                    .collect(Collectors.toList());
+            // Map records as their pages arrive instead of collecting the raw records first
+            List<Alt> alts = new ArrayList<>();
+            pocketBase.getFullList(COLLECTION_NAME, 500, null, null, null, null, record -> alts.add(mapToAlt(record)));
+            return alts;
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, "Error retrieving all alts", e);
             return Collections.emptyList();
@@ -101,7 +101,9 @@ public record PocketBaseAltRepository(PocketBase pocketBase, UserRepository user
             JsonObject altData = mapToJsonObject(alt);
 
             if (alt.getId() != null && !alt.getId().isEmpty()) {
-                // Update existing alt
+                // Update existing alt, sending only the fields changed since it was loaded
+                altData.keySet().retainAll(alt.getDirtyFields());
+                if (altData.isEmpty()) return alt;
                 JsonObject updatedRecord = pocketBase.updateRecord(COLLECTION_NAME, alt.getId(), altData, null, null);
                 return mapToAlt(updatedRecord);
             } else {
@@ -182,6 +184,7 @@ public record PocketBaseAltRepository(PocketBase pocketBase, UserRepository user
             userRepository.findById(parentId).ifPresent(alt::setCachedParent);
         }
 
+        alt.clearDirty();
         return alt;
     }
 
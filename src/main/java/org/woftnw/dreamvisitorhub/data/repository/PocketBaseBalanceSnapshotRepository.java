@@ -0,0 +1,98 @@
+package org.woftnw.dreamvisitorhub.data.repository;
+
+import com.google.gson.JsonObject;
+import org.jetbrains.annotations.NotNull;
+import org.woftnw.dreamvisitorhub.data.type.BalanceSnapshot;
+import org.woftnw.dreamvisitorhub.pb.PocketBase;
+import org.woftnw.dreamvisitorhub.pb.PocketBaseUtils;
+
+import java.io.IOException;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * PocketBase implementation of the BalanceSnapshotRepository interface
+ */
+public record PocketBaseBalanceSnapshotRepository(PocketBase pocketBase) implements BalanceSnapshotRepository {
+    private static final Logger LOGGER = Logger.getLogger(PocketBaseBalanceSnapshotRepository.class.getName());
+    private static final String COLLECTION_NAME = "balance_snapshots";
+
+    /**
+     * Constructor for PocketBaseBalanceSnapshotRepository
+     *
+     * @param pocketBase The PocketBase client to use
+     */
+    public PocketBaseBalanceSnapshotRepository {
+    }
+
+    @Override
+    public Optional<BalanceSnapshot> findLatestByUser(String userId) {
+        try {
+            String filter = "user = '" + userId + "'";
+            JsonObject record = pocketBase.getFirstListItem(COLLECTION_NAME, filter, "-through", null, null);
+            return Optional.of(mapToBalanceSnapshot(record));
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "No balance snapshot found for user: " + userId);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public BalanceSnapshot save(BalanceSnapshot snapshot) {
+        try {
+            JsonObject newRecord = pocketBase.createRecord(COLLECTION_NAME, mapToJsonObject(snapshot), null, null);
+            return mapToBalanceSnapshot(newRecord);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error saving balance snapshot for user: " + snapshot.getUser(), e);
+            throw new RuntimeException("Failed to save balance snapshot", e);
+        }
+    }
+
+    /**
+     * Convert a JsonObject from PocketBase to a BalanceSnapshot object
+     *
+     * @param json JsonObject from PocketBase API
+     * @return Mapped BalanceSnapshot object
+     */
+    @NotNull
+    private BalanceSnapshot mapToBalanceSnapshot(JsonObject json) {
+        BalanceSnapshot snapshot = new BalanceSnapshot();
+
+        snapshot.setId(PocketBaseUtils.getString(json, "id"));
+        snapshot.setCollectionId(PocketBaseUtils.getString(json, "collectionId"));
+        snapshot.setCollectionName(PocketBaseUtils.getString(json, "collectionName"));
+
+        snapshot.setUser(PocketBaseUtils.getString(json, "user"));
+        snapshot.setBalance(PocketBaseUtils.getDouble(json, "balance"));
+        snapshot.setTransactionCount(PocketBaseUtils.getInteger(json, "transaction_count"));
+        snapshot.setThrough(PocketBaseUtils.getOffsetDateTime(json, "through"));
+
+        snapshot.setCreated(PocketBaseUtils.getOffsetDateTime(json, "created"));
+
+        return snapshot;
+    }
+
+    /**
+     * Convert a BalanceSnapshot object to a JsonObject for PocketBase
+     *
+     * @param snapshot BalanceSnapshot object to convert
+     * @return JsonObject for PocketBase API
+     */
+    @NotNull
+    private JsonObject mapToJsonObject(@NotNull BalanceSnapshot snapshot) {
+        JsonObject json = new JsonObject();
+
+        if (snapshot.getUser() != null)
+            json.addProperty("user", snapshot.getUser());
+        if (snapshot.getBalance() != null)
+            json.addProperty("balance", snapshot.getBalance());
+        if (snapshot.getTransactionCount() != null)
+            json.addProperty("transaction_count", snapshot.getTransactionCount());
+        if (snapshot.getThrough() != null)
+            json.addProperty("through", snapshot.getThrough().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+
+        return json;
+    }
+}
@@ -8,6 +8,8 @@ import org.woftnw.dreamvisitorhub.pb.PocketBaseUtils;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -41,10 +43,10 @@ public record PocketBaseChatMessageRepository(PocketBase pocketBase) implements
     @Override
     public List<ChatMessage> findAll() {
         try {
-            List<JsonObject> records = pocketBase.getFullList(COLLECTION_NAME, 500, null, null, null, null);
-            return records.stream()
-                    .map(this::mapToChatMessage)
-                    .collect(Collectors.toList());
+            // Map records as their pages arrive instead of collecting the raw records first
+            List<ChatMessage> chatMessages = new ArrayList<>();
+            pocketBase.getFullList(COLLECTION_NAME, 500, null, null, null, null, record -> chatMessages.add(mapToChatMessage(record)));
+            return chatMessages;
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, "Error retrieving all users", e);
             return Collections.emptyList();
@@ -89,6 +91,22 @@ public record PocketBaseChatMessageRepository(PocketBase pocketBase) implements
         }
     }
 
+    @Override
+    public void deleteAll(@NotNull Collection<ChatMessage> chatMessages) {
+        List<PocketBase.BatchRequest> requests = chatMessages.stream()
+                .filter(chatMessage -> chatMessage.getId() != null)
+                .map(chatMessage -> PocketBase.BatchRequest.delete(COLLECTION_NAME, chatMessage.getId()))
+                .collect(Collectors.toList());
+        if (requests.isEmpty()) return;
+
+        try {
+            pocketBase.batch(requests);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error deleting " + requests.size() + " chat messages", e);
+            throw new RuntimeException("Failed to delete chat messages", e);
+        }
+    }
+
     /**
      * Convert a JsonObject from PocketBase to a User object
      *
@@ -158,4 +176,57 @@ public record PocketBaseChatMessageRepository(PocketBase pocketBase) implements
             return Collections.emptyList();
         }
     }
+
+    @Override
+    public void subscribe(Consumer<ChatMessage> listener) {
+        pocketBase.realtime().subscribe(COLLECTION_NAME + "/*", event -> {
+            if (Objects.equals(event.action(), "create") && event.record() != null) {
+                listener.accept(mapToChatMessage(event.record()));
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Optional<ChatMessage>> findByIdAsync(String id) {
+        return pocketBase.getRecordAsync(COLLECTION_NAME, id, null, null)
+                .thenApply(record -> Optional.of(mapToChatMessage(record)))
+                .exceptionally(e -> {
+                    LOGGER.log(Level.WARNING, "Error finding chat message by ID: " + id, PocketBase.unwrap(e));
+                    return Optional.empty();
+                });
+    }
+
+    @Override
+    public CompletableFuture<List<ChatMessage>> findAllAsync() {
+        return pocketBase.getFullListAsync(COLLECTION_NAME, 500, null, null, null, null)
+                .thenApply(records -> records.stream()
+                        .map(this::mapToChatMessage)
+                        .collect(Collectors.toList()))
+                .exceptionally(e -> {
+                    LOGGER.log(Level.WARNING, "Error retrieving all chat messages", PocketBase.unwrap(e));
+                    return Collections.emptyList();
+                });
+    }
+
+    @Override
+    public CompletableFuture<ChatMessage> saveAsync(ChatMessage chatMessage) {
+        JsonObject chatMessageData = mapToJsonObject(chatMessage);
+
+        CompletableFuture<JsonObject> request;
+        if (chatMessage.getId() != null && !chatMessage.getId().isEmpty()) {
+            // Update existing chatMessage
+            request = pocketBase.updateRecordAsync(COLLECTION_NAME, chatMessage.getId(), chatMessageData, null, null);
+        } else {
+            // Create new chatMessage
+            request = pocketBase.createRecordAsync(COLLECTION_NAME, chatMessageData, null, null);
+        }
+
+        return request.handle((record, e) -> {
+            if (e != null) {
+                LOGGER.log(Level.SEVERE, "Error saving chatMessage: " + chatMessage.getMessage(), PocketBase.unwrap(e));
+                throw new RuntimeException("Failed to save chatMessage", PocketBase.unwrap(e));
+            }
+            return mapToChatMessage(record);
+        });
+    }
 }
@@ -9,6 +9,7 @@ import java.io.IOException;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -85,14 +86,19 @@ public record PocketBaseInfractionRepository(PocketBase pocketBase,
 
     @Override
     public List<Infraction> findAll() {
+        List<Infraction> infractions = new ArrayList<>();
+        if (!streamAll(infractions::add)) return Collections.emptyList();
+        return infractions;
+    }
+
+    @Override
+    public boolean streamAll(Consumer<Infraction> consumer) {
         try {
-            List<JsonObject> records = pocketBase.getFullList(COLLECTION_NAME, 500, null, null, null, null);
-            return records.stream()
-                    .map(this::mapToInfraction)
-                    .collect(Collectors.toList());
+            pocketBase.streamFullList(COLLECTION_NAME, 500, null, null, null, null, this::mapToInfraction, consumer);
+            return true;
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, "Error retrieving all infractions", e);
-            return Collections.emptyList();
+            return false;
         }
     }
 
@@ -102,7 +108,9 @@ public record PocketBaseInfractionRepository(PocketBase pocketBase,
             JsonObject infractionData = mapToJsonObject(infraction);
 
             if (infraction.getId() != null && !infraction.getId().isEmpty()) {
-                // Update existing infraction
+                // Update existing infraction, sending only the fields changed since it was loaded
+                infractionData.keySet().retainAll(infraction.getDirtyFields());
+                if (infractionData.isEmpty()) return infraction;
                 JsonObject updatedRecord = pocketBase.updateRecord(COLLECTION_NAME, infraction.getId(), infractionData, null,
                         null);
                 return mapToInfraction(updatedRecord);
@@ -156,10 +164,7 @@ public record PocketBaseInfractionRepository(PocketBase pocketBase,
                 .collect(Collectors.toSet());
 
         // Fetch all users in one go
-        Map<String, DVUser> userMap = new HashMap<>();
-        for (String userId : userIds) {
-            userRepository.findById(userId).ifPresent(user -> userMap.put(userId, user));
-        }
+        Map<String, DVUser> userMap = userRepository.findAllByIds(userIds);
 
         // Set cached users
         for (Infraction infraction : infractions) {
@@ -193,6 +198,7 @@ public record PocketBaseInfractionRepository(PocketBase pocketBase,
         infraction.setCreated(getOffsetDateTimeOrNull(json, "created"));
         infraction.setUpdated(getOffsetDateTimeOrNull(json, "updated"));
 
+        infraction.clearDirty();
         return infraction;
     }
 
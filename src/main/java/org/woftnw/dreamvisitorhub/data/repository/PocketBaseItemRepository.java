@@ -8,9 +8,15 @@ import org.woftnw.dreamvisitorhub.pb.PocketBase;
 import java.io.IOException;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -18,16 +24,19 @@ import java.util.stream.Collectors;
 /**
  * PocketBase implementation of the ItemRepository interface
  */
-public record PocketBaseItemRepository(PocketBase pocketBase) implements ItemRepository {
+public class PocketBaseItemRepository implements ItemRepository {
     private static final Logger LOGGER = Logger.getLogger(PocketBaseItemRepository.class.getName());
     private static final String COLLECTION_NAME = "items";
+    private final PocketBase pocketBase;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
 
     /**
      * Constructor for PocketBaseItemRepository
      *
      * @param pocketBase The PocketBase client to use
      */
-    public PocketBaseItemRepository {
+    public PocketBaseItemRepository(PocketBase pocketBase) {
+        this.pocketBase = pocketBase;
     }
 
     @Override
@@ -56,16 +65,32 @@ public record PocketBaseItemRepository(PocketBase pocketBase) implements ItemRep
     @Override
     public List<Item> findAll() {
         try {
-            List<JsonObject> records = pocketBase.getFullList(COLLECTION_NAME, 500, null, null, null, null);
-            return records.stream()
-                    .map(this::mapToItem)
-                    .collect(Collectors.toList());
+            // Map records as their pages arrive instead of collecting the raw records first
+            List<Item> items = new ArrayList<>();
+            pocketBase.getFullList(COLLECTION_NAME, 500, null, null, null, null, record -> items.add(mapToItem(record)));
+            return items;
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, "Error retrieving all items", e);
             return Collections.emptyList();
         }
     }
 
+    @Override
+    public Map<String, Item> findAllByIds(Collection<String> ids) {
+        if (ids.isEmpty()) return Collections.emptyMap();
+        try {
+            Map<String, Item> items = new HashMap<>();
+            for (JsonObject record : pocketBase.getRecordsByIds(COLLECTION_NAME, ids, null, null)) {
+                Item item = mapToItem(record);
+                items.put(item.getId(), item);
+            }
+            return items;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error finding items by IDs: " + ids, e);
+            return Collections.emptyMap();
+        }
+    }
+
     @Override
     public List<Item> findAllEnabled() {
         try {
@@ -86,13 +111,15 @@ public record PocketBaseItemRepository(PocketBase pocketBase) implements ItemRep
             JsonObject itemData = mapToJsonObject(item);
 
             if (item.getId() != null && !item.getId().isEmpty()) {
-                // Update existing item
+                // Update existing item, sending only the fields changed since it was loaded
+                itemData.keySet().retainAll(item.getDirtyFields());
+                if (itemData.isEmpty()) return item;
                 JsonObject updatedRecord = pocketBase.updateRecord(COLLECTION_NAME, item.getId(), itemData, null, null);
-                return mapToItem(updatedRecord);
+                return notifySaved(mapToItem(updatedRecord));
             } else {
                 // Create new item
                 JsonObject newRecord = pocketBase.createRecord(COLLECTION_NAME, itemData, null, null);
-                return mapToItem(newRecord);
+                return notifySaved(mapToItem(newRecord));
             }
         } catch (IOException e) {
             LOGGER.log(Level.SEVERE, "Error saving item: " + item.getName(), e);
@@ -115,6 +142,35 @@ public record PocketBaseItemRepository(PocketBase pocketBase) implements ItemRep
             LOGGER.log(Level.SEVERE, "Error deleting item with ID: " + id, e);
             throw new RuntimeException("Failed to delete item", e);
         }
+        for (Listener listener : listeners) {
+            try {
+                listener.onDeleted(id);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Item listener failed", e);
+            }
+        }
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Tell the listeners about a saved item
+     *
+     * @param item The item as saved
+     * @return the same item
+     */
+    private Item notifySaved(Item item) {
+        for (Listener listener : listeners) {
+            try {
+                listener.onSaved(item);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Item listener failed", e);
+            }
+        }
+        return item;
     }
 
     @Override
@@ -164,6 +220,7 @@ public record PocketBaseItemRepository(PocketBase pocketBase) implements ItemRep
         item.setCreated(getOffsetDateTimeOrNull(json, "created"));
         item.setUpdated(getOffsetDateTimeOrNull(json, "updated"));
 
+        item.clearDirty();
         return item;
     }
 
@@ -319,4 +376,61 @@ public record PocketBaseItemRepository(PocketBase pocketBase) implements ItemRep
             return element.toString();
         }
     }
+
+    @Override
+    public CompletableFuture<Optional<Item>> findByIdAsync(String id) {
+        return pocketBase.getRecordAsync(COLLECTION_NAME, id, null, null)
+                .thenApply(record -> Optional.of(mapToItem(record)))
+                .exceptionally(e -> {
+                    LOGGER.log(Level.WARNING, "Error finding item by ID: " + id, PocketBase.unwrap(e));
+                    return Optional.empty();
+                });
+    }
+
+    @Override
+    public CompletableFuture<Optional<Item>> findByNameAsync(String name) {
+        String filter = "name = '" + name + "'";
+        return pocketBase.getFirstListItemAsync(COLLECTION_NAME, filter, null, null, null)
+                .thenApply(record -> Optional.of(mapToItem(record)))
+                .exceptionally(e -> {
+                    LOGGER.log(Level.FINE, "No item found with name: " + name);
+                    return Optional.empty();
+                });
+    }
+
+    @Override
+    public CompletableFuture<List<Item>> findAllAsync() {
+        return pocketBase.getFullListAsync(COLLECTION_NAME, 500, null, null, null, null)
+                .thenApply(records -> records.stream()
+                        .map(this::mapToItem)
+                        .collect(Collectors.toList()))
+                .exceptionally(e -> {
+                    LOGGER.log(Level.WARNING, "Error retrieving all items", PocketBase.unwrap(e));
+                    return Collections.emptyList();
+                });
+    }
+
+    @Override
+    public CompletableFuture<Item> saveAsync(Item item) {
+        JsonObject itemData = mapToJsonObject(item);
+
+        CompletableFuture<JsonObject> request;
+        if (item.getId() != null && !item.getId().isEmpty()) {
+            // Update existing item, sending only the fields changed since it was loaded
+            itemData.keySet().retainAll(item.getDirtyFields());
+            if (itemData.isEmpty()) return CompletableFuture.completedFuture(item);
+            request = pocketBase.updateRecordAsync(COLLECTION_NAME, item.getId(), itemData, null, null);
+        } else {
+            // Create new item
+            request = pocketBase.createRecordAsync(COLLECTION_NAME, itemData, null, null);
+        }
+
+        return request.handle((record, e) -> {
+            if (e != null) {
+                LOGGER.log(Level.SEVERE, "Error saving item: " + item.getName(), PocketBase.unwrap(e));
+                throw new RuntimeException("Failed to save item", PocketBase.unwrap(e));
+            }
+            return notifySaved(mapToItem(record));
+        });
+    }
 }
@@ -0,0 +1,168 @@
+package org.woftnw.dreamvisitorhub.data.repository;
+
+import com.google.gson.JsonObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.woftnw.dreamvisitorhub.data.type.Transaction;
+import org.woftnw.dreamvisitorhub.pb.PocketBase;
+import org.woftnw.dreamvisitorhub.pb.PocketBaseUtils;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * PocketBase implementation of the TransactionRepository interface
+ */
+public record PocketBaseTransactionRepository(PocketBase pocketBase) implements TransactionRepository {
+    private static final Logger LOGGER = Logger.getLogger(PocketBaseTransactionRepository.class.getName());
+    private static final String COLLECTION_NAME = "economy_transactions";
+    /**
+     * The format PocketBase stores dates in, which filters compare against
+     */
+    private static final DateTimeFormatter FILTER_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS'Z'");
+    /**
+     * Characters allowed in a key that is put into a filter. Keys are random UUIDs.
+     */
+    private static final Pattern KEY_PATTERN = Pattern.compile("[A-Za-z0-9-]+");
+
+    /**
+     * Constructor for PocketBaseTransactionRepository
+     *
+     * @param pocketBase The PocketBase client to use
+     */
+    public PocketBaseTransactionRepository {
+    }
+
+    @Override
+    public void saveAll(@NotNull Collection<Transaction> transactions) {
+        List<PocketBase.BatchRequest> requests = transactions.stream()
+                .map(transaction -> PocketBase.BatchRequest.create(COLLECTION_NAME, mapToJsonObject(transaction)))
+                .collect(Collectors.toList());
+        if (requests.isEmpty()) return;
+
+        try {
+            pocketBase.batch(requests);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error saving " + requests.size() + " transactions", e);
+            throw new RuntimeException("Failed to save transactions", e);
+        }
+    }
+
+    @Override
+    public List<Transaction> findByUser(String userId) {
+        return findByUserBetween(userId, null, null);
+    }
+
+    @Override
+    public List<Transaction> findByUserBetween(String userId, @Nullable OffsetDateTime after,
+                                               @Nullable OffsetDateTime through) {
+        String filter = "user = '" + userId + "'";
+        if (after != null) filter += " && created > '" + formatFilterDateTime(after) + "'";
+        if (through != null) filter += " && created <= '" + formatFilterDateTime(through) + "'";
+        return getAllWhere(filter);
+    }
+
+    @Override
+    public List<Transaction> getAllWhere(String filter) {
+        try {
+            List<Transaction> transactions = new ArrayList<>();
+            pocketBase.getFullList(COLLECTION_NAME, 500, "created", filter, null, null,
+                    record -> transactions.add(mapToTransaction(record)));
+            return transactions;
+        } catch (IOException e) {
+            // An empty list would look like a user without transactions, so a failed lookup must not return one
+            LOGGER.log(Level.WARNING, "Error retrieving transactions with filter: " + filter, e);
+            throw new RuntimeException("Failed to retrieve transactions", e);
+        }
+    }
+
+    @Override
+    public Set<String> findExistingKeys(@NotNull Collection<String> keys) {
+        if (keys.isEmpty()) return Collections.emptySet();
+        for (String key : keys) {
+            if (key == null || !KEY_PATTERN.matcher(key).matches()) {
+                throw new IllegalArgumentException("Invalid transaction key: " + key);
+            }
+        }
+
+        String filter = keys.stream().map(key -> "key = '" + key + "'").collect(Collectors.joining(" || "));
+        try {
+            Set<String> existing = new HashSet<>();
+            pocketBase.getFullList(COLLECTION_NAME, 500, null, filter, null, "key",
+                    record -> existing.add(PocketBaseUtils.getString(record, "key")));
+            return existing;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error looking up " + keys.size() + " transaction keys", e);
+            throw new RuntimeException("Failed to look up transaction keys", e);
+        }
+    }
+
+    /**
+     * Convert a JsonObject from PocketBase to a Transaction object
+     *
+     * @param json JsonObject from PocketBase API
+     * @return Mapped Transaction object
+     */
+    @NotNull
+    private Transaction mapToTransaction(JsonObject json) {
+        Transaction transaction = new Transaction();
+
+        transaction.setId(PocketBaseUtils.getString(json, "id"));
+        transaction.setCollectionId(PocketBaseUtils.getString(json, "collectionId"));
+        transaction.setCollectionName(PocketBaseUtils.getString(json, "collectionName"));
+
+        transaction.setKey(PocketBaseUtils.getString(json, "key"));
+        transaction.setUser(PocketBaseUtils.getString(json, "user"));
+        transaction.setAmount(PocketBaseUtils.getDouble(json, "amount"));
+        transaction.setReference(PocketBaseUtils.getString(json, "reference"));
+
+        String type = PocketBaseUtils.getString(json, "type");
+        if (type != null) {
+            try {
+                transaction.setType(Transaction.Type.valueOf(type.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                LOGGER.warning("Unknown transaction type: " + type);
+            }
+        }
+
+        transaction.setCreated(PocketBaseUtils.getOffsetDateTime(json, "created"));
+
+        return transaction;
+    }
+
+    /**
+     * Convert a Transaction object to a JsonObject for PocketBase
+     *
+     * @param transaction Transaction object to convert
+     * @return JsonObject for PocketBase API
+     */
+    @NotNull
+    private JsonObject mapToJsonObject(@NotNull Transaction transaction) {
+        JsonObject json = new JsonObject();
+
+        if (transaction.getKey() != null)
+            json.addProperty("key", transaction.getKey());
+        if (transaction.getUser() != null)
+            json.addProperty("user", transaction.getUser());
+        if (transaction.getType() != null)
+            json.addProperty("type", transaction.getType().toString().toLowerCase());
+        if (transaction.getAmount() != null)
+            json.addProperty("amount", transaction.getAmount());
+        if (transaction.getReference() != null)
+            json.addProperty("reference", transaction.getReference());
+
+        return json;
+    }
+
+    @NotNull
+    private static String formatFilterDateTime(@NotNull OffsetDateTime dateTime) {
+        return dateTime.withOffsetSameInstant(ZoneOffset.UTC).format(FILTER_DATE_FORMAT);
+    }
+}
@@ -10,6 +10,7 @@ import java.io.IOException;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -88,14 +89,19 @@ public record PocketBaseUserInventoryRepository(PocketBase pocketBase, UserRepos
 
     @Override
     public List<UserInventory> findAll() {
+        List<UserInventory> entries = new ArrayList<>();
+        if (!streamAll(entries::add)) return Collections.emptyList();
+        return entries;
+    }
+
+    @Override
+    public boolean streamAll(Consumer<UserInventory> consumer) {
         try {
-            List<JsonObject> records = pocketBase.getFullList(COLLECTION_NAME, 500, null, null, null, null);
-            return records.stream()
-                    .map(this::mapToUserInventory)
-                    .collect(Collectors.toList());
+            pocketBase.streamFullList(COLLECTION_NAME, 500, null, null, null, null, this::mapToUserInventory, consumer);
+            return true;
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, "Error retrieving all user inventory entries", e);
-            return Collections.emptyList();
+            return false;
         }
     }
 
@@ -105,7 +111,9 @@ public record PocketBaseUserInventoryRepository(PocketBase pocketBase, UserRepos
             JsonObject inventoryData = mapToJsonObject(userInventory);
 
             if (userInventory.getId() != null && !userInventory.getId().isEmpty()) {
-                // Update existing inventory entry
+                // Update existing inventory entry, sending only the fields changed since it was loaded
+                inventoryData.keySet().retainAll(userInventory.getDirtyFields());
+                if (inventoryData.isEmpty()) return userInventory;
                 JsonObject updatedRecord = pocketBase.updateRecord(COLLECTION_NAME, userInventory.getId(), inventoryData, null,
                         null);
                 return mapToUserInventory(updatedRecord);
@@ -159,10 +167,7 @@ public record PocketBaseUserInventoryRepository(PocketBase pocketBase, UserRepos
                 .collect(Collectors.toSet());
 
         // Fetch all items in one go
-        Map<String, Item> itemMap = new HashMap<>();
-        for (String itemId : itemIds) {
-            itemRepository.findById(itemId).ifPresent(item -> itemMap.put(itemId, item));
-        }
+        Map<String, Item> itemMap = itemRepository.findAllByIds(itemIds);
 
         // Set cached items
         for (UserInventory entry : inventoryEntries) {
@@ -183,10 +188,7 @@ public record PocketBaseUserInventoryRepository(PocketBase pocketBase, UserRepos
                 .collect(Collectors.toSet());
 
         // Fetch all users in one go
-        Map<String, DVUser> userMap = new HashMap<>();
-        for (String userId : userIds) {
-            userRepository.findById(userId).ifPresent(user -> userMap.put(userId, user));
-        }
+        Map<String, DVUser> userMap = userRepository.findAllByIds(userIds);
 
         // Set cached users
         for (UserInventory entry : inventoryEntries) {
@@ -218,6 +220,7 @@ public record PocketBaseUserInventoryRepository(PocketBase pocketBase, UserRepos
         inventory.setCreated(getOffsetDateTimeOrNull(json, "created"));
         inventory.setUpdated(getOffsetDateTimeOrNull(json, "updated"));
 
+        inventory.clearDirty();
         return inventory;
     }
 
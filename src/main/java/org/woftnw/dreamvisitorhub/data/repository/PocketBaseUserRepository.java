@@ -10,9 +10,13 @@ import org.woftnw.dreamvisitorhub.util.Formatter;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -22,17 +26,33 @@ import java.util.stream.Collectors;
  */
 public class PocketBaseUserRepository implements UserRepository {
     private static final Logger LOGGER = Logger.getLogger(PocketBaseUserRepository.class.getName());
-    private static final String COLLECTION_NAME = "users";
+    static final String COLLECTION_NAME = "users";
+    static final String DAILY_CLAIMS_COLLECTION_NAME = "daily_claims";
     private final PocketBase pocketBase;
+    private final boolean dailyClaimGuard;
     private final Gson gson;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
 
     /**
-     * Constructor for PocketBaseUserRepository
+     * Constructor for PocketBaseUserRepository. Daily claims are not checked by PocketBase.
      *
      * @param pocketBase The PocketBase client to use
      */
     public PocketBaseUserRepository(PocketBase pocketBase) {
+        this(pocketBase, false);
+    }
+
+    /**
+     * Constructor for PocketBaseUserRepository
+     *
+     * @param pocketBase      The PocketBase client to use
+     * @param dailyClaimGuard Whether daily claims are recorded in the daily_claims collection so that PocketBase
+     *                        rejects a second claim on the same day. The collection must exist with a unique index on
+     *                        discord_id and day.
+     */
+    public PocketBaseUserRepository(PocketBase pocketBase, boolean dailyClaimGuard) {
         this.pocketBase = pocketBase;
+        this.dailyClaimGuard = dailyClaimGuard;
         this.gson = new Gson();
     }
 
@@ -117,14 +137,35 @@ public class PocketBaseUserRepository implements UserRepository {
 
     @Override
     public List<DVUser> findAll() {
+        List<DVUser> users = new ArrayList<>();
+        if (!streamAll(users::add)) return Collections.emptyList();
+        return users;
+    }
+
+    @Override
+    public boolean streamAll(Consumer<DVUser> consumer) {
         try {
-            List<JsonObject> records = pocketBase.getFullList(COLLECTION_NAME, 500, null, null, null, null);
-            return records.stream()
-                    .map(this::mapToUser)
-                    .collect(Collectors.toList());
+            pocketBase.streamFullList(COLLECTION_NAME, 500, null, null, null, null, this::mapToUser, consumer);
+            return true;
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, "Error retrieving all users", e);
-            return Collections.emptyList();
+            return false;
+        }
+    }
+
+    @Override
+    public Map<String, DVUser> findAllByIds(Collection<String> ids) {
+        if (ids.isEmpty()) return Collections.emptyMap();
+        try {
+            Map<String, DVUser> users = new HashMap<>();
+            for (JsonObject record : pocketBase.getRecordsByIds(COLLECTION_NAME, ids, null, null)) {
+                DVUser user = mapToUser(record);
+                users.put(user.getId(), user);
+            }
+            return users;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error finding users by IDs: " + ids, e);
+            return Collections.emptyMap();
         }
     }
 
@@ -134,13 +175,15 @@ public class PocketBaseUserRepository implements UserRepository {
             JsonObject userData = mapToJsonObject(user);
 
             if (user.getId() != null && !user.getId().isEmpty()) {
-                // Update existing user
+                // Update existing user, sending only the fields changed since it was loaded
+                userData.keySet().retainAll(user.getDirtyFields());
+                if (userData.isEmpty()) return user;
                 JsonObject updatedRecord = pocketBase.updateRecord(COLLECTION_NAME, user.getId(), userData, null, null);
-                return mapToUser(updatedRecord);
+                return notifySaved(mapToUser(updatedRecord));
             } else {
                 // Create new user
                 JsonObject newRecord = pocketBase.createRecord(COLLECTION_NAME, userData, null, null);
-                return mapToUser(newRecord);
+                return notifySaved(mapToUser(newRecord));
             }
         } catch (IOException e) {
             LOGGER.log(Level.SEVERE, "Error saving user: " + user.getMinecraftUsername(), e);
@@ -148,6 +191,24 @@ public class PocketBaseUserRepository implements UserRepository {
         }
     }
 
+    @Override
+    public DVUser adjustBalance(DVUser user, double amount) {
+        try {
+            JsonObject userData = balanceChangeData(user, amount);
+
+            if (user.getId() != null && !user.getId().isEmpty()) {
+                JsonObject updatedRecord = pocketBase.updateRecord(COLLECTION_NAME, user.getId(), userData, null, null);
+                return notifySaved(mapToUser(updatedRecord));
+            } else {
+                JsonObject newRecord = pocketBase.createRecord(COLLECTION_NAME, userData, null, null);
+                return notifySaved(mapToUser(newRecord));
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error changing balance of user: " + user.getId(), e);
+            throw new RuntimeException("Failed to change balance", e);
+        }
+    }
+
     @Override
     public void delete(DVUser user) {
         if (user.getId() != null) {
@@ -163,6 +224,35 @@ public class PocketBaseUserRepository implements UserRepository {
             LOGGER.log(Level.SEVERE, "Error deleting user with ID: " + id, e);
             throw new RuntimeException("Failed to delete user", e);
         }
+        for (Listener listener : listeners) {
+            try {
+                listener.onDeleted(id);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "User listener failed", e);
+            }
+        }
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Tell the listeners about a saved user
+     *
+     * @param user The user as saved
+     * @return the same user
+     */
+    private DVUser notifySaved(DVUser user) {
+        for (Listener listener : listeners) {
+            try {
+                listener.onSaved(user);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "User listener failed", e);
+            }
+        }
+        return user;
     }
 
     /**
@@ -171,7 +261,7 @@ public class PocketBaseUserRepository implements UserRepository {
      * @param json JsonObject from PocketBase API
      * @return Mapped User object
      */
-    private DVUser mapToUser(JsonObject json) {
+    DVUser mapToUser(JsonObject json) {
         DVUser user = new DVUser();
 
         user.setId(getStringOrNull(json, "id"));
@@ -219,12 +309,40 @@ public class PocketBaseUserRepository implements UserRepository {
         user.setLastWork(getOffsetDateTimeOrNull(json, "last_work"));
         user.setLastPlayed(getOffsetDateTimeOrNull(json, "last_played"));
         user.setLastDaily(getOffsetDateTimeOrNull(json, "last_daily"));
+        user.setLastDailyInteraction(getStringOrNull(json, "last_daily_interaction"));
         user.setCreated(getOffsetDateTimeOrNull(json, "created"));
         user.setUpdated(getOffsetDateTimeOrNull(json, "updated"));
 
+        user.clearDirty();
         return user;
     }
 
+    /**
+     * Build the request body for {@link #adjustBalance(DVUser, double)}
+     *
+     * @param user   User to change
+     * @param amount Amount to add, negative to subtract
+     * @return JsonObject for PocketBase API
+     */
+    private JsonObject balanceChangeData(DVUser user, double amount) {
+        JsonObject json = mapToJsonObject(user);
+        json.remove("balance");
+
+        if (user.getId() == null || user.getId().isEmpty()) {
+            json.addProperty("balance", amount);
+            return json;
+        }
+
+        json.keySet().retainAll(user.getDirtyFields());
+        // The modifier is applied by PocketBase to the value it has, not the one we loaded
+        if (amount < 0) {
+            json.addProperty("balance-", -amount);
+        } else {
+            json.addProperty("balance+", amount);
+        }
+        return json;
+    }
+
     /**
      * Convert a User object to a JsonObject for PocketBase
      *
@@ -267,6 +385,8 @@ public class PocketBaseUserRepository implements UserRepository {
             json.addProperty("last_work", formatDateTime(user.getLastWork()));
         if (user.getLastDaily() != null)
             json.addProperty("last_daily", formatDateTime(user.getLastDaily()));
+        if (user.getLastDailyInteraction() != null)
+            json.addProperty("last_daily_interaction", user.getLastDailyInteraction());
 
         // Add relation fields (these need to be handled separately based on
         // PocketBase's expectations)
@@ -361,4 +481,161 @@ public class PocketBaseUserRepository implements UserRepository {
             return Collections.emptyList();
         }
     }
+
+    @Override
+    public CompletableFuture<Optional<DVUser>> findByIdAsync(String id) {
+        return pocketBase.getRecordAsync(COLLECTION_NAME, id, null, null)
+                .thenApply(record -> Optional.of(mapToUser(record)))
+                .exceptionally(e -> {
+                    LOGGER.log(Level.WARNING, "Error finding user by ID: " + id, PocketBase.unwrap(e));
+                    return Optional.empty();
+                });
+    }
+
+    @Override
+    public CompletableFuture<Optional<DVUser>> findByUuidAsync(UUID mc_uuid) {
+        String filter = "mc_uuid = '" + mc_uuid.toString() + "'";
+        return findFirstAsync(filter, "No user found with UUID: " + mc_uuid);
+    }
+
+    @Override
+    public CompletableFuture<Optional<DVUser>> findByDiscordIdAsync(String discordId) {
+        String filter = "discord_id = '" + discordId + "'";
+        return findFirstAsync(filter, "No user found with Discord ID: " + discordId);
+    }
+
+    @Override
+    public CompletableFuture<Optional<DVUser>> findBySnowflakeIdAsync(Long snowflakeId) {
+        String filter = "discord_id = '" + snowflakeId.toString() + "'";
+        return pocketBase.getFirstListItemAsync(COLLECTION_NAME, filter, null, null, null)
+                // Same fallback as findBySnowflakeId: try a partial match if there is no exact one
+                .exceptionallyCompose(e -> pocketBase.getFirstListItemAsync(COLLECTION_NAME,
+                        "discord_id ~ '" + snowflakeId + "'", null, null, null))
+                .thenApply(record -> Optional.of(mapToUser(record)))
+                .exceptionally(e -> {
+                    LOGGER.log(Level.INFO, "No user found with Snowflake ID (partial match): " + snowflakeId);
+                    return Optional.empty();
+                });
+    }
+
+    @Override
+    public CompletableFuture<Optional<DVUser>> findByMinecraftUsernameAsync(String mcUsername) {
+        String filter = "mc_username = '" + mcUsername + "'";
+        return findFirstAsync(filter, "No user found with MC username: " + mcUsername);
+    }
+
+    @Override
+    public CompletableFuture<List<DVUser>> findAllAsync() {
+        return pocketBase.getFullListAsync(COLLECTION_NAME, 500, null, null, null, null)
+                .thenApply(records -> records.stream()
+                        .map(this::mapToUser)
+                        .collect(Collectors.toList()))
+                .exceptionally(e -> {
+                    LOGGER.log(Level.WARNING, "Error retrieving all users", PocketBase.unwrap(e));
+                    return Collections.emptyList();
+                });
+    }
+
+    @Override
+    public CompletableFuture<DVUser> saveAsync(DVUser user) {
+        JsonObject userData = mapToJsonObject(user);
+
+        CompletableFuture<JsonObject> request;
+        if (user.getId() != null && !user.getId().isEmpty()) {
+            // Update existing user, sending only the fields changed since it was loaded
+            userData.keySet().retainAll(user.getDirtyFields());
+            if (userData.isEmpty()) return CompletableFuture.completedFuture(user);
+            request = pocketBase.updateRecordAsync(COLLECTION_NAME, user.getId(), userData, null, null);
+        } else {
+            // Create new user
+            request = pocketBase.createRecordAsync(COLLECTION_NAME, userData, null, null);
+        }
+
+        return request.handle((record, e) -> {
+            if (e != null) {
+                LOGGER.log(Level.SEVERE, "Error saving user: " + user.getMinecraftUsername(), PocketBase.unwrap(e));
+                throw new RuntimeException("Failed to save user", PocketBase.unwrap(e));
+            }
+            return notifySaved(mapToUser(record));
+        });
+    }
+
+    @Override
+    public CompletableFuture<DVUser> adjustBalanceAsync(DVUser user, double amount) {
+        JsonObject userData = balanceChangeData(user, amount);
+
+        CompletableFuture<JsonObject> request;
+        if (user.getId() != null && !user.getId().isEmpty()) {
+            request = pocketBase.updateRecordAsync(COLLECTION_NAME, user.getId(), userData, null, null);
+        } else {
+            request = pocketBase.createRecordAsync(COLLECTION_NAME, userData, null, null);
+        }
+
+        return request.handle((record, e) -> {
+            if (e != null) {
+                LOGGER.log(Level.SEVERE, "Error changing balance of user: " + user.getId(), PocketBase.unwrap(e));
+                throw new RuntimeException("Failed to change balance", PocketBase.unwrap(e));
+            }
+            return notifySaved(mapToUser(record));
+        });
+    }
+
+    @Override
+    public CompletableFuture<DVUser> claimDailyAsync(DVUser user, double reward, LocalDate day) {
+        // Without the daily_claims collection, only the checks made by this hub apply
+        if (!dailyClaimGuard) return adjustBalanceAsync(user, reward);
+
+        JsonObject claim = new JsonObject();
+        claim.addProperty("discord_id", user.getDiscordId());
+        claim.addProperty("day", day.toString());
+        claim.addProperty("interaction", user.getLastDailyInteraction());
+
+        JsonObject userData = balanceChangeData(user, reward);
+        PocketBase.BatchRequest userRequest = user.getId() != null && !user.getId().isEmpty()
+                ? PocketBase.BatchRequest.update(COLLECTION_NAME, user.getId(), userData)
+                : PocketBase.BatchRequest.create(COLLECTION_NAME, userData);
+
+        // One batch is one transaction, so the balance only changes if the claim record could be created
+        List<PocketBase.BatchRequest> requests = List.of(
+                PocketBase.BatchRequest.create(DAILY_CLAIMS_COLLECTION_NAME, claim), userRequest);
+
+        return pocketBase.batchAsync(requests)
+                .thenApply(results -> notifySaved(mapToUser(results.get(1).getAsJsonObject("body"))))
+                .exceptionallyCompose(e -> hasClaimedDailyAsync(user.getDiscordId(), day).thenApply(claimed -> {
+                    if (claimed) {
+                        throw new DailyAlreadyClaimedException("User " + user.getDiscordId() + " already claimed on " + day);
+                    }
+                    LOGGER.log(Level.SEVERE, "Error claiming daily reward of user: " + user.getId(), PocketBase.unwrap(e));
+                    throw new RuntimeException("Failed to claim daily reward", PocketBase.unwrap(e));
+                }));
+    }
+
+    /**
+     * Check whether PocketBase has a daily claim of a user on a day. Failed lookups count as no claim.
+     *
+     * @param discordId Discord ID of the user
+     * @param day       Day of the claim
+     * @return Future of whether the claim exists
+     */
+    private CompletableFuture<Boolean> hasClaimedDailyAsync(String discordId, LocalDate day) {
+        String filter = "discord_id = '" + discordId + "' && day = '" + day + "'";
+        return pocketBase.getFirstListItemAsync(DAILY_CLAIMS_COLLECTION_NAME, filter, null, null, "id")
+                .handle((record, e) -> e == null);
+    }
+
+    /**
+     * Find the first user matching a filter without blocking
+     *
+     * @param filter      Filter expression
+     * @param notFoundLog Message logged if no user matches
+     * @return Future of an Optional containing the user if found
+     */
+    private CompletableFuture<Optional<DVUser>> findFirstAsync(String filter, String notFoundLog) {
+        return pocketBase.getFirstListItemAsync(COLLECTION_NAME, filter, null, null, null)
+                .thenApply(record -> Optional.of(mapToUser(record)))
+                .exceptionally(e -> {
+                    LOGGER.log(Level.FINE, notFoundLog);
+                    return Optional.empty();
+                });
+    }
 }
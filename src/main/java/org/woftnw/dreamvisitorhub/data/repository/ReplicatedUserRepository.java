@@ -0,0 +1,524 @@
+package org.woftnw.dreamvisitorhub.data.repository;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.woftnw.dreamvisitorhub.data.type.DVUser;
+import org.woftnw.dreamvisitorhub.metrics.Metrics;
+import org.woftnw.dreamvisitorhub.pb.PocketBase;
+import org.woftnw.dreamvisitorhub.pb.PocketBaseRealtime;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A UserRepository that keeps the whole users collection in memory.
+ *
+ * <p>
+ * {@link #start()} subscribes to realtime events for the collection and then loads every user. From then on, creates,
+ * updates and deletes arrive as realtime events and are applied to the replica, so lookups are answered from hash
+ * indexes without any network call. Writes still go to PocketBase first and are applied to the replica once they
+ * succeed.
+ * </p>
+ * <p>
+ * Events and the bulk load can overlap, and PocketBase does not replay events missed while the realtime connection
+ * was down. A change is therefore only applied if it is not older than the version already held, deleted records are
+ * remembered while a load is running so that it cannot bring them back, and the replica is reloaded after every
+ * reconnect.
+ * </p>
+ * <p>
+ * Until the first load has finished, lookups are passed on to PocketBase.
+ * </p>
+ */
+public class ReplicatedUserRepository implements UserRepository {
+    private static final Logger LOGGER = Logger.getLogger(ReplicatedUserRepository.class.getName());
+    private static final long MIN_RELOAD_DELAY_MS = 1000;
+    private static final long MAX_RELOAD_DELAY_MS = 60000;
+
+    private final PocketBase pocketBase;
+    private final PocketBaseUserRepository delegate;
+
+    private final Map<String, DVUser> usersById = new ConcurrentHashMap<>();
+    private final Map<String, String> idsByDiscordId = new ConcurrentHashMap<>();
+    private final Map<UUID, String> idsByUuid = new ConcurrentHashMap<>();
+    private final Map<String, String> idsByMcUsername = new ConcurrentHashMap<>();
+    /**
+     * Last known update time of records deleted while a load is running. Only that load can still hold them, so they
+     * are dropped when it ends.
+     */
+    private final Map<String, OffsetDateTime> tombstones = new ConcurrentHashMap<>();
+    // Guarded by this
+    private boolean loading = false;
+
+    private volatile boolean ready = false;
+    private volatile boolean reloadPending = false;
+    private volatile boolean running = false;
+    private volatile Thread thread;
+
+    // Statistics
+    private final AtomicLong eventCount = new AtomicLong();
+    private final AtomicLong lastEventLagMs = new AtomicLong();
+    private final AtomicLong maxEventLagMs = new AtomicLong();
+    private volatile long lastEventAt = 0;
+    private volatile long lastLoadAt = 0;
+
+    /**
+     * Create a replica. Call {@link #start()} to load it.
+     *
+     * @param pocketBase PocketBase client to receive realtime events from
+     * @param delegate   Repository used for loading and writes
+     */
+    public ReplicatedUserRepository(@NotNull PocketBase pocketBase, @NotNull PocketBaseUserRepository delegate) {
+        this.pocketBase = pocketBase;
+        this.delegate = delegate;
+    }
+
+    /**
+     * Subscribe to realtime events and load every user. This blocks until the first load is complete.
+     *
+     * @return true if the replica was loaded, false if loading failed and lookups are still passed on to PocketBase
+     */
+    public boolean start() {
+        if (running) return ready;
+        running = true;
+        Metrics.USER_REPLICA_EVENT_LAG.labels().setSource(this::getLastEventLagMs);
+        Metrics.USER_REPLICA_MAX_EVENT_LAG.labels().setSource(this::getMaxEventLagMs);
+
+        PocketBaseRealtime realtime = pocketBase.realtime();
+        realtime.subscribe(PocketBaseUserRepository.COLLECTION_NAME + "/*", this::onEvent);
+        // Events missed while disconnected are not replayed, so reload after every reconnect
+        realtime.onConnect(() -> {
+            if (ready) reloadPending = true;
+        });
+
+        boolean loaded = reload();
+        if (loaded) {
+            ready = true;
+            LOGGER.info("Loaded " + usersById.size() + " users into the replica");
+        }
+
+        thread = new Thread(this::maintain, "UserReplica");
+        thread.setDaemon(true);
+        thread.start();
+        return loaded;
+    }
+
+    /**
+     * Stop retrying and reloading. The replica keeps answering lookups with what it holds, and realtime events are
+     * still applied.
+     */
+    public void stop() {
+        running = false;
+        if (thread != null) thread.interrupt();
+    }
+
+    /**
+     * Background loop that retries a failed initial load and reloads after reconnects. This runs on its own thread
+     * because realtime listeners must not block the connection thread. Failed loads are retried with exponential
+     * backoff, so an unreachable PocketBase is not asked for the whole collection every second.
+     */
+    private void maintain() {
+        long delay = MIN_RELOAD_DELAY_MS;
+        while (running) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            boolean failed = false;
+            if (!ready) {
+                if (reload()) {
+                    ready = true;
+                    LOGGER.info("Loaded " + usersById.size() + " users into the replica");
+                } else failed = true;
+            } else if (reloadPending) {
+                reloadPending = false;
+                if (!reload()) {
+                    reloadPending = true;
+                    failed = true;
+                }
+            }
+            delay = failed ? Math.min(delay * 2, MAX_RELOAD_DELAY_MS) : MIN_RELOAD_DELAY_MS;
+        }
+    }
+
+    /**
+     * Load every user and drop users that no longer exist.
+     *
+     * @return true if all users were loaded
+     */
+    private boolean reload() {
+        synchronized (this) {
+            loading = true;
+        }
+        try {
+            return load();
+        } finally {
+            // Loads run one at a time, and any later one starts after these deletions, so it will not see them
+            synchronized (this) {
+                loading = false;
+                tombstones.clear();
+            }
+        }
+    }
+
+    private boolean load() {
+        long startedAt = System.currentTimeMillis();
+        Set<String> seen = new HashSet<>();
+
+        boolean complete = delegate.streamAll(user -> {
+            seen.add(user.getId());
+            OffsetDateTime deletedAt = tombstones.get(user.getId());
+            if (deletedAt != null && !isNewer(user.getUpdated(), deletedAt)) return;
+            apply(user);
+        });
+        if (!complete) return false;
+
+        // Anything not seen was deleted while events were missed, unless it was created by an event during the scan
+        for (DVUser user : usersById.values()) {
+            if (!seen.contains(user.getId()) && user.getUpdated() != null
+                    && user.getUpdated().toInstant().toEpochMilli() < startedAt) {
+                remove(user.getId(), user.getUpdated());
+            }
+        }
+
+        lastLoadAt = System.currentTimeMillis();
+        return true;
+    }
+
+    private void onEvent(@NotNull PocketBaseRealtime.RealtimeEvent event) {
+        if (event.record() == null || event.action() == null) return;
+        DVUser user = delegate.mapToUser(event.record());
+        if (user.getId() == null) return;
+
+        switch (event.action()) {
+            case "create", "update" -> apply(user);
+            case "delete" -> remove(user.getId(), user.getUpdated());
+            default -> {
+                return;
+            }
+        }
+
+        // Lag is the time between the change in PocketBase and it being applied here
+        eventCount.incrementAndGet();
+        lastEventAt = System.currentTimeMillis();
+        if (user.getUpdated() != null && !event.action().equals("delete")) {
+            long lag = Math.max(0, lastEventAt - user.getUpdated().toInstant().toEpochMilli());
+            lastEventLagMs.set(lag);
+            maxEventLagMs.accumulateAndGet(lag, Math::max);
+        }
+    }
+
+    /**
+     * Apply a user to the replica unless a newer version is already held
+     */
+    private synchronized void apply(@NotNull DVUser user) {
+        DVUser previous = usersById.get(user.getId());
+        if (previous != null) {
+            if (isNewer(previous.getUpdated(), user.getUpdated())) return;
+            removeIndexes(previous);
+        }
+        tombstones.remove(user.getId());
+
+        DVUser copy = user.copy();
+        usersById.put(copy.getId(), copy);
+        addIndexes(copy);
+    }
+
+    private synchronized void remove(@NotNull String id, @Nullable OffsetDateTime updated) {
+        DVUser previous = usersById.remove(id);
+        if (previous != null) removeIndexes(previous);
+        if (loading) tombstones.put(id, updated != null ? updated : OffsetDateTime.now());
+    }
+
+    /**
+     * @return true if a is known to be strictly newer than b
+     */
+    private static boolean isNewer(@Nullable OffsetDateTime a, @Nullable OffsetDateTime b) {
+        return a != null && b != null && a.isAfter(b);
+    }
+
+    private void addIndexes(@NotNull DVUser user) {
+        if (user.getDiscordId() != null) idsByDiscordId.put(user.getDiscordId(), user.getId());
+        if (user.getMinecraftUuid() != null) idsByUuid.put(user.getMinecraftUuid(), user.getId());
+        if (user.getMinecraftUsername() != null) idsByMcUsername.put(user.getMinecraftUsername(), user.getId());
+    }
+
+    private void removeIndexes(@NotNull DVUser user) {
+        // Only remove keys that still point at this user; another user may have taken them over
+        if (user.getDiscordId() != null) idsByDiscordId.remove(user.getDiscordId(), user.getId());
+        if (user.getMinecraftUuid() != null) idsByUuid.remove(user.getMinecraftUuid(), user.getId());
+        if (user.getMinecraftUsername() != null) idsByMcUsername.remove(user.getMinecraftUsername(), user.getId());
+    }
+
+    @NotNull
+    private Optional<DVUser> get(@Nullable String id) {
+        if (id == null) return Optional.empty();
+        DVUser user = usersById.get(id);
+        return user != null ? Optional.of(user.copy()) : Optional.empty();
+    }
+
+    @Override
+    public Optional<DVUser> findById(String id) {
+        if (!ready) return delegate.findById(id);
+        return get(id);
+    }
+
+    @Override
+    public Optional<DVUser> findByUuid(UUID uuid) {
+        if (!ready) return delegate.findByUuid(uuid);
+        return get(idsByUuid.get(uuid));
+    }
+
+    @Override
+    public Optional<DVUser> findByDiscordId(String discordId) {
+        if (!ready) return delegate.findByDiscordId(discordId);
+        return get(idsByDiscordId.get(discordId));
+    }
+
+    @Override
+    public Optional<DVUser> findBySnowflakeId(Long snowflakeId) {
+        if (!ready) return delegate.findBySnowflakeId(snowflakeId);
+        return get(idsByDiscordId.get(snowflakeId.toString()));
+    }
+
+    @Override
+    public Optional<DVUser> findByMinecraftUsername(String mcUsername) {
+        if (!ready) return delegate.findByMinecraftUsername(mcUsername);
+        // Matched exactly, like the PocketBase filter used before the replica is ready
+        return get(idsByMcUsername.get(mcUsername));
+    }
+
+    @Override
+    public List<DVUser> findAll() {
+        if (!ready) return delegate.findAll();
+        List<DVUser> users = new ArrayList<>(usersById.size());
+        usersById.values().forEach(user -> users.add(user.copy()));
+        return users;
+    }
+
+    @Override
+    public boolean streamAll(Consumer<DVUser> consumer) {
+        if (!ready) return delegate.streamAll(consumer);
+        usersById.values().forEach(user -> consumer.accept(user.copy()));
+        return true;
+    }
+
+    @Override
+    public Map<String, DVUser> findAllByIds(Collection<String> ids) {
+        if (!ready) return delegate.findAllByIds(ids);
+        Map<String, DVUser> users = new HashMap<>();
+        for (String id : ids) {
+            get(id).ifPresent(user -> users.put(id, user));
+        }
+        return users;
+    }
+
+    @Override
+    public DVUser save(DVUser user) {
+        DVUser saved = delegate.save(user);
+        apply(saved);
+        return saved;
+    }
+
+    @Override
+    public DVUser adjustBalance(DVUser user, double amount) {
+        DVUser saved = delegate.adjustBalance(user, amount);
+        apply(saved);
+        return saved;
+    }
+
+    @Override
+    public void delete(DVUser user) {
+        if (user.getId() != null) deleteById(user.getId());
+    }
+
+    @Override
+    public void deleteById(String id) {
+        delegate.deleteById(id);
+        remove(id, null);
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        delegate.addListener(listener);
+    }
+
+    @Override
+    public List<DVUser> getAllWhere(String filter) {
+        // Filter expressions can only be evaluated by PocketBase
+        return delegate.getAllWhere(filter);
+    }
+
+    @Override
+    public CompletableFuture<Optional<DVUser>> findByIdAsync(String id) {
+        if (!ready) return delegate.findByIdAsync(id);
+        return CompletableFuture.completedFuture(findById(id));
+    }
+
+    @Override
+    public CompletableFuture<Optional<DVUser>> findByUuidAsync(UUID uuid) {
+        if (!ready) return delegate.findByUuidAsync(uuid);
+        return CompletableFuture.completedFuture(findByUuid(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Optional<DVUser>> findByDiscordIdAsync(String discordId) {
+        if (!ready) return delegate.findByDiscordIdAsync(discordId);
+        return CompletableFuture.completedFuture(findByDiscordId(discordId));
+    }
+
+    @Override
+    public CompletableFuture<Optional<DVUser>> findBySnowflakeIdAsync(Long snowflakeId) {
+        if (!ready) return delegate.findBySnowflakeIdAsync(snowflakeId);
+        return CompletableFuture.completedFuture(findBySnowflakeId(snowflakeId));
+    }
+
+    @Override
+    public CompletableFuture<Optional<DVUser>> findByMinecraftUsernameAsync(String mcUsername) {
+        if (!ready) return delegate.findByMinecraftUsernameAsync(mcUsername);
+        return CompletableFuture.completedFuture(findByMinecraftUsername(mcUsername));
+    }
+
+    @Override
+    public CompletableFuture<List<DVUser>> findAllAsync() {
+        if (!ready) return delegate.findAllAsync();
+        return CompletableFuture.completedFuture(findAll());
+    }
+
+    @Override
+    public CompletableFuture<DVUser> saveAsync(DVUser user) {
+        return delegate.saveAsync(user).thenApply(saved -> {
+            apply(saved);
+            return saved;
+        });
+    }
+
+    @Override
+    public CompletableFuture<DVUser> adjustBalanceAsync(DVUser user, double amount) {
+        return delegate.adjustBalanceAsync(user, amount).thenApply(saved -> {
+            apply(saved);
+            return saved;
+        });
+    }
+
+    @Override
+    public CompletableFuture<DVUser> claimDailyAsync(DVUser user, double reward, LocalDate day) {
+        return delegate.claimDailyAsync(user, reward, day).thenApply(saved -> {
+            apply(saved);
+            return saved;
+        });
+    }
+
+    /**
+     * Compare the replica with a fresh scan of the collection. Differences are expected while changes are in flight,
+     * so a single report with a few stale users is not necessarily a problem; one that persists is.
+     *
+     * @return the differences found, or null if the collection could not be scanned
+     */
+    @Nullable
+    public ConsistencyReport checkConsistency() {
+        Map<String, OffsetDateTime> remote = new HashMap<>();
+        if (!delegate.streamAll(user -> remote.put(user.getId(), user.getUpdated()))) return null;
+
+        List<String> missing = new ArrayList<>();
+        List<String> stale = new ArrayList<>();
+        List<String> extra = new ArrayList<>();
+
+        for (Map.Entry<String, OffsetDateTime> entry : remote.entrySet()) {
+            DVUser local = usersById.get(entry.getKey());
+            if (local == null) missing.add(entry.getKey());
+            else if (!Objects.equals(local.getUpdated(), entry.getValue())) stale.add(entry.getKey());
+        }
+        for (String id : usersById.keySet()) {
+            if (!remote.containsKey(id)) extra.add(id);
+        }
+
+        ConsistencyReport report = new ConsistencyReport(remote.size(), usersById.size(), missing, stale, extra);
+        if (!report.isConsistent()) {
+            LOGGER.log(Level.WARNING, "User replica differs from PocketBase: " + missing.size() + " missing, "
+                    + stale.size() + " stale, " + extra.size() + " extra");
+        }
+        return report;
+    }
+
+    /**
+     * @return true once the first load has finished and lookups are answered from memory
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return the number of users in the replica
+     */
+    public int size() {
+        return usersById.size();
+    }
+
+    /**
+     * Replica lag is the time between a change being made in PocketBase (its {@code updated} time) and the change
+     * being applied here. It includes any clock difference between PocketBase and this host.
+     *
+     * @return the lag of the most recent realtime event in milliseconds
+     */
+    public long getLastEventLagMs() {
+        return lastEventLagMs.get();
+    }
+
+    /**
+     * @return the highest replica lag seen in milliseconds
+     */
+    public long getMaxEventLagMs() {
+        return maxEventLagMs.get();
+    }
+
+    /**
+     * @return the number of realtime events applied
+     */
+    public long getEventCount() {
+        return eventCount.get();
+    }
+
+    /**
+     * @return the time since the last realtime event was applied, or null if none has been
+     */
+    @Nullable
+    public Duration getTimeSinceLastEvent() {
+        long at = lastEventAt;
+        return at == 0 ? null : Duration.ofMillis(System.currentTimeMillis() - at);
+    }
+
+    /**
+     * @return the time since the replica was last fully loaded, or null if it has not been
+     */
+    @Nullable
+    public Duration getTimeSinceLastLoad() {
+        long at = lastLoadAt;
+        return at == 0 ? null : Duration.ofMillis(System.currentTimeMillis() - at);
+    }
+
+    /**
+     * The result of {@link #checkConsistency()}
+     *
+     * @param remoteCount Users in PocketBase
+     * @param localCount  Users in the replica
+     * @param missing     IDs of users in PocketBase but not in the replica
+     * @param stale       IDs of users whose update time differs between PocketBase and the replica
+     * @param extra       IDs of users in the replica but not in PocketBase
+     */
+    public record ConsistencyReport(int remoteCount, int localCount, List<String> missing, List<String> stale,
+                                    List<String> extra) {
+        public boolean isConsistent() {
+            return missing.isEmpty() && stale.isEmpty() && extra.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.woftnw.dreamvisitorhub.data.repository;
+
+import org.woftnw.dreamvisitorhub.data.type.Transaction;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Repository interface for economy ledger transactions. Transactions are never updated or deleted.
+ */
+public interface TransactionRepository {
+    /**
+     * Create several transactions with as few requests as possible
+     *
+     * @param transactions Transactions to create
+     */
+    void saveAll(Collection<Transaction> transactions);
+
+    /**
+     * Get all transactions of a user
+     *
+     * @param userId PocketBase ID of the user
+     * @return List of the user's transactions, oldest first
+     * @throws RuntimeException If the transactions could not be retrieved
+     */
+    List<Transaction> findByUser(String userId);
+
+    /**
+     * Get the transactions of a user created in a period
+     *
+     * @param userId  PocketBase ID of the user
+     * @param after   Only include transactions created after this time, or null for no lower limit
+     * @param through Only include transactions created at or before this time, or null for no upper limit
+     * @return List of matching transactions, oldest first
+     * @throws RuntimeException If the transactions could not be retrieved
+     */
+    List<Transaction> findByUserBetween(String userId, OffsetDateTime after, OffsetDateTime through);
+
+    /**
+     * Get all transactions matching a filter
+     *
+     * @param filter PocketBase filter expression
+     * @return List of transactions matching the filter, oldest first
+     * @throws RuntimeException If the transactions could not be retrieved
+     */
+    List<Transaction> getAllWhere(String filter);
+
+    /**
+     * Find which of the given transaction keys have already been stored
+     *
+     * @param keys Keys to look up
+     * @return The keys that belong to a stored transaction
+     * @throws RuntimeException If the keys could not be looked up
+     */
+    Set<String> findExistingKeys(Collection<String> keys);
+}
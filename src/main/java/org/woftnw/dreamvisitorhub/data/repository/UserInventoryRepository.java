@@ -4,6 +4,7 @@ import org.woftnw.dreamvisitorhub.data.type.UserInventory;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Repository interface for UserInventory data operations
@@ -41,6 +42,14 @@ public interface UserInventoryRepository {
      */
     List<UserInventory> findAll();
 
+    /**
+     * Pass every inventory entry to a consumer as it is read, without holding all inventory entries in memory
+     *
+     * @param consumer Called with each inventory entry
+     * @return true if all inventory entries were read, false if reading failed part way
+     */
+    boolean streamAll(Consumer<UserInventory> consumer);
+
     /**
      * Save an inventory entry (create or update)
      *
@@ -2,9 +2,14 @@ package org.woftnw.dreamvisitorhub.data.repository;
 
 import org.woftnw.dreamvisitorhub.data.type.DVUser;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Repository interface for User data operations
@@ -57,6 +62,22 @@ public interface UserRepository {
      */
     List<DVUser> findAll();
 
+    /**
+     * Pass every user to a consumer as it is read, without holding all users in memory
+     *
+     * @param consumer Called with each user
+     * @return true if all users were read, false if reading failed part way
+     */
+    boolean streamAll(Consumer<DVUser> consumer);
+
+    /**
+     * Find several users by their PocketBase IDs at once
+     *
+     * @param ids PocketBase record IDs
+     * @return Map from record ID to user, without the IDs that were not found
+     */
+    Map<String, DVUser> findAllByIds(Collection<String> ids);
+
     /**
      * Save a user (create or update)
      *
@@ -65,6 +86,17 @@ public interface UserRepository {
      */
     DVUser save(DVUser user);
 
+    /**
+     * Add an amount to a user's balance on the server, and save any other changed fields in the same request. The
+     * balance is changed with PocketBase's {@code balance+} and {@code balance-} modifiers, so concurrent changes
+     * are all applied and the balance held locally is ignored. A new user is created with the amount as its balance.
+     *
+     * @param user   User to change
+     * @param amount Amount to add, negative to subtract
+     * @return Saved user, holding the new balance
+     */
+    DVUser adjustBalance(DVUser user, double amount);
+
     /**
      * Delete a user
      *
@@ -79,6 +111,14 @@ public interface UserRepository {
      */
     void deleteById(String id);
 
+    /**
+     * Register a listener that is told about every user saved or deleted through this repository. Listeners are
+     * called on the thread that completed the change and must not block.
+     *
+     * @param listener Listener to add
+     */
+    void addListener(Listener listener);
+
     /**
      * Get all users that match a given condition
      *
@@ -86,4 +126,117 @@ public interface UserRepository {
      * @return List of users matching the condition
      */
     List<DVUser> getAllWhere(String filter);
+
+    // Asynchronous variants. These do not block the calling thread, so command handlers can start several lookups at
+    // once. Lookups complete with an empty Optional or list where their blocking counterparts would return one.
+
+    /**
+     * Asynchronous version of {@link #findById(String)}
+     *
+     * @param id PocketBase record ID
+     * @return Future of an Optional containing the user if found
+     */
+    CompletableFuture<Optional<DVUser>> findByIdAsync(String id);
+
+    /**
+     * Asynchronous version of {@link #findByUuid(UUID)}
+     *
+     * @param uuid Minecraft UUID
+     * @return Future of an Optional containing the user if found
+     */
+    CompletableFuture<Optional<DVUser>> findByUuidAsync(UUID uuid);
+
+    /**
+     * Asynchronous version of {@link #findByDiscordId(String)}
+     *
+     * @param discordId Discord ID
+     * @return Future of an Optional containing the user if found
+     */
+    CompletableFuture<Optional<DVUser>> findByDiscordIdAsync(String discordId);
+
+    /**
+     * Asynchronous version of {@link #findBySnowflakeId(Long)}
+     *
+     * @param snowflakeId Discord Snowflake ID
+     * @return Future of an Optional containing the user if found
+     */
+    CompletableFuture<Optional<DVUser>> findBySnowflakeIdAsync(Long snowflakeId);
+
+    /**
+     * Asynchronous version of {@link #findByMinecraftUsername(String)}
+     *
+     * @param mcUsername Minecraft username
+     * @return Future of an Optional containing the user if found
+     */
+    CompletableFuture<Optional<DVUser>> findByMinecraftUsernameAsync(String mcUsername);
+
+    /**
+     * Asynchronous version of {@link #findAll()}
+     *
+     * @return Future of a list of all users
+     */
+    CompletableFuture<List<DVUser>> findAllAsync();
+
+    /**
+     * Asynchronous version of {@link #save(DVUser)}. The future fails if the user could not be saved.
+     *
+     * @param user User to save
+     * @return Future of the saved user
+     */
+    CompletableFuture<DVUser> saveAsync(DVUser user);
+
+    /**
+     * Asynchronous version of {@link #adjustBalance(DVUser, double)}. The future fails if the user could not be saved.
+     *
+     * @param user   User to change
+     * @param amount Amount to add, negative to subtract
+     * @return Future of the saved user, holding the new balance
+     */
+    CompletableFuture<DVUser> adjustBalanceAsync(DVUser user, double amount);
+
+    /**
+     * Add a daily reward to a user's balance like {@link #adjustBalanceAsync(DVUser, double)}, but only if the user has
+     * not claimed one on the same day. The check is made by PocketBase, not by this hub: a record of the claim is
+     * created in the {@code daily_claims} collection in the same transaction as the balance change, and the unique
+     * index of that collection on {@code discord_id} and {@code day} fails the whole transaction if the user already
+     * claimed that day. Claims handled at the same time by several hubs are therefore paid out once. If the daily claim
+     * guard is disabled, the claim is not checked by PocketBase and this is the same as
+     * {@link #adjustBalanceAsync(DVUser, double)}.
+     *
+     * @param user   User to change, including the changes made by claiming the reward
+     * @param reward Amount to add
+     * @param day    The day the reward is claimed for
+     * @return Future of the saved user, holding the new balance. It fails with a {@link DailyAlreadyClaimedException}
+     * if the user has already claimed a reward on that day.
+     */
+    CompletableFuture<DVUser> claimDailyAsync(DVUser user, double reward, LocalDate day);
+
+    /**
+     * Receives changes made through a UserRepository
+     */
+    interface Listener {
+        /**
+         * Called after a user was created or updated
+         *
+         * @param user The user as saved
+         */
+        void onSaved(DVUser user);
+
+        /**
+         * Called after a user was deleted
+         *
+         * @param id PocketBase ID of the deleted user
+         */
+        default void onDeleted(String id) {
+        }
+    }
+
+    /**
+     * Thrown when PocketBase rejects a daily reward because one was already claimed on the same day
+     */
+    class DailyAlreadyClaimedException extends RuntimeException {
+        public DailyAlreadyClaimedException(String message) {
+            super(message);
+        }
+    }
 }
@@ -5,7 +5,7 @@ import java.time.OffsetDateTime;
 /**
  * Represents an alternate Discord account linked to a main account
  */
-public class Alt {
+public class Alt extends TrackedEntity {
   private String id;
   private String collectionId;
   private String collectionName;
@@ -51,6 +51,7 @@ public class Alt {
   }
 
   public void setParent(String parent) {
+    markDirty("parent");
     this.parent = parent;
   }
 
@@ -59,6 +60,7 @@ public class Alt {
   }
 
   public void setDiscord_name(String discord_name) {
+    markDirty("discord_name");
     this.discord_name = discord_name;
   }
 
@@ -67,6 +69,7 @@ public class Alt {
   }
 
   public void setDiscord_id(String discord_id) {
+    markDirty("discord_id");
     this.discord_id = discord_id;
     // Update snowflakeId when discord_id is set
     if (discord_id != null) {
@@ -85,6 +88,7 @@ public class Alt {
   }
 
   public void setSnowflakeId(Long snowflakeId) {
+    markDirty("discord_id");
     this.snowflakeId = snowflakeId;
     if (snowflakeId != null) {
       this.discord_id = snowflakeId.toString();
@@ -0,0 +1,85 @@
+package org.woftnw.dreamvisitorhub.data.type;
+
+import java.time.OffsetDateTime;
+
+/**
+ * A user's balance according to the economy ledger at a point in time. The balance is the sum of all of the user's
+ * transactions created up to and including {@link #getThrough()}.
+ */
+public class BalanceSnapshot {
+    private String id;
+    private String collectionId;
+    private String collectionName;
+
+    private String user; // Relation record ID
+    private Double balance;
+    private Integer transactionCount;
+    private OffsetDateTime through;
+
+    private OffsetDateTime created;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getCollectionId() {
+        return collectionId;
+    }
+
+    public void setCollectionId(String collectionId) {
+        this.collectionId = collectionId;
+    }
+
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    public void setCollectionName(String collectionName) {
+        this.collectionName = collectionName;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public void setUser(String user) {
+        this.user = user;
+    }
+
+    public Double getBalance() {
+        return balance;
+    }
+
+    public void setBalance(Double balance) {
+        this.balance = balance;
+    }
+
+    public Integer getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(Integer transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+
+    public OffsetDateTime getThrough() {
+        return through;
+    }
+
+    public void setThrough(OffsetDateTime through) {
+        this.through = through;
+    }
+
+    public OffsetDateTime getCreated() {
+        return created;
+    }
+
+    public void setCreated(OffsetDateTime created) {
+        this.created = created;
+    }
+
+}
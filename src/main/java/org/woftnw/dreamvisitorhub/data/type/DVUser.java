@@ -1,10 +1,11 @@
 package org.woftnw.dreamvisitorhub.data.type;
 
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
-public class DVUser {
+public class DVUser extends TrackedEntity {
   private String id;
   private String collectionId;
   private String collectionName;
@@ -29,6 +30,7 @@ public class DVUser {
 
   private OffsetDateTime lastWork;
   private OffsetDateTime lastDaily;
+  private String lastDailyInteraction; // Discord interaction that claimed the last daily reward
   private OffsetDateTime lastPlayed;
 
   private Boolean isSuspended;
@@ -55,10 +57,12 @@ public class DVUser {
   }
 
   public void setDiscordUsername(String dcUsername) {
+    markDirty("discord_username");
     this.discordUsername = dcUsername;
   }
 
   public void setMcUsername(String mcUsername) {
+    markDirty("mc_username");
     this.mcUsername = mcUsername;
   }
 
@@ -67,6 +71,7 @@ public class DVUser {
   }
 
   public void setMcUuid(UUID uuid) {
+    markDirty("mc_uuid");
     this.mcUuid = uuid;
   }
 
@@ -100,6 +105,7 @@ public class DVUser {
   }
 
   public void setDiscordId(String discord_id) {
+    markDirty("discord_id");
     this.discordId = discord_id;
   }
 
@@ -108,6 +114,7 @@ public class DVUser {
   }
 
   public void setDiscordImg(String discord_img) {
+    markDirty("discord_img");
     this.discordImg = discord_img;
   }
 
@@ -116,6 +123,7 @@ public class DVUser {
   }
 
   public void setInfractions(List<String> infractions) {
+    markDirty("infractions");
     this.infractions = infractions;
   }
 
@@ -124,6 +132,7 @@ public class DVUser {
   }
 
   public void setUsersHome(List<String> usersHome) {
+    markDirty("users_home");
     this.usersHome = usersHome;
   }
 
@@ -132,6 +141,7 @@ public class DVUser {
   }
 
   public void setInventoryItems(List<String> inventoryItems) {
+    markDirty("inventory_items");
     this.inventoryItems = inventoryItems;
   }
 
@@ -140,6 +150,7 @@ public class DVUser {
   }
 
   public void setClaims(List<String> claims) {
+    markDirty("claims");
     this.claims = claims;
   }
 
@@ -148,6 +159,7 @@ public class DVUser {
   }
 
   public void setAlts(List<String> alts) {
+    markDirty("alts");
     this.alts = alts;
   }
 
@@ -156,6 +168,7 @@ public class DVUser {
   }
 
   public void setClaimLimit(Integer claimLimit) {
+    markDirty("claim_limit");
     this.claimLimit = claimLimit;
   }
 
@@ -164,6 +177,7 @@ public class DVUser {
   }
 
   public void setPlayTime(Integer playTime) {
+    markDirty("play_time");
     this.playTime = playTime;
   }
 
@@ -172,6 +186,7 @@ public class DVUser {
   }
 
   public void setBalance(Double balance) {
+    markDirty("balance");
     this.balance = balance;
   }
 
@@ -180,6 +195,7 @@ public class DVUser {
   }
 
   public void setDailyStreak(Integer daily_streak) {
+    markDirty("daily_streak");
     this.dailyStreak = daily_streak;
   }
 
@@ -188,6 +204,7 @@ public class DVUser {
   }
 
   public void setLastWork(OffsetDateTime lastWork) {
+    markDirty("last_work");
     this.lastWork = lastWork;
   }
 
@@ -200,14 +217,25 @@ public class DVUser {
   }
 
   public void setLastDaily(OffsetDateTime lastDaily) {
+    markDirty("last_daily");
     this.lastDaily = lastDaily;
   }
 
+  public String getLastDailyInteraction() {
+    return lastDailyInteraction;
+  }
+
+  public void setLastDailyInteraction(String lastDailyInteraction) {
+    markDirty("last_daily_interaction");
+    this.lastDailyInteraction = lastDailyInteraction;
+  }
+
   public Boolean getIsSuspended() {
     return isSuspended;
   }
 
   public void setIsSuspended(Boolean isSuspended) {
+    markDirty("is_suspended");
     this.isSuspended = isSuspended;
   }
 
@@ -216,6 +244,7 @@ public class DVUser {
   }
 
   public void setIsBanned(Boolean isBanned) {
+    markDirty("is_banned");
     this.isBanned = isBanned;
   }
 
@@ -236,6 +265,44 @@ public class DVUser {
   }
 
   public void setLastPlayed(OffsetDateTime last_played) {
+    markDirty("last_played");
     this.lastPlayed = last_played;
   }
+
+  /**
+   * Create a copy of this user that can be changed without affecting this one. The copy has the same changed fields.
+   *
+   * @return A copy of this user
+   */
+  public DVUser copy() {
+    DVUser copy = new DVUser();
+    copy.id = id;
+    copy.collectionId = collectionId;
+    copy.collectionName = collectionName;
+    copy.mcUuid = mcUuid;
+    copy.mcUsername = mcUsername;
+    copy.discordUsername = discordUsername;
+    copy.discordId = discordId;
+    copy.discordImg = discordImg;
+    copy.snowflakeId = snowflakeId;
+    copy.infractions = infractions != null ? new ArrayList<>(infractions) : null;
+    copy.usersHome = usersHome != null ? new ArrayList<>(usersHome) : null;
+    copy.inventoryItems = inventoryItems != null ? new ArrayList<>(inventoryItems) : null;
+    copy.claims = claims != null ? new ArrayList<>(claims) : null;
+    copy.alts = alts != null ? new ArrayList<>(alts) : null;
+    copy.claimLimit = claimLimit;
+    copy.playTime = playTime;
+    copy.balance = balance;
+    copy.dailyStreak = dailyStreak;
+    copy.lastWork = lastWork;
+    copy.lastDaily = lastDaily;
+    copy.lastDailyInteraction = lastDailyInteraction;
+    copy.lastPlayed = lastPlayed;
+    copy.isSuspended = isSuspended;
+    copy.isBanned = isBanned;
+    copy.created = created;
+    copy.updated = updated;
+    copy.copyDirtyFields(this);
+    return copy;
+  }
 }
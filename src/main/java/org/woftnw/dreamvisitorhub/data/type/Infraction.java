@@ -2,7 +2,7 @@ package org.woftnw.dreamvisitorhub.data.type;
 
 import java.time.OffsetDateTime;
 
-public class Infraction {
+public class Infraction extends TrackedEntity {
   private String id;
   private String collectionId;
   private String collectionName;
@@ -49,6 +49,7 @@ public class Infraction {
   }
 
   public void setReason(String reason) {
+    markDirty("reason");
     this.reason = reason;
   }
 
@@ -57,6 +58,7 @@ public class Infraction {
   }
 
   public void setSend_warning(Boolean send_warning) {
+    markDirty("send_warning");
     this.send_warning = send_warning;
   }
 
@@ -65,6 +67,7 @@ public class Infraction {
   }
 
   public void setExpired(Boolean expired) {
+    markDirty("expired");
     this.expired = expired;
   }
 
@@ -73,6 +76,7 @@ public class Infraction {
   }
 
   public void setValue(Integer value) {
+    markDirty("value");
     this.value = value;
   }
 
@@ -81,6 +85,7 @@ public class Infraction {
   }
 
   public void setUser(String user) {
+    markDirty("user");
     this.user = user;
   }
 
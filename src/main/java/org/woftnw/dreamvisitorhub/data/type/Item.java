@@ -2,7 +2,7 @@ package org.woftnw.dreamvisitorhub.data.type;
 
 import java.time.OffsetDateTime;
 
-public class Item {
+public class Item extends TrackedEntity {
   private String id;
   private String collectionId;
   private String collectionName;
@@ -65,6 +65,7 @@ public class Item {
   }
 
   public void setName(String name) {
+    markDirty("name");
     this.name = name;
   }
 
@@ -73,6 +74,7 @@ public class Item {
   }
 
   public void setDescription(String description) {
+    markDirty("description");
     this.description = description;
   }
 
@@ -81,6 +83,7 @@ public class Item {
   }
 
   public void setPrice(Double price) {
+    markDirty("price");
     this.price = price;
   }
 
@@ -89,6 +92,7 @@ public class Item {
   }
 
   public void setSale_percent(Double sale_percent) {
+    markDirty("sale_percent");
     this.sale_percent = sale_percent;
   }
 
@@ -97,6 +101,7 @@ public class Item {
   }
 
   public void setQuantity(Integer quantity) {
+    markDirty("quantity");
     this.quantity = quantity;
   }
 
@@ -105,6 +110,7 @@ public class Item {
   }
 
   public void setGifting_enabled(Boolean gifting_enabled) {
+    markDirty("gifting_enabled");
     this.gifting_enabled = gifting_enabled;
   }
 
@@ -113,6 +119,7 @@ public class Item {
   }
 
   public void setEnabled(Boolean enabled) {
+    markDirty("enabled");
     this.enabled = enabled;
   }
 
@@ -121,6 +128,7 @@ public class Item {
   }
 
   public void setMax_allowed(Integer max_allowed) {
+    markDirty("max_allowed");
     this.max_allowed = max_allowed;
   }
 
@@ -129,6 +137,7 @@ public class Item {
   }
 
   public void setUse_disabled(Boolean use_disabled) {
+    markDirty("use_disabled");
     this.use_disabled = use_disabled;
   }
 
@@ -137,6 +146,7 @@ public class Item {
   }
 
   public void setUse_on_purchase(Boolean use_on_purchase) {
+    markDirty("use_on_purchase");
     this.use_on_purchase = use_on_purchase;
   }
 
@@ -145,6 +155,7 @@ public class Item {
   }
 
   public void setOn_use_groups_add(String on_use_groups_add) {
+    markDirty("on_use_groups_add");
     this.on_use_groups_add = on_use_groups_add;
   }
 
@@ -153,6 +164,7 @@ public class Item {
   }
 
   public void setOn_use_groups_remove(String on_use_groups_remove) {
+    markDirty("on_use_groups_remove");
     this.on_use_groups_remove = on_use_groups_remove;
   }
 
@@ -161,6 +173,7 @@ public class Item {
   }
 
   public void setOn_use_roles_add(String on_use_roles_add) {
+    markDirty("on_use_roles_add");
     this.on_use_roles_add = on_use_roles_add;
   }
 
@@ -169,6 +182,7 @@ public class Item {
   }
 
   public void setOn_use_roles_remove(String on_use_roles_remove) {
+    markDirty("on_use_roles_remove");
     this.on_use_roles_remove = on_use_roles_remove;
   }
 
@@ -177,6 +191,7 @@ public class Item {
   }
 
   public void setOn_use_console_commands(String on_use_console_commands) {
+    markDirty("on_use_console_commands");
     this.on_use_console_commands = on_use_console_commands;
   }
 
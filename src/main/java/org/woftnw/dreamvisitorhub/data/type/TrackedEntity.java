@@ -0,0 +1,65 @@
+package org.woftnw.dreamvisitorhub.data.type;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Base class for PocketBase records that remember which fields were changed since they were loaded.
+ *
+ * <p>
+ * Setters mark the PocketBase field they change. Repositories clear the marks after mapping a record, and only send
+ * the marked fields when an existing record is updated. Fields changed by someone else in the meantime are therefore
+ * not overwritten with stale values.
+ * </p>
+ */
+public abstract class TrackedEntity {
+  private final transient Set<String> dirtyFields = new LinkedHashSet<>();
+
+  /**
+   * Mark a field as changed
+   *
+   * @param field PocketBase field name
+   */
+  protected void markDirty(String field) {
+    dirtyFields.add(field);
+  }
+
+  /**
+   * @param field PocketBase field name
+   * @return true if the field was changed since the record was loaded
+   */
+  public boolean isDirty(String field) {
+    return dirtyFields.contains(field);
+  }
+
+  /**
+   * @return true if any field was changed since the record was loaded
+   */
+  public boolean isDirty() {
+    return !dirtyFields.isEmpty();
+  }
+
+  /**
+   * @return the PocketBase names of the fields changed since the record was loaded
+   */
+  public Set<String> getDirtyFields() {
+    return Collections.unmodifiableSet(dirtyFields);
+  }
+
+  /**
+   * Forget all changes, for example after the record was loaded or saved
+   */
+  public void clearDirty() {
+    dirtyFields.clear();
+  }
+
+  /**
+   * Take over the changed fields of another entity, for copies
+   *
+   * @param other The entity that was copied
+   */
+  protected void copyDirtyFields(TrackedEntity other) {
+    dirtyFields.addAll(other.dirtyFields);
+  }
+}
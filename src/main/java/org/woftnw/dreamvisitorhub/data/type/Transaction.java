@@ -0,0 +1,97 @@
+package org.woftnw.dreamvisitorhub.data.type;
+
+import java.time.OffsetDateTime;
+
+/**
+ * A change to a user's balance, as recorded in the economy ledger. Transactions are only ever created, never changed.
+ */
+public class Transaction {
+    private String id;
+    private String collectionId;
+    private String collectionName;
+
+    private String key; // Unique key chosen when the transaction is recorded, to recognize duplicates
+    private String user; // Relation record ID
+    private Type type;
+    private Double amount;
+    private String reference; // What caused the transaction, such as an interaction or item ID
+
+    private OffsetDateTime created;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getCollectionId() {
+        return collectionId;
+    }
+
+    public void setCollectionId(String collectionId) {
+        this.collectionId = collectionId;
+    }
+
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    public void setCollectionName(String collectionName) {
+        this.collectionName = collectionName;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public void setUser(String user) {
+        this.user = user;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Double getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Double amount) {
+        this.amount = amount;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public void setReference(String reference) {
+        this.reference = reference;
+    }
+
+    public OffsetDateTime getCreated() {
+        return created;
+    }
+
+    public void setCreated(OffsetDateTime created) {
+        this.created = created;
+    }
+
+    public enum Type {
+        DAILY, WORK, PURCHASE, GIFT, ADJUSTMENT
+    }
+
+}
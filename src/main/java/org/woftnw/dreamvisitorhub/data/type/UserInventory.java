@@ -2,7 +2,7 @@ package org.woftnw.dreamvisitorhub.data.type;
 
 import java.time.OffsetDateTime;
 
-public class UserInventory {
+public class UserInventory extends TrackedEntity {
   private String id;
   private String collectionId;
   private String collectionName;
@@ -48,6 +48,7 @@ public class UserInventory {
   }
 
   public void setUser(String user) {
+    markDirty("user");
     this.user = user;
   }
 
@@ -56,6 +57,7 @@ public class UserInventory {
   }
 
   public void setItem(String item) {
+    markDirty("item");
     this.item = item;
   }
 
@@ -64,6 +66,7 @@ public class UserInventory {
   }
 
   public void setQuantity(Integer quantity) {
+    markDirty("quantity");
     this.quantity = quantity;
   }
 
@@ -1,53 +1,230 @@
 package org.woftnw.dreamvisitorhub.functions;
 
-import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import org.jetbrains.annotations.NotNull;
 import org.woftnw.dreamvisitorhub.App;
-import org.woftnw.dreamvisitorhub.Bot;
-import org.woftnw.dreamvisitorhub.config.Config;
-import org.woftnw.dreamvisitorhub.config.ConfigKey;
+import org.woftnw.dreamvisitorhub.data.repository.ChatMessagesRepository;
 import org.woftnw.dreamvisitorhub.data.type.ChatMessage;
+import org.woftnw.dreamvisitorhub.pb.PocketBaseRealtime;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
 
+/**
+ * Relays chat messages from Minecraft to the game chat channel on Discord.
+ *
+ * <p>
+ * New messages are pushed by PocketBase realtime as they are created, so nothing is requested while the chat is idle.
+ * Whenever the realtime connection is (re-)established, the bridge thread drains the collection once to pick up
+ * anything created while disconnected. The collection is only polled while the realtime connection is down.
+ * </p>
+ * <p>
+ * Messages are handed to a {@link ChatRelay}, which batches them into as few Discord messages as possible. Records are
+ * only deleted once their batch has been sent. If the relay is full or a batch fails, the affected records are left in
+ * PocketBase and picked up again by a later drain. That drain waits at least the poll interval, and longer after each
+ * retry that fails again, so a missing channel or a stalled relay does not turn into a stream of collection scans.
+ * </p>
+ * <p>
+ * Realtime events are handed to the relay without waiting for room, since they arrive on the realtime thread, which
+ * other listeners share.
+ * </p>
+ */
 public class ChatBridge {
 
-    private static boolean isRunning = false;
+    private static final Logger LOGGER = Logger.getLogger(ChatBridge.class.getName());
+    private static final long FALLBACK_POLL_INTERVAL_MS = 1000;
+    private static final long MAX_RETRY_INTERVAL_MS = 30_000;
+    private static final int RECENT_MESSAGE_LIMIT = 1000;
+    private static final int RELAY_CAPACITY = 500;
+    private static final long RELAY_LINGER_MS = 50;
+
+    private static volatile boolean isRunning = false;
     private static Thread thread;
+    private static final AtomicBoolean listenersRegistered = new AtomicBoolean(false);
+    private static final Object wakeUp = new Object();
+    private static final ChatRelay relay = new ChatRelay(RELAY_CAPACITY, RELAY_LINGER_MS,
+            ChatBridge::onDelivered, ChatBridge::onFailed);
+
+    /**
+     * Set when the realtime connection was (re-)established, so the bridge thread drains the collection right away even
+     * though realtime is connected.
+     */
+    private static volatile boolean drainPending = false;
+
+    /**
+     * Set when messages were left in the collection because the relay could not take them or could not send them, so
+     * the next loop iteration drains the collection after its wait.
+     */
+    private static final AtomicBoolean retryPending = new AtomicBoolean(false);
+
+    /**
+     * Retries that were needed since a batch was last delivered. Each one doubles the wait before the next drain.
+     */
+    private static final AtomicInteger failedRetries = new AtomicInteger();
+
+    /**
+     * IDs of messages that were already relayed. The same message can be seen by both a realtime event and a drain
+     * before its record is deleted, so this keeps it from being sent twice.
+     */
+    private static final Set<String> recentlyRelayed = Collections.newSetFromMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > RECENT_MESSAGE_LIMIT;
+        }
+    });
 
-    public static void start() {
+    public static synchronized void start() {
+        if (isRunning) return;
         isRunning = true;
-        thread = new Thread(ChatBridge::loop);
+        relay.start();
+
+        // The realtime client keeps its listeners, so a restarted bridge must not add them again
+        if (listenersRegistered.compareAndSet(false, true)) {
+            PocketBaseRealtime realtime = App.getPb().realtime();
+            // Draining makes a blocking request, which must not hold up the realtime thread
+            realtime.onConnect(ChatBridge::requestDrain);
+            App.getChatMessageRepository().subscribe(message -> relay(message, false));
+        }
+
+        // Drain once on start in case realtime was already connected
+        drainPending = true;
+        thread = new Thread(ChatBridge::loop, "ChatBridge");
         thread.start();
     }
 
-    public static  void stop() {
+    public static synchronized void stop() {
+        if (!isRunning) return;
         isRunning = false;
         thread.interrupt();
+        relay.stop();
     }
 
     public static  boolean isRunning() {
         return isRunning;
     }
 
+    /**
+     * Fallback loop that polls the collection while the realtime connection is unavailable or messages were left
+     * behind by the relay.
+     */
     private static void loop() {
         while (isRunning) {
-            List<ChatMessage> messages = App.getChatMessageRepository().findAll();
-            String chatChannelId = Config.get(ConfigKey.GAME_CHAT_CHANNEL);
-
-            TextChannel chatChannel = Bot.getJda().getTextChannelById(chatChannelId);
-            if (chatChannel == null) return;
-            for (ChatMessage message : messages) {
-                if (message.getSource().equals(ChatMessage.Source.DISCORD)) continue;
-                chatChannel.sendMessage("**" + message.getSenderUsername() + ":** " + message.getMessage()).queue();
-                App.getChatMessageRepository().delete(message);
+            boolean retry = retryPending.getAndSet(false);
+            if (drainPending || retry || !App.getPb().realtime().isConnected()) {
+                drainPending = false;
+                drain();
             }
 
+            // Only a reconnect skips the wait. Retries wait longer the more often they failed.
+            long waitMs = Math.min(FALLBACK_POLL_INTERVAL_MS << Math.min(failedRetries.get(), 16), MAX_RETRY_INTERVAL_MS);
             try {
-                Thread.sleep(1000);
+                synchronized (wakeUp) {
+                    if (!drainPending) wakeUp.wait(waitMs);
+                }
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                return;
             }
         }
     }
 
+    /**
+     * Have the bridge thread drain the collection as soon as possible
+     */
+    private static void requestDrain() {
+        synchronized (wakeUp) {
+            drainPending = true;
+            wakeUp.notifyAll();
+        }
+    }
+
+    /**
+     * Relay every message currently in the collection.
+     */
+    private static void drain() {
+        List<ChatMessage> messages = App.getChatMessageRepository().findAll();
+        for (ChatMessage message : messages) {
+            // Once the relay is full, the rest will be picked up by a later drain
+            if (!relay(message, true)) break;
+        }
+    }
+
+    /**
+     * Hand a message to the relay.
+     *
+     * @param message The message to relay
+     * @param wait    Whether to wait briefly for room in the relay. Only the bridge thread may wait.
+     * @return false if the relay is full and the message was not accepted
+     */
+    private static boolean relay(@NotNull ChatMessage message, boolean wait) {
+        if (!isRunning) return true;
+        if (message.getSource() == null || message.getSource().equals(ChatMessage.Source.DISCORD)) return true;
+        if (message.getId() != null && !markRelayed(message.getId())) return true;
+
+        if (wait ? relay.submit(message) : relay.trySubmit(message)) return true;
+
+        LOGGER.warning("Chat relay is full (" + relay.getQueueDepth() + " queued), leaving messages for a later drain.");
+        forget(message);
+        retryLater();
+        return false;
+    }
+
+    /**
+     * Have the bridge thread drain the collection again after its wait
+     */
+    private static void retryLater() {
+        // Counted once per drain that is needed, however many messages were left behind
+        if (retryPending.compareAndSet(false, true)) failedRetries.incrementAndGet();
+    }
+
+    private static void onDelivered(@NotNull List<ChatMessage> messages) {
+        failedRetries.set(0);
+        acknowledge(App.getChatMessageRepository(), messages);
+    }
+
+    /**
+     * Delete the records of delivered messages with one batch request, or one by one if the batch fails
+     *
+     * @param repository Where the records are
+     * @param messages   The delivered messages
+     */
+    static void acknowledge(@NotNull ChatMessagesRepository repository, @NotNull List<ChatMessage> messages) {
+        try {
+            repository.deleteAll(messages);
+            return;
+        } catch (RuntimeException e) {
+            // Already logged by the repository. A batch is all-or-nothing, so one record that is already gone fails
+            // the whole batch. Fall back to deleting them one by one.
+        }
+        for (ChatMessage message : messages) {
+            try {
+                repository.delete(message);
+            } catch (RuntimeException e) {
+                // Already logged by the repository. The message stays in recentlyRelayed, so it won't be sent again.
+            }
+        }
+    }
+
+    private static void onFailed(@NotNull List<ChatMessage> messages) {
+        messages.forEach(ChatBridge::forget);
+        retryLater();
+    }
+
+    private static boolean markRelayed(@NotNull String id) {
+        synchronized (recentlyRelayed) {
+            return recentlyRelayed.add(id);
+        }
+    }
+
+    private static void forget(@NotNull ChatMessage message) {
+        if (message.getId() == null) return;
+        synchronized (recentlyRelayed) {
+            recentlyRelayed.remove(message.getId());
+        }
+    }
+
 }
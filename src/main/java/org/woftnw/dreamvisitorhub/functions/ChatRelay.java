@@ -0,0 +1,216 @@
+package org.woftnw.dreamvisitorhub.functions;
+
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import org.jetbrains.annotations.NotNull;
+import org.woftnw.dreamvisitorhub.Bot;
+import org.woftnw.dreamvisitorhub.config.Config;
+import org.woftnw.dreamvisitorhub.config.ConfigKey;
+import org.woftnw.dreamvisitorhub.data.type.ChatMessage;
+import org.woftnw.dreamvisitorhub.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A bounded pipeline that relays game chat messages to Discord in batches.
+ *
+ * <p>
+ * Consecutive messages are packed into one Discord message of up to {@link Message#MAX_CONTENT_LENGTH} characters.
+ * A batch is flushed when the next message would not fit, or when the oldest message in it has waited for the linger
+ * time. While a send is held up by Discord's rate limit, new messages keep collecting in the queue and go out together
+ * in the next batch.
+ * </p>
+ * <p>
+ * The queue has a fixed capacity. {@link #submit(ChatMessage)} waits briefly for room and then gives up, and
+ * {@link #trySubmit(ChatMessage)} gives up at once, so callers can leave the message in PocketBase and retry it later
+ * instead of buffering without limit.
+ * </p>
+ * <p>
+ * The queue depth, flush latency, rejected messages and failed batches are published on the metrics endpoint.
+ * </p>
+ */
+public class ChatRelay {
+
+    private static final Logger LOGGER = Logger.getLogger(ChatRelay.class.getName());
+    private static final long SUBMIT_TIMEOUT_MS = 500;
+
+    private final BlockingQueue<Entry> queue;
+    private final long lingerMs;
+    private final Consumer<List<ChatMessage>> onDelivered;
+    private final Consumer<List<ChatMessage>> onFailed;
+
+    private volatile boolean running = false;
+    private Thread thread;
+    private volatile Entry carriedOver;
+
+    /**
+     * Create a relay.
+     *
+     * @param capacity    The maximum number of messages waiting to be sent
+     * @param lingerMs    How long a batch may wait for more messages before it is sent
+     * @param onDelivered Called on the relay thread with every batch that was sent to Discord
+     * @param onFailed    Called on the relay thread with every batch that could not be sent
+     */
+    public ChatRelay(int capacity, long lingerMs, @NotNull Consumer<List<ChatMessage>> onDelivered,
+                     @NotNull Consumer<List<ChatMessage>> onFailed) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.lingerMs = lingerMs;
+        this.onDelivered = onDelivered;
+        this.onFailed = onFailed;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        Metrics.CHAT_RELAY_QUEUE_DEPTH.labels().setSource(this::getQueueDepth);
+        thread = new Thread(this::loop, "ChatRelay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) thread.interrupt();
+    }
+
+    /**
+     * Queue a message to be relayed. If the queue is full, this waits a short time for room before giving up.
+     *
+     * @param message The message to relay
+     * @return true if the message was queued, false if the relay is falling behind and the message was rejected
+     */
+    public boolean submit(@NotNull ChatMessage message) {
+        try {
+            if (queue.offer(new Entry(message, System.nanoTime()), SUBMIT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return reject();
+    }
+
+    /**
+     * Queue a message to be relayed without waiting, for callers that must not block
+     *
+     * @param message The message to relay
+     * @return true if the message was queued, false if the queue is full and the message was rejected
+     */
+    public boolean trySubmit(@NotNull ChatMessage message) {
+        if (queue.offer(new Entry(message, System.nanoTime()))) return true;
+        return reject();
+    }
+
+    private boolean reject() {
+        Metrics.CHAT_RELAY_REJECTED.labels().increment();
+        return false;
+    }
+
+    private void loop() {
+        while (running) {
+            List<Entry> batch;
+            try {
+                batch = collectBatch();
+            } catch (InterruptedException e) {
+                return;
+            }
+            flush(batch);
+        }
+    }
+
+    /**
+     * Wait for the first message, then keep adding messages until the batch is full or the linger time has passed.
+     */
+    @NotNull
+    private List<Entry> collectBatch() throws InterruptedException {
+        List<Entry> batch = new ArrayList<>();
+
+        Entry first = carriedOver != null ? carriedOver : queue.take();
+        carriedOver = null;
+        batch.add(first);
+        int length = first.line().length();
+
+        long deadline = first.enqueuedAt() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            Entry next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+            if (next == null) break;
+
+            if (length + 1 + next.line().length() > Message.MAX_CONTENT_LENGTH) {
+                // Size trigger: this one starts the next batch
+                carriedOver = next;
+                break;
+            }
+            batch.add(next);
+            length += 1 + next.line().length();
+        }
+
+        return batch;
+    }
+
+    private void flush(@NotNull List<Entry> batch) {
+        List<ChatMessage> messages = new ArrayList<>(batch.size());
+        StringBuilder content = new StringBuilder();
+        for (Entry entry : batch) {
+            if (!content.isEmpty()) content.append('\n');
+            content.append(entry.line());
+            messages.add(entry.message());
+        }
+
+        String chatChannelId = Config.get(ConfigKey.GAME_CHAT_CHANNEL);
+        TextChannel chatChannel = Bot.getJda().getTextChannelById(chatChannelId);
+        if (chatChannel == null) {
+            LOGGER.warning("Game chat channel " + chatChannelId + " could not be found.");
+            Metrics.CHAT_RELAY_FAILED_FLUSHES.labels().increment();
+            onFailed.accept(messages);
+            return;
+        }
+
+        try {
+            // Blocking here is intended: while Discord rate limits this send, the next batch builds up in the queue
+            chatChannel.sendMessage(content.toString()).complete();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to relay " + messages.size() + " chat message(s) to Discord", e);
+            Metrics.CHAT_RELAY_FAILED_FLUSHES.labels().increment();
+            onFailed.accept(messages);
+            return;
+        }
+
+        // Flush latency is the time between the oldest message of a batch being queued and Discord accepting the batch
+        Metrics.CHAT_RELAY_FLUSH_LATENCY.labels().observe(System.nanoTime() - batch.get(0).enqueuedAt());
+
+        onDelivered.accept(messages);
+    }
+
+    /**
+     * Format a message as a line in the game chat channel, truncated so that it fits in one Discord message on its own.
+     */
+    @NotNull
+    private static String formatLine(@NotNull ChatMessage message) {
+        String line = "**" + message.getSenderUsername() + ":** " + message.getMessage();
+        if (line.length() > Message.MAX_CONTENT_LENGTH) {
+            line = line.substring(0, Message.MAX_CONTENT_LENGTH - 3) + "...";
+        }
+        return line;
+    }
+
+    /**
+     * @return the number of messages waiting to be sent
+     */
+    public int getQueueDepth() {
+        return queue.size() + (carriedOver != null ? 1 : 0);
+    }
+
+    private record Entry(ChatMessage message, long enqueuedAt, String line) {
+        Entry(@NotNull ChatMessage message, long enqueuedAt) {
+            this(message, enqueuedAt, formatLine(message));
+        }
+    }
+}
@@ -1,39 +1,204 @@
 package org.woftnw.dreamvisitorhub.functions;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.woftnw.dreamvisitorhub.App;
 import org.woftnw.dreamvisitorhub.config.Config;
 import org.woftnw.dreamvisitorhub.config.ConfigKey;
+import org.woftnw.dreamvisitorhub.data.repository.UserRepository;
 import org.woftnw.dreamvisitorhub.data.type.DVUser;
+import org.woftnw.dreamvisitorhub.data.type.Transaction;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Economy {
 
     /**
-     * Claim the daily reward. This method will refresh and update the streak, then add the reward to the balance.
+     * Discord users whose daily claim is in flight. Keyed by user, so claims by different users never block each other.
+     */
+    private static final Set<Long> dailyClaimsInFlight = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The day on which each Discord user last claimed their daily reward, as far as this hub knows. Lets repeated
+     * claims be rejected without looking the user up in PocketBase.
+     */
+    private static final Map<Long, LocalDate> dailyClaims = new ConcurrentHashMap<>();
+    private static volatile LocalDate dailyClaimsPrunedOn = LocalDate.now();
+
+    /**
+     * Discord users whose work is in flight. Keyed by user, so different users never block each other.
+     */
+    private static final Set<Long> workInFlight = ConcurrentHashMap.newKeySet();
+
+    /**
+     * When each Discord user last worked, as far as this hub knows. Lets users on cooldown be turned away without
+     * looking them up in PocketBase.
+     */
+    private static final Map<Long, OffsetDateTime> lastWork = new ConcurrentHashMap<>();
+    private static volatile OffsetDateTime lastWorkPrunedAt = OffsetDateTime.now();
+
+    /**
+     * Claim the daily reward. This method will refresh and update the streak and calculate the reward. The reward is
+     * not added to the balance here; pass it to {@link UserRepository#claimDailyAsync(DVUser, double, LocalDate)} so
+     * that it is added on the server together with the streak, and only once per day no matter how many hubs handle
+     * the claim. The checks made here only turn away claims that the loaded user already shows as made.
      *
+     * @param interactionId ID of the Discord interaction claiming the reward. It is stored on the user, so that the
+     *                      same interaction seen again on an up-to-date user is rejected without a request.
      * @return the amount that was rewarded.
      * @throws CoolDownException if this consumer cannot yet claim their
      */
-    public static double claimDaily(DVUser user) throws CoolDownException {
+    public static double claimDaily(DVUser user, @Nullable String interactionId) throws CoolDownException {
+        if (interactionId != null && interactionId.equals(user.getLastDailyInteraction())) throw new CoolDownException();
         updateStreak(user);
-        // The OffsetDateTime are converted to string without time to compare by date only.
-        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyyMMdd");
         if (user.getLastDaily() != null && Objects.equals(user.getLastDaily().atZoneSameInstant(ZoneId.systemDefault()).toLocalDate(), LocalDate.now())) throw new CoolDownException();
         // Calculate reward
         double dailyBaseAmount = Economy.getDailyBaseAmount();
         double reward = dailyBaseAmount + (user.getDailyStreak() * getDailyStreakMultiplier());
         // Set values
-        user.setBalance(user.getBalance() + reward);
         user.setDailyStreak(user.getDailyStreak());
         user.setLastDaily(OffsetDateTime.now());
+        user.setLastDailyInteraction(interactionId);
         return reward;
     }
 
+    /**
+     * Take the daily claim lock of a Discord user. While it is held, other claims by the same user are rejected.
+     *
+     * @param snowflakeId Discord user ID
+     * @return true if the lock was taken and must be released with {@link #unlockDaily(long)}
+     */
+    public static boolean tryLockDaily(long snowflakeId) {
+        return dailyClaimsInFlight.add(snowflakeId);
+    }
+
+    /**
+     * Release the daily claim lock taken with {@link #tryLockDaily(long)}
+     *
+     * @param snowflakeId Discord user ID
+     */
+    public static void unlockDaily(long snowflakeId) {
+        dailyClaimsInFlight.remove(snowflakeId);
+    }
+
+    /**
+     * Check whether a Discord user is known to have claimed their daily reward today, without asking PocketBase. A
+     * false result is not conclusive, since the claim may have been made elsewhere.
+     *
+     * @param snowflakeId Discord user ID
+     * @return true if the user has certainly claimed today
+     */
+    public static boolean hasClaimedDailyToday(long snowflakeId) {
+        return LocalDate.now().equals(dailyClaims.get(snowflakeId));
+    }
+
+    /**
+     * Remember that a Discord user has claimed their daily reward today
+     *
+     * @param snowflakeId Discord user ID
+     */
+    public static void markDailyClaimed(long snowflakeId) {
+        LocalDate today = LocalDate.now();
+        if (!today.equals(dailyClaimsPrunedOn)) {
+            // Claims from earlier days no longer block anything
+            dailyClaimsPrunedOn = today;
+            dailyClaims.values().removeIf(day -> day.isBefore(today));
+        }
+        dailyClaims.put(snowflakeId, today);
+    }
+
+    /**
+     * Work for a reward. This method checks the cooldown, sets the time of work and returns the reward. Like
+     * {@link #claimDaily(DVUser, String)}, the reward is not added to the balance here; pass it to
+     * {@link UserRepository#adjustBalance(DVUser, double)}.
+     *
+     * @return the amount that was rewarded.
+     * @throws CoolDownException if the user has worked too recently
+     */
+    public static double work(@NotNull DVUser user) throws CoolDownException {
+        OffsetDateTime now = OffsetDateTime.now();
+        if (user.getLastWork() != null && user.getLastWork().plus(getWorkCooldown()).isAfter(now)) throw new CoolDownException();
+        user.setLastWork(now);
+        return getWorkReward();
+    }
+
+    /**
+     * Take the work lock of a Discord user. While it is held, other attempts to work by the same user are rejected.
+     *
+     * @param snowflakeId Discord user ID
+     * @return true if the lock was taken and must be released with {@link #unlockWork(long)}
+     */
+    public static boolean tryLockWork(long snowflakeId) {
+        return workInFlight.add(snowflakeId);
+    }
+
+    /**
+     * Release the work lock taken with {@link #tryLockWork(long)}
+     *
+     * @param snowflakeId Discord user ID
+     */
+    public static void unlockWork(long snowflakeId) {
+        workInFlight.remove(snowflakeId);
+    }
+
+    /**
+     * Get how long a Discord user must wait before they can work again, without asking PocketBase. A zero result is
+     * not conclusive, since the user may have worked elsewhere.
+     *
+     * @param snowflakeId Discord user ID
+     * @return the remaining cooldown, or {@link Duration#ZERO} if none is known
+     */
+    @NotNull
+    public static Duration getWorkCooldownRemaining(long snowflakeId) {
+        OffsetDateTime worked = lastWork.get(snowflakeId);
+        if (worked == null) return Duration.ZERO;
+        Duration remaining = Duration.between(OffsetDateTime.now(), worked.plus(getWorkCooldown()));
+        if (remaining.isNegative() || remaining.isZero()) {
+            lastWork.remove(snowflakeId, worked);
+            return Duration.ZERO;
+        }
+        return remaining;
+    }
+
+    /**
+     * Remember when a Discord user last worked
+     *
+     * @param snowflakeId Discord user ID
+     * @param worked      The time of work as saved on the user
+     */
+    public static void markWorked(long snowflakeId, @Nullable OffsetDateTime worked) {
+        if (worked == null) return;
+        OffsetDateTime now = OffsetDateTime.now();
+        Duration cooldown = getWorkCooldown();
+        if (lastWorkPrunedAt.plus(cooldown).isBefore(now)) {
+            // Work done longer than a cooldown ago no longer blocks anything
+            lastWorkPrunedAt = now;
+            lastWork.values().removeIf(time -> time.plus(cooldown).isBefore(now));
+        }
+        lastWork.merge(snowflakeId, worked, (old, time) -> time.isAfter(old) ? time : old);
+    }
+
+    /**
+     * Record a change to a user's balance in the economy ledger, if it is enabled
+     *
+     * @param userId    PocketBase ID of the user
+     * @param type      What kind of change this is
+     * @param amount    The amount added to the balance, negative if it was taken away
+     * @param reference What caused the change, such as an interaction or item ID
+     */
+    public static void recordTransaction(@NotNull String userId, @NotNull Transaction.Type type, double amount,
+                                         @Nullable String reference) {
+        EconomyLedger ledger = App.getEconomyLedger();
+        if (ledger != null) ledger.record(userId, type, amount, reference);
+    }
+
     public static void updateStreak(@NotNull DVUser user) {
         if (user.getLastDaily() == null || LocalDate.from(user.getLastDaily()).plusDays(1).isBefore(LocalDate.now())) user.setDailyStreak(0);
     }
@@ -46,6 +211,16 @@ public class Economy {
         return Config.get(ConfigKey.DAILY_STREAK_MULTIPLIER);
     }
 
+    public static double getWorkReward() {
+        return Config.get(ConfigKey.WORK_REWARD);
+    }
+
+    @NotNull
+    public static Duration getWorkCooldown() {
+        int minutes = Config.get(ConfigKey.WORK_COOLDOWN_MINUTES);
+        return Duration.ofMinutes(minutes);
+    }
+
     /**
      * Thrown if the attempted action cannot be completed because the user is on cooldown.
      */
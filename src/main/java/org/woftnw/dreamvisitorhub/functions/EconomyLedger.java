@@ -0,0 +1,437 @@
+package org.woftnw.dreamvisitorhub.functions;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.woftnw.dreamvisitorhub.data.repository.BalanceSnapshotRepository;
+import org.woftnw.dreamvisitorhub.data.repository.TransactionRepository;
+import org.woftnw.dreamvisitorhub.data.type.BalanceSnapshot;
+import org.woftnw.dreamvisitorhub.data.type.Transaction;
+import org.woftnw.dreamvisitorhub.pb.PocketBase;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An append-only record of every change to a user's balance.
+ *
+ * <p>
+ * Recorded transactions are first appended to a local write-ahead log and then created in PocketBase in batches, so
+ * the cost of recording is one line in a file rather than one HTTP request. Batches are sent once a full batch of
+ * transactions is waiting or the flush interval has passed. Each batch is one PocketBase batch request, so it is
+ * applied completely or not at all. After every successful batch, its transactions are dropped from the pending list
+ * and the log is cut down to the rest. The log is replayed on start, so transactions recorded before a crash or while
+ * PocketBase was unreachable are sent later.
+ * </p>
+ * <p>
+ * A transaction can still be in the log after it was sent if the hub stopped between sending a batch and cutting the
+ * log. Every transaction carries a unique key, and before transactions replayed from the log are sent, their keys are
+ * looked up in PocketBase. The ones that are already stored are dropped instead of being sent again, so every
+ * transaction is stored once.
+ * </p>
+ * <p>
+ * Periodically, a balance snapshot is created for every user with new transactions, so that a balance can be rebuilt
+ * from the latest snapshot and the transactions after it instead of the user's entire history. Balances from before
+ * the ledger existed are only included if they were recorded as an {@link Transaction.Type#ADJUSTMENT}.
+ * </p>
+ */
+public class EconomyLedger {
+
+    private static final Logger LOGGER = Logger.getLogger(EconomyLedger.class.getName());
+    /**
+     * Snapshots only include transactions at least this old, so that one created while a snapshot is taken is left
+     * to the next snapshot instead of being missed by both
+     */
+    private static final Duration SNAPSHOT_SETTLE_TIME = Duration.ofSeconds(5);
+
+    private final TransactionRepository transactionRepository;
+    private final BalanceSnapshotRepository snapshotRepository;
+    private final Path walPath;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long snapshotIntervalMs;
+    private final Gson gson = new Gson();
+
+    // Guarded by lock. Only the ledger thread removes transactions from pending, and only from the front.
+    private final Object lock = new Object();
+    private final List<Transaction> pending = new ArrayList<>();
+    private final Set<String> usersSinceSnapshot = new HashSet<>();
+    // Keys of pending transactions read from the log, which may have been sent before the hub stopped
+    private final Set<String> replayedKeys = new HashSet<>();
+    private BufferedWriter wal;
+
+    private volatile boolean running = false;
+    private Thread thread;
+
+    // Counters
+    private final AtomicLong recordedTransactions = new AtomicLong();
+    private final AtomicLong flushedTransactions = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong snapshots = new AtomicLong();
+
+    /**
+     * Create a ledger.
+     *
+     * @param transactionRepository Where transactions are stored
+     * @param snapshotRepository    Where balance snapshots are stored
+     * @param walPath               The file used as write-ahead log
+     * @param batchSize             How many transactions are sent in one batch. Must not exceed
+     *                              {@link PocketBase#getBatchSize()}, or a batch is split into several requests.
+     * @param flushInterval         How long a transaction may wait before it is sent
+     * @param snapshotInterval      How often balance snapshots are taken
+     */
+    public EconomyLedger(@NotNull TransactionRepository transactionRepository,
+                         @NotNull BalanceSnapshotRepository snapshotRepository, @NotNull Path walPath,
+                         int batchSize, @NotNull Duration flushInterval, @NotNull Duration snapshotInterval) {
+        if (batchSize < 1) throw new IllegalArgumentException("Batch size must be at least 1");
+        this.transactionRepository = transactionRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.walPath = walPath;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushInterval.toMillis();
+        this.snapshotIntervalMs = snapshotInterval.toMillis();
+    }
+
+    /**
+     * Replay the write-ahead log and start sending transactions
+     *
+     * @throws IOException If the write-ahead log cannot be read or opened
+     */
+    public synchronized void start() throws IOException {
+        if (running) return;
+
+        synchronized (lock) {
+            if (Files.exists(walPath)) {
+                for (String line : Files.readAllLines(walPath, StandardCharsets.UTF_8)) {
+                    Transaction transaction = parseWalLine(line);
+                    if (transaction == null) continue;
+                    pending.add(transaction);
+                    replayedKeys.add(transaction.getKey());
+                    usersSinceSnapshot.add(transaction.getUser());
+                }
+                if (!pending.isEmpty()) LOGGER.info("Replaying " + pending.size() + " unsent transactions");
+            }
+            wal = Files.newBufferedWriter(walPath, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+        }
+
+        running = true;
+        thread = new Thread(this::loop, "EconomyLedger");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop the ledger, sending what is still waiting if possible. Anything that cannot be sent stays in the log.
+     */
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        flush();
+        synchronized (lock) {
+            try {
+                wal.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to close the economy ledger log", e);
+            }
+        }
+    }
+
+    /**
+     * Record a change to a user's balance. This only writes to the local log and returns without waiting for
+     * PocketBase.
+     *
+     * @param userId    PocketBase ID of the user
+     * @param type      What kind of change this is
+     * @param amount    The amount added to the balance, negative if it was taken away
+     * @param reference What caused the change, such as an interaction or item ID
+     */
+    public void record(@NotNull String userId, @NotNull Transaction.Type type, double amount,
+                       @Nullable String reference) {
+        Transaction transaction = new Transaction();
+        transaction.setKey(UUID.randomUUID().toString());
+        transaction.setUser(userId);
+        transaction.setType(type);
+        transaction.setAmount(amount);
+        transaction.setReference(reference);
+
+        synchronized (lock) {
+            try {
+                wal.write(toWalLine(transaction));
+                wal.newLine();
+                // Flushed to the operating system, so it survives the hub crashing but not the machine
+                wal.flush();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to write transaction " + transaction.getKey() + " to the log", e);
+            }
+            pending.add(transaction);
+            usersSinceSnapshot.add(userId);
+            if (pending.size() >= batchSize) lock.notifyAll();
+        }
+        recordedTransactions.incrementAndGet();
+    }
+
+    private void loop() {
+        long nextSnapshot = System.currentTimeMillis() + snapshotIntervalMs;
+        while (running) {
+            synchronized (lock) {
+                try {
+                    if (pending.size() < batchSize) lock.wait(flushIntervalMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            flush();
+
+            if (System.currentTimeMillis() >= nextSnapshot) {
+                nextSnapshot = System.currentTimeMillis() + snapshotIntervalMs;
+                takeSnapshots();
+            }
+        }
+    }
+
+    /**
+     * Send the waiting transactions one batch at a time, oldest first. Each batch is dropped from the pending list and
+     * the log as soon as it was sent, so a failing batch never causes the ones before it to be sent again. Replayed
+     * transactions that PocketBase already has are left out of their batch.
+     */
+    private void flush() {
+        while (true) {
+            List<Transaction> batch;
+            List<String> unchecked = new ArrayList<>();
+            synchronized (lock) {
+                if (pending.isEmpty()) return;
+                batch = new ArrayList<>(pending.subList(0, Math.min(batchSize, pending.size())));
+                for (Transaction transaction : batch) {
+                    if (replayedKeys.contains(transaction.getKey())) unchecked.add(transaction.getKey());
+                }
+            }
+
+            try {
+                List<Transaction> unsent = batch;
+                if (!unchecked.isEmpty()) {
+                    Set<String> stored = transactionRepository.findExistingKeys(unchecked);
+                    if (!stored.isEmpty()) {
+                        LOGGER.info("Skipping " + stored.size() + " transactions that were sent before the last stop");
+                        unsent = batch.stream().filter(transaction -> !stored.contains(transaction.getKey())).toList();
+                    }
+                }
+                if (!unsent.isEmpty()) transactionRepository.saveAll(unsent);
+            } catch (RuntimeException e) {
+                // Already logged by the repository. The batch stays pending and is retried at the next interval.
+                failedFlushes.incrementAndGet();
+                return;
+            }
+            flushes.incrementAndGet();
+            flushedTransactions.addAndGet(batch.size());
+
+            synchronized (lock) {
+                pending.subList(0, batch.size()).clear();
+                unchecked.forEach(replayedKeys::remove);
+                try {
+                    rewriteWal();
+                } catch (IOException e) {
+                    // The sent transactions stay in the log and will be sent again after a restart
+                    LOGGER.log(Level.WARNING, "Failed to cut down the economy ledger log", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replace the log with one holding only the pending transactions. Must be called while holding the lock.
+     */
+    private void rewriteWal() throws IOException {
+        Path temp = walPath.resolveSibling(walPath.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Transaction transaction : pending) {
+                writer.write(toWalLine(transaction));
+                writer.newLine();
+            }
+        }
+        wal.close();
+        try {
+            Files.move(temp, walPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            wal = Files.newBufferedWriter(walPath, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+        }
+    }
+
+    /**
+     * Take a snapshot for every user with transactions since the last round
+     */
+    private void takeSnapshots() {
+        Set<String> users;
+        synchronized (lock) {
+            users = new HashSet<>(usersSinceSnapshot);
+            usersSinceSnapshot.clear();
+            // Users whose transactions were not sent yet are snapshotted in a later round
+            for (Transaction transaction : pending) usersSinceSnapshot.add(transaction.getUser());
+        }
+
+        for (String userId : users) {
+            try {
+                takeSnapshot(userId);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Failed to take a balance snapshot for user " + userId, e);
+                synchronized (lock) {
+                    usersSinceSnapshot.add(userId);
+                }
+            }
+        }
+    }
+
+    private void takeSnapshot(@NotNull String userId) {
+        OffsetDateTime through = OffsetDateTime.now().minus(SNAPSHOT_SETTLE_TIME);
+        Optional<BalanceSnapshot> latest = snapshotRepository.findLatestByUser(userId);
+        OffsetDateTime after = latest.map(BalanceSnapshot::getThrough).orElse(null);
+
+        List<Transaction> transactions = transactionRepository.findByUserBetween(userId, after, through);
+        if (transactions.isEmpty()) return;
+
+        BalanceSnapshot snapshot = new BalanceSnapshot();
+        snapshot.setUser(userId);
+        snapshot.setBalance(latest.map(BalanceSnapshot::getBalance).orElse(0.0) + sum(transactions, new HashSet<>()));
+        snapshot.setTransactionCount(latest.map(BalanceSnapshot::getTransactionCount).orElse(0) + transactions.size());
+        snapshot.setThrough(through);
+        snapshotRepository.save(snapshot);
+        snapshots.incrementAndGet();
+    }
+
+    /**
+     * Rebuild a user's balance from the latest snapshot, the transactions after it, and the transactions that were
+     * not sent yet.
+     *
+     * @param userId PocketBase ID of the user
+     * @return the balance according to the ledger
+     * @throws RuntimeException If the snapshot or transactions could not be retrieved
+     */
+    public double rebuildBalance(@NotNull String userId) {
+        Optional<BalanceSnapshot> latest = snapshotRepository.findLatestByUser(userId);
+        OffsetDateTime after = latest.map(BalanceSnapshot::getThrough).orElse(null);
+
+        Set<String> seenKeys = new HashSet<>();
+        double balance = latest.map(BalanceSnapshot::getBalance).orElse(0.0);
+        balance += sum(transactionRepository.findByUserBetween(userId, after, null), seenKeys);
+
+        List<Transaction> unsent = new ArrayList<>();
+        synchronized (lock) {
+            for (Transaction transaction : pending) {
+                if (userId.equals(transaction.getUser())) unsent.add(transaction);
+            }
+        }
+        return balance + sum(unsent, seenKeys);
+    }
+
+    /**
+     * Add up transactions, counting each key only once
+     */
+    private static double sum(@NotNull List<Transaction> transactions, @NotNull Set<String> seenKeys) {
+        double sum = 0;
+        for (Transaction transaction : transactions) {
+            if (transaction.getAmount() == null) continue;
+            if (transaction.getKey() != null && !seenKeys.add(transaction.getKey())) continue;
+            sum += transaction.getAmount();
+        }
+        return sum;
+    }
+
+    @NotNull
+    private String toWalLine(@NotNull Transaction transaction) {
+        JsonObject json = new JsonObject();
+        json.addProperty("key", transaction.getKey());
+        json.addProperty("user", transaction.getUser());
+        json.addProperty("type", transaction.getType().name());
+        json.addProperty("amount", transaction.getAmount());
+        json.addProperty("reference", transaction.getReference());
+        return gson.toJson(json);
+    }
+
+    @Nullable
+    private Transaction parseWalLine(@NotNull String line) {
+        if (line.isBlank()) return null;
+        try {
+            JsonObject json = gson.fromJson(line, JsonObject.class);
+            Transaction transaction = new Transaction();
+            // Keys are looked up in filters, so only the UUIDs the ledger creates are accepted
+            transaction.setKey(UUID.fromString(json.get("key").getAsString()).toString());
+            transaction.setUser(json.get("user").getAsString());
+            transaction.setType(Transaction.Type.valueOf(json.get("type").getAsString()));
+            transaction.setAmount(json.get("amount").getAsDouble());
+            if (json.has("reference") && !json.get("reference").isJsonNull())
+                transaction.setReference(json.get("reference").getAsString());
+            return transaction;
+        } catch (JsonParseException | IllegalArgumentException | NullPointerException | IllegalStateException e) {
+            // Most likely the last line, cut off by a crash while it was written
+            LOGGER.warning("Skipping unreadable line in the economy ledger log: " + line);
+            return null;
+        }
+    }
+
+    /**
+     * @return the number of transactions waiting to be sent
+     */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * @return the total number of transactions recorded
+     */
+    public long getRecordedCount() {
+        return recordedTransactions.get();
+    }
+
+    /**
+     * @return the total number of transactions sent to PocketBase
+     */
+    public long getFlushedCount() {
+        return flushedTransactions.get();
+    }
+
+    /**
+     * @return the number of batches sent to PocketBase
+     */
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    /**
+     * @return the number of batches that could not be sent
+     */
+    public long getFailedFlushCount() {
+        return failedFlushes.get();
+    }
+
+    /**
+     * @return the number of balance snapshots taken
+     */
+    public long getSnapshotCount() {
+        return snapshots.get();
+    }
+}
@@ -0,0 +1,178 @@
+package org.woftnw.dreamvisitorhub.functions;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.woftnw.dreamvisitorhub.data.repository.UserRepository;
+import org.woftnw.dreamvisitorhub.data.type.DVUser;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Users ranked by balance, kept in memory so that the leaderboard does not have to read every user for each request.
+ *
+ * <p>
+ * The ranking is filled once by streaming all users from the repository, and from then on updated whenever the
+ * repository saves or deletes a user. Only users with a positive balance are ranked.
+ * </p>
+ */
+public class Leaderboard implements UserRepository.Listener {
+    private static final Logger LOGGER = Logger.getLogger(Leaderboard.class.getName());
+    private static final long SEED_RETRY_DELAY_MS = 30_000;
+
+    private static final Comparator<Entry> RANKING = Comparator.comparingDouble(Entry::balance).reversed()
+            .thenComparing(Entry::userId);
+
+    private final UserRepository userRepository;
+    private final NavigableSet<Entry> ranking = new ConcurrentSkipListSet<>(RANKING);
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean ready = false;
+
+    public Leaderboard(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Start listening for changes and fill the ranking in the background. Changes seen while it is being filled are
+     * not lost, as older records never replace newer ones.
+     */
+    public void start() {
+        userRepository.addListener(this);
+        Thread thread = new Thread(this::seed, "LeaderboardSeed");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void seed() {
+        while (!ready) {
+            if (userRepository.streamAll(this::update)) {
+                ready = true;
+                LOGGER.info("Leaderboard loaded with " + ranking.size() + " ranked users");
+                return;
+            }
+            LOGGER.warning("Failed to load the leaderboard, retrying in " + SEED_RETRY_DELAY_MS / 1000 + " seconds");
+            try {
+                Thread.sleep(SEED_RETRY_DELAY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void onSaved(DVUser user) {
+        update(user);
+    }
+
+    @Override
+    public void onDeleted(String id) {
+        entries.computeIfPresent(id, (key, old) -> {
+            ranking.remove(old);
+            return null;
+        });
+    }
+
+    /**
+     * Move a user to their place in the ranking
+     *
+     * @param user The user as loaded or saved
+     */
+    public void update(@NotNull DVUser user) {
+        if (user.getId() == null) return;
+        try {
+            entries.compute(user.getId(), (key, old) -> {
+                if (old != null && old.isNewerThan(user.getUpdated())) return old;
+                if (old != null) ranking.remove(old);
+
+                double balance = user.getBalance() == null ? 0 : user.getBalance();
+                if (balance <= 0) return null;
+
+                Entry entry = new Entry(user.getId(), user.getDiscordId(), displayName(user), balance, user.getUpdated());
+                ranking.add(entry);
+                return entry;
+            });
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to update the leaderboard for user " + user.getId(), e);
+        }
+    }
+
+    /**
+     * @return true once the ranking has been filled
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return the number of ranked users
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get one page of the ranking. Only the entries up to the end of the page are visited.
+     *
+     * @param page     Zero-based page number
+     * @param pageSize Number of entries per page
+     * @return The entries on the page, highest balance first. Empty if the page is past the end.
+     */
+    @NotNull
+    public List<Entry> getPage(int page, int pageSize) {
+        if (page < 0 || pageSize < 1) throw new IllegalArgumentException("Invalid page " + page + " of size " + pageSize);
+        List<Entry> result = new ArrayList<>(pageSize);
+        long skip = (long) page * pageSize;
+        Iterator<Entry> iterator = ranking.iterator();
+        while (iterator.hasNext() && result.size() < pageSize) {
+            Entry entry = iterator.next();
+            if (skip > 0) skip--;
+            else result.add(entry);
+        }
+        return result;
+    }
+
+    /**
+     * Get the rank of a user
+     *
+     * @param userId PocketBase record ID
+     * @return The one-based rank, or -1 if the user is not ranked
+     */
+    public int getRank(String userId) {
+        Entry entry = entries.get(userId);
+        if (entry == null) return -1;
+        return ranking.headSet(entry).size() + 1;
+    }
+
+    @NotNull
+    private static String displayName(@NotNull DVUser user) {
+        if (user.getDiscordUsername() != null) return user.getDiscordUsername();
+        if (user.getMinecraftUsername() != null) return user.getMinecraftUsername();
+        return user.getId();
+    }
+
+    /**
+     * A ranked user
+     *
+     * @param userId    PocketBase record ID
+     * @param discordId Discord user ID, if linked
+     * @param name      Name to show
+     * @param balance   Balance at the time of the update
+     * @param updated   When the user record was last updated
+     */
+    public record Entry(@NotNull String userId, @Nullable String discordId, @NotNull String name, double balance,
+                        @Nullable OffsetDateTime updated) {
+        boolean isNewerThan(@Nullable OffsetDateTime other) {
+            return updated != null && other != null && updated.isAfter(other);
+        }
+    }
+}
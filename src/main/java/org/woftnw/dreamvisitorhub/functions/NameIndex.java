@@ -0,0 +1,120 @@
+package org.woftnw.dreamvisitorhub.functions;
+
+import org.jetbrains.annotations.NotNull;
+import org.woftnw.dreamvisitorhub.commands.framework.AutocompleteIndex;
+import org.woftnw.dreamvisitorhub.data.repository.ItemRepository;
+import org.woftnw.dreamvisitorhub.data.repository.UserRepository;
+import org.woftnw.dreamvisitorhub.data.type.DVUser;
+import org.woftnw.dreamvisitorhub.data.type.Item;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The names that commands autocomplete: Minecraft usernames, Discord usernames and item names.
+ *
+ * <p>
+ * The indexes are filled once in the background and from then on updated whenever a user or item is saved or
+ * deleted through the repositories. Until they are filled, autocompletions only know about recent changes.
+ * </p>
+ */
+public class NameIndex {
+    private static final Logger LOGGER = Logger.getLogger(NameIndex.class.getName());
+    private static final long SEED_RETRY_DELAY_MS = 30_000;
+
+    private final UserRepository userRepository;
+    private final ItemRepository itemRepository;
+    private final AutocompleteIndex minecraftUsernames = new AutocompleteIndex();
+    private final AutocompleteIndex discordUsernames = new AutocompleteIndex();
+    private final AutocompleteIndex itemNames = new AutocompleteIndex();
+
+    public NameIndex(UserRepository userRepository, ItemRepository itemRepository) {
+        this.userRepository = userRepository;
+        this.itemRepository = itemRepository;
+    }
+
+    /**
+     * Start listening for changes and fill the indexes in the background
+     */
+    public void start() {
+        userRepository.addListener(new UserRepository.Listener() {
+            @Override
+            public void onSaved(DVUser user) {
+                if (user.getId() == null) return;
+                minecraftUsernames.put(user.getId(), user.getMinecraftUsername());
+                discordUsernames.put(user.getId(), user.getDiscordUsername());
+            }
+
+            @Override
+            public void onDeleted(String id) {
+                minecraftUsernames.remove(id);
+                discordUsernames.remove(id);
+            }
+        });
+        itemRepository.addListener(new ItemRepository.Listener() {
+            @Override
+            public void onSaved(Item item) {
+                if (item.getId() != null) itemNames.put(item.getId(), item.getName());
+            }
+
+            @Override
+            public void onDeleted(String id) {
+                itemNames.remove(id);
+            }
+        });
+
+        Thread thread = new Thread(this::seed, "NameIndexSeed");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void seed() {
+        // Names already in the index came from a change made since, so they are kept
+        while (!userRepository.streamAll(user -> {
+            if (user.getId() == null) return;
+            minecraftUsernames.putIfAbsent(user.getId(), user.getMinecraftUsername());
+            discordUsernames.putIfAbsent(user.getId(), user.getDiscordUsername());
+        })) {
+            LOGGER.warning("Failed to load user names for autocompletion, retrying in " + SEED_RETRY_DELAY_MS / 1000 + " seconds");
+            if (!sleep()) return;
+        }
+
+        try {
+            List<Item> items = itemRepository.findAll();
+            for (Item item : items) {
+                if (item.getId() != null) itemNames.putIfAbsent(item.getId(), item.getName());
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to load item names for autocompletion", e);
+        }
+
+        LOGGER.info("Indexed " + minecraftUsernames.size() + " Minecraft usernames, " + discordUsernames.size()
+                + " Discord usernames and " + itemNames.size() + " item names for autocompletion");
+    }
+
+    private static boolean sleep() {
+        try {
+            Thread.sleep(SEED_RETRY_DELAY_MS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @NotNull
+    public AutocompleteIndex getMinecraftUsernames() {
+        return minecraftUsernames;
+    }
+
+    @NotNull
+    public AutocompleteIndex getDiscordUsernames() {
+        return discordUsernames;
+    }
+
+    @NotNull
+    public AutocompleteIndex getItemNames() {
+        return itemNames;
+    }
+}
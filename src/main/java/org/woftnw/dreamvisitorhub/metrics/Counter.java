@@ -0,0 +1,26 @@
+package org.woftnw.dreamvisitorhub.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count that only goes up, such as a number of errors.
+ */
+public class Counter {
+    private final LongAdder count = new LongAdder();
+
+    public void increment() {
+        count.increment();
+    }
+
+    public long get() {
+        return count.sum();
+    }
+
+    void writeTo(@NotNull StringBuilder out, @NotNull String name, @NotNull String labels) {
+        out.append(name);
+        if (!labels.isEmpty()) out.append('{').append(labels).append('}');
+        out.append(' ').append(count.sum()).append('\n');
+    }
+}
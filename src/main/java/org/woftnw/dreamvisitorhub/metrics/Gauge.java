@@ -0,0 +1,32 @@
+package org.woftnw.dreamvisitorhub.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A value that can go up and down, such as a queue depth. It is read from its source each time the metrics are
+ * rendered, so nothing has to keep it up to date.
+ */
+public class Gauge {
+    private volatile LongSupplier source = () -> 0;
+
+    /**
+     * Set where the value is read from
+     *
+     * @param source Returns the current value. Called on the metrics server thread, so it must be thread-safe.
+     */
+    public void setSource(@NotNull LongSupplier source) {
+        this.source = source;
+    }
+
+    public long get() {
+        return source.getAsLong();
+    }
+
+    void writeTo(@NotNull StringBuilder out, @NotNull String name, @NotNull String labels) {
+        out.append(name);
+        if (!labels.isEmpty()) out.append('{').append(labels).append('}');
+        out.append(' ').append(get()).append('\n');
+    }
+}
@@ -0,0 +1,83 @@
+package org.woftnw.dreamvisitorhub.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A latency histogram with fixed buckets, in the form Prometheus expects.
+ *
+ * <p>
+ * Recording a value finds its bucket and increments two striped counters, so it neither locks nor allocates, and
+ * threads recording at the same time hardly contend. Quantiles such as p50 and p99 are estimated from the buckets by
+ * Prometheus with {@code histogram_quantile}.
+ * </p>
+ */
+public class Histogram {
+    /**
+     * Upper bounds of the buckets in seconds, from one millisecond to ten seconds. Values above the last bound are only
+     * counted in the implicit +Inf bucket.
+     */
+    static final double[] BUCKETS = {
+            0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.075, 0.1, 0.15, 0.25, 0.4, 0.6, 1, 1.5, 2.5, 4, 6, 10
+    };
+    private static final long[] BUCKET_NANOS = new long[BUCKETS.length];
+
+    static {
+        for (int i = 0; i < BUCKETS.length; i++) {
+            BUCKET_NANOS[i] = (long) (BUCKETS[i] * 1_000_000_000L);
+        }
+    }
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    public Histogram() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Record a duration
+     *
+     * @param nanos The duration in nanoseconds
+     */
+    public void observe(long nanos) {
+        if (nanos < 0) nanos = 0;
+        int bucket = 0;
+        while (bucket < BUCKET_NANOS.length && nanos > BUCKET_NANOS[bucket]) bucket++;
+        counts[bucket].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * Record the time passed since a start time taken with {@link System#nanoTime()}
+     *
+     * @param startNanos The start time
+     */
+    public void observeSince(long startNanos) {
+        observe(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Write the buckets, sum and count in the Prometheus text format
+     *
+     * @param out    Where to write
+     * @param name   Metric name
+     * @param labels Labels of this histogram, already formatted as {@code key="value"} pairs, or an empty string
+     */
+    void writeTo(@NotNull StringBuilder out, @NotNull String name, @NotNull String labels) {
+        String separator = labels.isEmpty() ? "" : ",";
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i].sum();
+            String bound = i < BUCKETS.length ? Double.toString(BUCKETS[i]) : "+Inf";
+            out.append(name).append("_bucket{").append(labels).append(separator).append("le=\"").append(bound)
+                    .append("\"} ").append(cumulative).append('\n');
+        }
+        String braces = labels.isEmpty() ? "" : "{" + labels + "}";
+        out.append(name).append("_sum").append(braces).append(' ').append(sumNanos.sum() / 1e9).append('\n');
+        out.append(name).append("_count").append(braces).append(' ').append(cumulative).append('\n');
+    }
+}
@@ -0,0 +1,82 @@
+package org.woftnw.dreamvisitorhub.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * A metric with one instance per combination of label values, such as one histogram per command.
+ *
+ * @param <T> {@link Histogram}, {@link Counter} or {@link Gauge}
+ */
+public class MetricFamily<T> {
+    private final String name;
+    private final String help;
+    private final String type;
+    private final String[] labelNames;
+    private final Supplier<T> factory;
+    /**
+     * Formatted labels to instance. The formatted labels are also the key, so that each is only built once.
+     */
+    private final Map<String, T> instances = new ConcurrentHashMap<>();
+
+    MetricFamily(@NotNull String name, @NotNull String help, @NotNull String type, @NotNull Supplier<T> factory,
+                 @NotNull String... labelNames) {
+        this.name = name;
+        this.help = help;
+        this.type = type;
+        this.factory = factory;
+        this.labelNames = labelNames;
+    }
+
+    /**
+     * Get the instance for some label values, creating it when they are first seen
+     *
+     * @param labelValues One value for each label name, in order
+     * @return The instance
+     */
+    @NotNull
+    public T labels(@NotNull String... labelValues) {
+        if (labelValues.length != labelNames.length) {
+            throw new IllegalArgumentException(name + " needs " + labelNames.length + " label values");
+        }
+        return instances.computeIfAbsent(formatLabels(labelValues), labels -> factory.get());
+    }
+
+    @NotNull
+    private String formatLabels(@NotNull String[] labelValues) {
+        StringBuilder labels = new StringBuilder();
+        for (int i = 0; i < labelNames.length; i++) {
+            if (i > 0) labels.append(',');
+            labels.append(labelNames[i]).append("=\"");
+            String value = labelValues[i] == null ? "" : labelValues[i];
+            for (int c = 0; c < value.length(); c++) {
+                char character = value.charAt(c);
+                switch (character) {
+                    case '\\' -> labels.append("\\\\");
+                    case '"' -> labels.append("\\\"");
+                    case '\n' -> labels.append("\\n");
+                    default -> labels.append(character);
+                }
+            }
+            labels.append('"');
+        }
+        return labels.toString();
+    }
+
+    /**
+     * Write all instances in the Prometheus text format, sorted by labels so that the output is stable
+     */
+    void writeTo(@NotNull StringBuilder out) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        for (Map.Entry<String, T> entry : new TreeMap<>(instances).entrySet()) {
+            if (entry.getValue() instanceof Histogram histogram) histogram.writeTo(out, name, entry.getKey());
+            else if (entry.getValue() instanceof Counter counter) counter.writeTo(out, name, entry.getKey());
+            else if (entry.getValue() instanceof Gauge gauge) gauge.writeTo(out, name, entry.getKey());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.woftnw.dreamvisitorhub.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * The metrics DreamvisitorHub collects, served in the Prometheus text format by the {@link MetricsServer}.
+ */
+public class Metrics {
+
+    public static final MetricFamily<Histogram> COMMAND_DURATION = new MetricFamily<>(
+            "dreamvisitor_command_duration_seconds",
+            "Time spent running a slash command handler, including work it finishes in callbacks.",
+            "histogram", Histogram::new, "command");
+    public static final MetricFamily<Histogram> COMMAND_REPLY_LATENCY = new MetricFamily<>(
+            "dreamvisitor_command_reply_seconds",
+            "Time from the creation of an interaction until its reply was sent, through the hook if it was deferred.",
+            "histogram", Histogram::new, "command", "deferred");
+    public static final MetricFamily<Counter> COMMAND_DEFERRED = new MetricFamily<>(
+            "dreamvisitor_command_deferred_total",
+            "Interactions whose reply was deferred because the handler did not answer in time.",
+            "counter", Counter::new, "command");
+    public static final MetricFamily<Counter> COMMAND_ERRORS = new MetricFamily<>(
+            "dreamvisitor_command_errors_total",
+            "Slash command handlers that threw an exception or whose callbacks failed.",
+            "counter", Counter::new, "command");
+    public static final MetricFamily<Histogram> POCKETBASE_REQUEST_DURATION = new MetricFamily<>(
+            "dreamvisitor_pocketbase_request_duration_seconds",
+            "Time from sending a PocketBase request until the response headers arrived.",
+            "histogram", Histogram::new, "collection", "method");
+    public static final MetricFamily<Counter> POCKETBASE_REQUEST_ERRORS = new MetricFamily<>(
+            "dreamvisitor_pocketbase_request_errors_total",
+            "PocketBase requests that failed or were answered with an error status.",
+            "counter", Counter::new, "collection", "method");
+    public static final MetricFamily<Gauge> CHAT_RELAY_QUEUE_DEPTH = new MetricFamily<>(
+            "dreamvisitor_chat_relay_queue_depth",
+            "Game chat messages waiting to be sent to Discord.",
+            "gauge", Gauge::new);
+    public static final MetricFamily<Histogram> CHAT_RELAY_FLUSH_LATENCY = new MetricFamily<>(
+            "dreamvisitor_chat_relay_flush_latency_seconds",
+            "Time from queueing the oldest game chat message of a batch until Discord accepted the batch.",
+            "histogram", Histogram::new);
+    public static final MetricFamily<Counter> CHAT_RELAY_REJECTED = new MetricFamily<>(
+            "dreamvisitor_chat_relay_rejected_total",
+            "Game chat messages turned away because the relay queue was full. They are retried by a later drain.",
+            "counter", Counter::new);
+    public static final MetricFamily<Counter> CHAT_RELAY_FAILED_FLUSHES = new MetricFamily<>(
+            "dreamvisitor_chat_relay_failed_flushes_total",
+            "Batches of game chat messages that could not be sent to Discord.",
+            "counter", Counter::new);
+
+    public static final MetricFamily<Gauge> USER_REPLICA_EVENT_LAG = new MetricFamily<>(
+            "dreamvisitor_user_replica_event_lag_milliseconds",
+            "Time between the most recent user change in PocketBase and the user replica applying it.",
+            "gauge", Gauge::new);
+    public static final MetricFamily<Gauge> USER_REPLICA_MAX_EVENT_LAG = new MetricFamily<>(
+            "dreamvisitor_user_replica_max_event_lag_milliseconds",
+            "Highest time seen between a user change in PocketBase and the user replica applying it.",
+            "gauge", Gauge::new);
+
+    private static final List<MetricFamily<?>> FAMILIES = List.of(COMMAND_DURATION, COMMAND_REPLY_LATENCY,
+            COMMAND_DEFERRED, COMMAND_ERRORS, POCKETBASE_REQUEST_DURATION, POCKETBASE_REQUEST_ERRORS,
+            CHAT_RELAY_QUEUE_DEPTH, CHAT_RELAY_FLUSH_LATENCY, CHAT_RELAY_REJECTED, CHAT_RELAY_FAILED_FLUSHES,
+            USER_REPLICA_EVENT_LAG, USER_REPLICA_MAX_EVENT_LAG);
+
+    /**
+     * Record a finished PocketBase request
+     *
+     * @param collection The collection, or the endpoint for requests outside of collections
+     * @param method     HTTP method
+     * @param nanos      How long the request took
+     * @param success    Whether it was answered with a successful status
+     */
+    public static void recordPocketBaseRequest(@NotNull String collection, @NotNull String method, long nanos,
+                                               boolean success) {
+        POCKETBASE_REQUEST_DURATION.labels(collection, method).observe(nanos);
+        if (!success) POCKETBASE_REQUEST_ERRORS.labels(collection, method).increment();
+    }
+
+    /**
+     * @return all metrics in the Prometheus text format
+     */
+    @NotNull
+    public static String render() {
+        StringBuilder out = new StringBuilder();
+        for (MetricFamily<?> family : FAMILIES) {
+            family.writeTo(out);
+        }
+        return out.toString();
+    }
+}
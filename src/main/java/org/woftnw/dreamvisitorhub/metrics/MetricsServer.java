@@ -0,0 +1,62 @@
+package org.woftnw.dreamvisitorhub.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Logger;
+
+/**
+ * Serves {@link Metrics#render()} at {@code /metrics} for Prometheus to scrape. It only listens on the loopback
+ * address, so the metrics are not exposed beyond the host.
+ */
+public class MetricsServer {
+    private static final Logger LOGGER = Logger.getLogger(MetricsServer.class.getName());
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer server;
+
+    private MetricsServer(@NotNull HttpServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Start serving metrics
+     *
+     * @param port The local port to listen on
+     * @return The running server
+     * @throws IOException If the port could not be bound
+     */
+    @NotNull
+    public static MetricsServer start(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", MetricsServer::handle);
+        server.start();
+        LOGGER.info("Serving metrics at http://" + server.getAddress().getHostString() + ":" + port + "/metrics");
+        return new MetricsServer(server);
+    }
+
+    private static void handle(@NotNull HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = Metrics.render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+}
@@ -1,22 +1,57 @@
 package org.woftnw.dreamvisitorhub.pb;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import okhttp3.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 
 public class PocketBase {
     private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    /**
+     * The default maximum number of requests in one batch, matching PocketBase's default setting
+     */
+    public static final int DEFAULT_BATCH_SIZE = 50;
+    /**
+     * The default maximum number of pages requested at the same time by {@link #getFullList}
+     */
+    public static final int DEFAULT_PARALLEL_PAGES = 4;
+    /**
+     * The maximum length of one filter built by {@link #getRecordsByIds}. About 80 IDs fit, and the encoded query
+     * string stays well below the 8 KB URL limit common to proxies and servers.
+     */
+    public static final int MAX_ID_FILTER_LENGTH = 2000;
+    /**
+     * Characters allowed in record IDs passed to {@link #getRecordsByIds}. This is PocketBase's default pattern for the
+     * id field.
+     */
+    private static final Pattern RECORD_ID_PATTERN = Pattern.compile("[a-z0-9]+");
     private final OkHttpClient client;
     private final Gson gson;
     private final String baseUrl;
     private String token;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int parallelPages = DEFAULT_PARALLEL_PAGES;
+    private PocketBaseRealtime realtime;
+    private volatile RequestListener requestListener;
 
     /**
      * Creates a new PocketBase SDK instance.
@@ -32,7 +67,10 @@ public class PocketBase {
                 .connectTimeout(30, TimeUnit.SECONDS)
                 .readTimeout(30, TimeUnit.SECONDS)
                 .writeTimeout(30, TimeUnit.SECONDS)
+                .addInterceptor(this::timeRequest)
                 .build();
+        // Every request goes to the same host, so the default limit of 5 would cap parallel page fetching
+        this.client.dispatcher().setMaxRequestsPerHost(this.client.dispatcher().getMaxRequests());
     }
 
     /**
@@ -44,7 +82,14 @@ public class PocketBase {
     public static PocketBase fromConfig(@NotNull Map<String, Object> config) {
         String baseUrl = (String) config.get("pocketbaseUrl");
         String token = (String) config.get("pocketbaseToken");
-        return new PocketBase(baseUrl, token);
+        PocketBase pocketBase = new PocketBase(baseUrl, token);
+        if (config.get("pocketbaseBatchSize") instanceof Number batchSize) {
+            pocketBase.setBatchSize(batchSize.intValue());
+        }
+        if (config.get("pocketbaseParallelPages") instanceof Number parallelPages) {
+            pocketBase.setParallelPages(parallelPages.intValue());
+        }
+        return pocketBase;
     }
 
     /**
@@ -55,7 +100,7 @@ public class PocketBase {
      * @return The complete URL
      */
     @NotNull
-    private HttpUrl buildUrl(String endpoint, @Nullable Map<String, String> queryParams) {
+    HttpUrl buildUrl(String endpoint, @Nullable Map<String, String> queryParams) {
         HttpUrl.Builder urlBuilder = Objects.requireNonNull(HttpUrl.parse(this.baseUrl + endpoint)).newBuilder();
 
         if (queryParams != null) {
@@ -68,18 +113,17 @@ public class PocketBase {
     }
 
     /**
-     * Helper method to execute HTTP requests
+     * Helper method to build HTTP requests
      *
      * @param method      HTTP method
      * @param endpoint    API endpoint
      * @param body        Request body
      * @param queryParams Query parameters
-     * @return Response string
-     * @throws IOException If the request fails
+     * @return The request
      */
     @NotNull
-    private String executeRequest(@NotNull String method, String endpoint, @Nullable RequestBody body,
-                                  @Nullable Map<String, String> queryParams) throws IOException {
+    private Request buildRequest(@NotNull String method, String endpoint, @Nullable RequestBody body,
+                                 @Nullable Map<String, String> queryParams) {
         HttpUrl url = buildUrl(endpoint, queryParams);
 
         Request.Builder requestBuilder = new Request.Builder()
@@ -103,15 +147,178 @@ public class PocketBase {
                 throw new IllegalArgumentException("Unsupported HTTP method: " + method);
         }
 
-        Request request = requestBuilder.build();
+        return requestBuilder.build();
+    }
+
+    /**
+     * Helper method to read the body of a response
+     *
+     * @param response The response
+     * @return Response string
+     * @throws IOException If the request was not successful
+     */
+    @NotNull
+    private static String readResponse(@NotNull Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            String errorBody = response.body() != null ? response.body().string() : "No response body";
+            throw new IOException("Request failed with code " + response.code() + ": " + errorBody);
+        }
+
+        return response.body() != null ? response.body().string() : "";
+    }
+
+    /**
+     * Interceptor that tells the request listener how long each request took. The realtime stream stays open for as
+     * long as it is connected, so it is not timed.
+     */
+    @NotNull
+    private Response timeRequest(@NotNull Interceptor.Chain chain) throws IOException {
+        RequestListener listener = requestListener;
+        Request request = chain.request();
+        String collection = describeCollection(request.url());
+        if (listener == null || collection.equals("realtime")) return chain.proceed(request);
+
+        long start = System.nanoTime();
+        try {
+            Response response = chain.proceed(request);
+            listener.onRequest(collection, request.method(), System.nanoTime() - start, response.isSuccessful());
+            return response;
+        } catch (IOException | RuntimeException e) {
+            listener.onRequest(collection, request.method(), System.nanoTime() - start, false);
+            throw e;
+        }
+    }
+
+    /**
+     * Helper method to name what a request is about: the collection for record and file requests, and otherwise the
+     * part of the API, such as "batch"
+     *
+     * @param url The request URL
+     * @return The collection or API name
+     */
+    @NotNull
+    static String describeCollection(@NotNull HttpUrl url) {
+        List<String> segments = url.pathSegments();
+        int api = segments.indexOf("api");
+        if (api < 0 || api + 1 >= segments.size()) return "other";
+        String area = segments.get(api + 1);
+        if ((area.equals("collections") || area.equals("files")) && api + 2 < segments.size()) {
+            return segments.get(api + 2);
+        }
+        return area;
+    }
+
+    /**
+     * Helper method to execute HTTP requests
+     *
+     * @param method      HTTP method
+     * @param endpoint    API endpoint
+     * @param body        Request body
+     * @param queryParams Query parameters
+     * @return Response string
+     * @throws IOException If the request fails
+     */
+    @NotNull
+    private String executeRequest(@NotNull String method, String endpoint, @Nullable RequestBody body,
+                                  @Nullable Map<String, String> queryParams) throws IOException {
+        Request request = buildRequest(method, endpoint, body, queryParams);
         try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "No response body";
-                throw new IOException("Request failed with code " + response.code() + ": " + errorBody);
+            return readResponse(response);
+        }
+    }
+
+    /**
+     * Helper method to execute HTTP requests without blocking the calling thread. The request is run by the OkHttp
+     * dispatcher and the returned future is completed on one of its threads.
+     *
+     * @param method      HTTP method
+     * @param endpoint    API endpoint
+     * @param body        Request body
+     * @param queryParams Query parameters
+     * @return Future of the response string, completed exceptionally with an {@link IOException} if the request fails
+     */
+    @NotNull
+    private CompletableFuture<String> executeRequestAsync(@NotNull String method, String endpoint,
+                                                         @Nullable RequestBody body,
+                                                         @Nullable Map<String, String> queryParams) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        Call call = client.newCall(buildRequest(method, endpoint, body, queryParams));
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(@NotNull Call call, @NotNull Response response) {
+                try (response) {
+                    future.complete(readResponse(response));
+                } catch (IOException e) {
+                    future.completeExceptionally(e);
+                }
             }
+        });
+
+        // Cancelling the future cancels the HTTP call
+        future.whenComplete((result, throwable) -> {
+            if (future.isCancelled()) call.cancel();
+        });
+        return future;
+    }
+
+    /**
+     * Helper method to build the query parameters shared by most record endpoints
+     *
+     * @param expand Optional relations to expand
+     * @param fields Optional fields to return
+     * @return Query parameters
+     */
+    @NotNull
+    private static Map<String, String> recordQueryParams(@Nullable String expand, @Nullable String fields) {
+        Map<String, String> queryParams = new HashMap<>();
+        if (expand != null)
+            queryParams.put("expand", expand);
+        if (fields != null)
+            queryParams.put("fields", fields);
+        return queryParams;
+    }
+
+    /**
+     * Helper method to build the query parameters of a list request
+     */
+    @NotNull
+    private static Map<String, String> listQueryParams(@Nullable Integer page, @Nullable Integer perPage,
+                                                       @Nullable String sort, @Nullable String filter,
+                                                       @Nullable String expand, @Nullable String fields,
+                                                       @Nullable Boolean skipTotal) {
+        Map<String, String> queryParams = recordQueryParams(expand, fields);
+        if (page != null)
+            queryParams.put("page", page.toString());
+        if (perPage != null)
+            queryParams.put("perPage", perPage.toString());
+        if (sort != null)
+            queryParams.put("sort", sort);
+        if (filter != null)
+            queryParams.put("filter", filter);
+        if (skipTotal != null && skipTotal)
+            queryParams.put("skipTotal", "true");
+        return queryParams;
+    }
 
-            return response.body() != null ? response.body().string() : "";
+    /**
+     * Unwraps the {@link CompletionException} that dependent stages wrap failures in, so that callers see the
+     * original exception.
+     *
+     * @param throwable The exception a future completed with
+     * @return The underlying exception
+     */
+    @NotNull
+    public static Throwable unwrap(@NotNull Throwable throwable) {
+        while (throwable instanceof CompletionException && throwable.getCause() != null) {
+            throwable = throwable.getCause();
         }
+        return throwable;
     }
 
     /**
@@ -131,11 +338,7 @@ public class PocketBase {
                                   @Nullable String expand, @Nullable String fields) throws IOException {
         String endpoint = "api/collections/" + collectionIdOrName + "/impersonate/" + recordId;
 
-        Map<String, String> queryParams = new HashMap<>();
-        if (expand != null)
-            queryParams.put("expand", expand);
-        if (fields != null)
-            queryParams.put("fields", fields);
+        Map<String, String> queryParams = recordQueryParams(expand, fields);
 
         JsonObject jsonBody = new JsonObject();
         if (duration != null)
@@ -168,22 +371,7 @@ public class PocketBase {
                                   @Nullable String expand, @Nullable String fields,
                                   @Nullable Boolean skipTotal) throws IOException {
         String endpoint = "api/collections/" + collectionIdOrName + "/records";
-
-        Map<String, String> queryParams = new HashMap<>();
-        if (page != null)
-            queryParams.put("page", page.toString());
-        if (perPage != null)
-            queryParams.put("perPage", perPage.toString());
-        if (sort != null)
-            queryParams.put("sort", sort);
-        if (filter != null)
-            queryParams.put("filter", filter);
-        if (expand != null)
-            queryParams.put("expand", expand);
-        if (fields != null)
-            queryParams.put("fields", fields);
-        if (skipTotal != null && skipTotal)
-            queryParams.put("skipTotal", "true");
+        Map<String, String> queryParams = listQueryParams(page, perPage, sort, filter, expand, fields, skipTotal);
 
         String response = executeRequest("GET", endpoint, null, queryParams);
         return gson.fromJson(response, ListResult.class);
@@ -200,6 +388,7 @@ public class PocketBase {
      * @param fields             Optional fields to return
      * @return List of records
      * @throws IOException If the request fails
+     * @see #getFullList(String, Integer, String, String, String, String, Consumer)
      */
     public List<JsonObject> getFullList(String collectionIdOrName,
                                         @Nullable Integer batch,
@@ -207,32 +396,202 @@ public class PocketBase {
                                         @Nullable String filter,
                                         @Nullable String expand,
                                         @Nullable String fields) throws IOException {
-        int batchSize = batch != null ? batch : 500;
         List<JsonObject> allItems = new ArrayList<>();
-        int page = 1;
-
-        while (true) {
-            ListResult result = listRecords(
-                    collectionIdOrName,
-                    page,
-                    batchSize,
-                    sort,
-                    filter,
-                    expand,
-                    fields,
-                    true // skipTotal for optimization
-            );
-
-            allItems.addAll(result.items);
-
-            if (result.items.size() < batchSize) {
-                break;
+        getFullList(collectionIdOrName, batch, sort, filter, expand, fields, allItems::add);
+        return allItems;
+    }
+
+    /**
+     * Gets the full list of records from a collection (auto-paginated) and passes each record to a consumer.
+     *
+     * @param collectionIdOrName Collection ID or name
+     * @param batch              Batch size (default: 500)
+     * @param sort               Optional sorting
+     * @param filter             Optional filter expression
+     * @param expand             Optional relations to expand
+     * @param fields             Optional fields to return
+     * @param consumer           Called on the calling thread with each record, in order
+     * @throws IOException If a request fails. Records of earlier pages may already have been passed to the consumer.
+     * @see #streamFullList(String, Integer, String, String, String, String, Function, Consumer)
+     */
+    public void getFullList(String collectionIdOrName,
+                            @Nullable Integer batch,
+                            @Nullable String sort,
+                            @Nullable String filter,
+                            @Nullable String expand,
+                            @Nullable String fields,
+                            @NotNull Consumer<JsonObject> consumer) throws IOException {
+        streamFullList(collectionIdOrName, batch, sort, filter, expand, fields, Function.identity(), consumer);
+    }
+
+    /**
+     * Streams the full list of records from a collection (auto-paginated), mapping each record as it is read.
+     *
+     * <p>
+     * The first page is requested together with the total count. The remaining pages are then requested in parallel,
+     * with at most {@link #getParallelPages()} pages in flight at a time. Records are passed to the consumer in
+     * order, as soon as all earlier records have been delivered.
+     * </p>
+     * <p>
+     * Response bodies are not loaded into memory as a whole. The {@code items} array of each page is decoded one
+     * record at a time with a {@link JsonReader} reading directly from the connection, and each record can be
+     * discarded once it has been mapped. Pages that arrive early wait unread on their connection until it is their
+     * turn, so memory use does not grow with the size of the collection unless the consumer collects the results.
+     * </p>
+     *
+     * @param collectionIdOrName Collection ID or name
+     * @param batch              Batch size (default: 500)
+     * @param sort               Optional sorting
+     * @param filter             Optional filter expression
+     * @param expand             Optional relations to expand
+     * @param fields             Optional fields to return
+     * @param mapper             Converts each record, called on the calling thread
+     * @param consumer           Called on the calling thread with each mapped record, in order
+     * @throws IOException If a request fails. Records of earlier pages may already have been passed to the consumer.
+     */
+    public <T> void streamFullList(String collectionIdOrName,
+                                   @Nullable Integer batch,
+                                   @Nullable String sort,
+                                   @Nullable String filter,
+                                   @Nullable String expand,
+                                   @Nullable String fields,
+                                   @NotNull Function<JsonObject, T> mapper,
+                                   @NotNull Consumer<T> consumer) throws IOException {
+        int batchSize = batch != null ? batch : 500;
+        String endpoint = "api/collections/" + collectionIdOrName + "/records";
+
+        Request firstRequest = buildRequest("GET", endpoint, null,
+                listQueryParams(1, batchSize, sort, filter, expand, fields, false));
+        int totalPages;
+        try (Response response = client.newCall(firstRequest).execute()) {
+            totalPages = streamPage(response, mapper, consumer);
+        }
+
+        // Pages are requested in order and delivered in order, so the window of pages in flight is a simple queue
+        Deque<CompletableFuture<Response>> inFlight = new ArrayDeque<>();
+        int nextPage = 2;
+        try {
+            while (nextPage <= totalPages || !inFlight.isEmpty()) {
+                while (nextPage <= totalPages && inFlight.size() < parallelPages) {
+                    Request request = buildRequest("GET", endpoint, null,
+                            listQueryParams(nextPage++, batchSize, sort, filter, expand, fields, true));
+                    inFlight.add(openAsync(request));
+                }
+
+                try (Response response = await(inFlight.poll())) {
+                    streamPage(response, mapper, consumer);
+                }
+            }
+        } finally {
+            // Only non-empty if a request or the consumer failed
+            for (CompletableFuture<Response> future : inFlight) {
+                future.cancel(true);
+                future.thenAccept(Response::close);
+            }
+        }
+    }
+
+    /**
+     * Helper method to send a request without blocking and without reading the response body. The future completes
+     * once the response headers have arrived, so the body can be read by the thread that waits for it.
+     *
+     * @param request The request to send
+     * @return Future of the response, which must be closed. Completed exceptionally if the request was not successful.
+     */
+    @NotNull
+    private CompletableFuture<Response> openAsync(@NotNull Request request) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        Call call = client.newCall(request);
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                future.completeExceptionally(e);
             }
 
-            page++;
+            @Override
+            public void onResponse(@NotNull Call call, @NotNull Response response) {
+                if (!response.isSuccessful()) {
+                    try (response) {
+                        readResponse(response);
+                    } catch (IOException e) {
+                        future.completeExceptionally(e);
+                    }
+                    return;
+                }
+                // If the future was cancelled in the meantime, nobody is going to read the body
+                if (!future.complete(response)) response.close();
+            }
+        });
+
+        future.whenComplete((result, throwable) -> {
+            if (future.isCancelled()) call.cancel();
+        });
+        return future;
+    }
+
+    /**
+     * Helper method to decode a list response directly from its body, passing each record in {@code items} to the
+     * consumer as soon as it has been read.
+     *
+     * @param response A list response
+     * @param mapper   Converts each record
+     * @param consumer Called with each mapped record
+     * @return The total number of pages if the response includes it, otherwise 0
+     * @throws IOException If the request was not successful or the body could not be read
+     */
+    private <T> int streamPage(@NotNull Response response, @NotNull Function<JsonObject, T> mapper,
+                               @NotNull Consumer<T> consumer) throws IOException {
+        if (!response.isSuccessful() || response.body() == null) {
+            readResponse(response);
+            throw new IOException("Request failed with code " + response.code() + ": No response body");
         }
 
-        return allItems;
+        int totalPages = 0;
+        try (JsonReader reader = new JsonReader(response.body().charStream())) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("items") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        JsonObject record = JsonParser.parseReader(reader).getAsJsonObject();
+                        consumer.accept(mapper.apply(record));
+                    }
+                    reader.endArray();
+                } else if (name.equals("totalPages") && reader.peek() == JsonToken.NUMBER) {
+                    totalPages = reader.nextInt();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException("Malformed list response", e);
+        }
+
+        return totalPages;
+    }
+
+    /**
+     * Helper method to wait for a future from one of the asynchronous methods and rethrow its failure
+     *
+     * @param future The future to wait for
+     * @return The result of the future
+     * @throws IOException If the request failed or the thread was interrupted
+     */
+    private static <T> T await(@NotNull CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for PocketBase");
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e.getCause());
+            if (cause instanceof IOException ioException) throw ioException;
+            if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new IOException(cause);
+        }
     }
 
     /**
@@ -283,16 +642,64 @@ public class PocketBase {
                                 @Nullable String expand, @Nullable String fields) throws IOException {
         String endpoint = "api/collections/" + collectionIdOrName + "/records/" + recordId;
 
-        Map<String, String> queryParams = new HashMap<>();
-        if (expand != null)
-            queryParams.put("expand", expand);
-        if (fields != null)
-            queryParams.put("fields", fields);
+        Map<String, String> queryParams = recordQueryParams(expand, fields);
 
         String response = executeRequest("GET", endpoint, null, queryParams);
         return gson.fromJson(response, JsonObject.class);
     }
 
+    /**
+     * Gets several records by ID with as few requests as possible
+     *
+     * <p>
+     * The IDs are combined into {@code id = '...' || id = '...'} filters. So that the query string stays within URL
+     * length limits, the filter is split into chunks of at most {@link #MAX_ID_FILTER_LENGTH} characters, and each
+     * chunk is fetched with one list request. IDs that don't exist are left out of the result. IDs are placed in the
+     * filter as they are, so only IDs made of lowercase letters and digits are accepted.
+     * </p>
+     *
+     * @param collectionIdOrName Collection ID or name
+     * @param recordIds          Record IDs. Duplicates are only requested once.
+     * @param expand             Optional relations to expand
+     * @param fields             Optional fields to return
+     * @return The records that were found, in no particular order
+     * @throws IOException              If a request fails
+     * @throws IllegalArgumentException If an ID contains anything other than lowercase letters and digits
+     */
+    @NotNull
+    public List<JsonObject> getRecordsByIds(String collectionIdOrName, @NotNull Collection<String> recordIds,
+                                            @Nullable String expand, @Nullable String fields) throws IOException {
+        List<JsonObject> records = new ArrayList<>(recordIds.size());
+        StringBuilder filter = new StringBuilder();
+        int count = 0;
+
+        Set<String> uniqueIds = new LinkedHashSet<>(recordIds);
+        for (String recordId : uniqueIds) {
+            if (recordId == null || !RECORD_ID_PATTERN.matcher(recordId).matches()) {
+                throw new IllegalArgumentException("Invalid record ID: " + recordId);
+            }
+        }
+
+        for (String recordId : uniqueIds) {
+            String condition = "id = '" + recordId + "'";
+            if (count > 0 && filter.length() + 4 + condition.length() > MAX_ID_FILTER_LENGTH) {
+                records.addAll(listRecords(collectionIdOrName, 1, count, null, filter.toString(), expand, fields,
+                        true).items);
+                filter.setLength(0);
+                count = 0;
+            }
+            if (count > 0) filter.append(" || ");
+            filter.append(condition);
+            count++;
+        }
+        if (count > 0) {
+            records.addAll(listRecords(collectionIdOrName, 1, count, null, filter.toString(), expand, fields,
+                    true).items);
+        }
+
+        return records;
+    }
+
     /**
      * Creates a new record
      *
@@ -307,11 +714,7 @@ public class PocketBase {
                                    @Nullable String expand, @Nullable String fields) throws IOException {
         String endpoint = "api/collections/" + collectionIdOrName + "/records";
 
-        Map<String, String> queryParams = new HashMap<>();
-        if (expand != null)
-            queryParams.put("expand", expand);
-        if (fields != null)
-            queryParams.put("fields", fields);
+        Map<String, String> queryParams = recordQueryParams(expand, fields);
 
         RequestBody body = RequestBody.create(gson.toJson(bodyData), JSON);
         String response = executeRequest("POST", endpoint, body, queryParams);
@@ -333,11 +736,7 @@ public class PocketBase {
                                    @Nullable String expand, @Nullable String fields) throws IOException {
         String endpoint = "api/collections/" + collectionIdOrName + "/records/" + recordId;
 
-        Map<String, String> queryParams = new HashMap<>();
-        if (expand != null)
-            queryParams.put("expand", expand);
-        if (fields != null)
-            queryParams.put("fields", fields);
+        Map<String, String> queryParams = recordQueryParams(expand, fields);
 
         RequestBody body = RequestBody.create(gson.toJson(bodyData), JSON);
         String response = executeRequest("PATCH", endpoint, body, queryParams);
@@ -356,6 +755,230 @@ public class PocketBase {
         executeRequest("DELETE", endpoint, null, null);
     }
 
+    /**
+     * Sends several create, update or delete requests through the batch API ({@code api/batch}), so that they cost
+     * one round trip instead of one each. The batch API must be enabled in the PocketBase settings.
+     *
+     * <p>
+     * Requests are split into chunks of at most {@link #getBatchSize()} requests, which are sent one after the other.
+     * PocketBase runs each chunk in a single transaction, so if any request in a chunk fails, none of that chunk is
+     * applied and an exception is thrown. Chunks sent before the failing one stay applied.
+     * </p>
+     *
+     * @param requests The requests to send
+     * @return The response of each request, in the same order, as objects with a {@code status} and a {@code body}
+     * @throws IOException If a chunk fails
+     */
+    @NotNull
+    public List<JsonObject> batch(@NotNull List<BatchRequest> requests) throws IOException {
+        List<JsonObject> results = new ArrayList<>(requests.size());
+
+        for (int start = 0; start < requests.size(); start += batchSize) {
+            List<BatchRequest> chunk = requests.subList(start, Math.min(start + batchSize, requests.size()));
+            String response = executeRequest("POST", "api/batch", batchBody(chunk), null);
+            results.addAll(parseBatchResponse(response));
+        }
+
+        return results;
+    }
+
+    /**
+     * Helper method to build the body of a batch request
+     *
+     * @param chunk Requests to include, at most {@link #getBatchSize()}
+     * @return Request body
+     */
+    @NotNull
+    private RequestBody batchBody(@NotNull List<BatchRequest> chunk) {
+        JsonArray requestArray = new JsonArray();
+        for (BatchRequest request : chunk) {
+            JsonObject requestJson = new JsonObject();
+            requestJson.addProperty("method", request.method());
+            requestJson.addProperty("url", request.url());
+            if (request.body() != null) requestJson.add("body", gson.toJsonTree(request.body()));
+            requestArray.add(requestJson);
+        }
+
+        JsonObject jsonBody = new JsonObject();
+        jsonBody.add("requests", requestArray);
+        return RequestBody.create(jsonBody.toString(), JSON);
+    }
+
+    @NotNull
+    private List<JsonObject> parseBatchResponse(@NotNull String response) {
+        List<JsonObject> results = new ArrayList<>();
+        for (JsonElement result : gson.fromJson(response, JsonArray.class)) {
+            results.add(result.getAsJsonObject());
+        }
+        return results;
+    }
+
+    // Asynchronous variants
+    //
+    // These take the same arguments as their blocking counterparts above but return immediately. Requests are run by
+    // the OkHttp dispatcher, so no thread waits on the network. The returned futures complete on a dispatcher thread;
+    // dependent stages that block should use one of the *Async methods of CompletableFuture with their own executor.
+    // Failures complete the future exceptionally with the same IOException the blocking method would throw, wrapped
+    // in a CompletionException by any dependent stage (see unwrap(Throwable)).
+
+    /**
+     * Asynchronous version of {@link #impersonate(String, String, Integer, String, String)}
+     */
+    @NotNull
+    public CompletableFuture<PocketBase> impersonateAsync(String collectionIdOrName, String recordId,
+                                                          @Nullable Integer duration,
+                                                          @Nullable String expand, @Nullable String fields) {
+        String endpoint = "api/collections/" + collectionIdOrName + "/impersonate/" + recordId;
+
+        JsonObject jsonBody = new JsonObject();
+        if (duration != null)
+            jsonBody.addProperty("duration", duration);
+
+        RequestBody body = RequestBody.create(jsonBody.toString(), JSON);
+        return executeRequestAsync("POST", endpoint, body, recordQueryParams(expand, fields))
+                .thenApply(response -> new PocketBase(this.baseUrl,
+                        gson.fromJson(response, ImpersonateResponse.class).token));
+    }
+
+    /**
+     * Asynchronous version of {@link #listRecords(String, Integer, Integer, String, String, String, String, Boolean)}
+     */
+    @NotNull
+    public CompletableFuture<ListResult> listRecordsAsync(String collectionIdOrName,
+                                                          @Nullable Integer page, @Nullable Integer perPage,
+                                                          @Nullable String sort, @Nullable String filter,
+                                                          @Nullable String expand, @Nullable String fields,
+                                                          @Nullable Boolean skipTotal) {
+        String endpoint = "api/collections/" + collectionIdOrName + "/records";
+        Map<String, String> queryParams = listQueryParams(page, perPage, sort, filter, expand, fields, skipTotal);
+
+        return executeRequestAsync("GET", endpoint, null, queryParams)
+                .thenApply(response -> gson.fromJson(response, ListResult.class));
+    }
+
+    /**
+     * Asynchronous version of {@link #getFullList(String, Integer, String, String, String, String)}. Pages are
+     * requested one after the other, each as soon as the previous one has arrived.
+     */
+    @NotNull
+    public CompletableFuture<List<JsonObject>> getFullListAsync(String collectionIdOrName,
+                                                                @Nullable Integer batch,
+                                                                @Nullable String sort,
+                                                                @Nullable String filter,
+                                                                @Nullable String expand,
+                                                                @Nullable String fields) {
+        int batchSize = batch != null ? batch : 500;
+        return fetchPagesAsync(collectionIdOrName, 1, batchSize, sort, filter, expand, fields, new ArrayList<>());
+    }
+
+    @NotNull
+    private CompletableFuture<List<JsonObject>> fetchPagesAsync(String collectionIdOrName, int page, int batchSize,
+                                                                @Nullable String sort, @Nullable String filter,
+                                                                @Nullable String expand, @Nullable String fields,
+                                                                @NotNull List<JsonObject> allItems) {
+        return listRecordsAsync(collectionIdOrName, page, batchSize, sort, filter, expand, fields, true)
+                .thenCompose(result -> {
+                    allItems.addAll(result.items);
+                    if (result.items.size() < batchSize) {
+                        return CompletableFuture.completedFuture(allItems);
+                    }
+                    return fetchPagesAsync(collectionIdOrName, page + 1, batchSize, sort, filter, expand, fields,
+                            allItems);
+                });
+    }
+
+    /**
+     * Asynchronous version of {@link #getFirstListItem(String, String, String, String, String)}
+     */
+    @NotNull
+    public CompletableFuture<JsonObject> getFirstListItemAsync(String collectionIdOrName,
+                                                               @NotNull String filter,
+                                                               @Nullable String sort,
+                                                               @Nullable String expand,
+                                                               @Nullable String fields) {
+        return listRecordsAsync(collectionIdOrName, 1, 1, sort, filter, expand, fields, true)
+                .thenCompose(result -> result.items.isEmpty()
+                        ? CompletableFuture.failedFuture(new IOException("No records found."))
+                        : CompletableFuture.completedFuture(result.items.get(0)));
+    }
+
+    /**
+     * Asynchronous version of {@link #getRecord(String, String, String, String)}
+     */
+    @NotNull
+    public CompletableFuture<JsonObject> getRecordAsync(String collectionIdOrName, String recordId,
+                                                        @Nullable String expand, @Nullable String fields) {
+        String endpoint = "api/collections/" + collectionIdOrName + "/records/" + recordId;
+        return executeRequestAsync("GET", endpoint, null, recordQueryParams(expand, fields))
+                .thenApply(response -> gson.fromJson(response, JsonObject.class));
+    }
+
+    /**
+     * Asynchronous version of {@link #createRecord(String, Object, String, String)}
+     */
+    @NotNull
+    public CompletableFuture<JsonObject> createRecordAsync(String collectionIdOrName, Object bodyData,
+                                                           @Nullable String expand, @Nullable String fields) {
+        String endpoint = "api/collections/" + collectionIdOrName + "/records";
+        RequestBody body = RequestBody.create(gson.toJson(bodyData), JSON);
+        return executeRequestAsync("POST", endpoint, body, recordQueryParams(expand, fields))
+                .thenApply(response -> gson.fromJson(response, JsonObject.class));
+    }
+
+    /**
+     * Asynchronous version of {@link #updateRecord(String, String, Object, String, String)}
+     */
+    @NotNull
+    public CompletableFuture<JsonObject> updateRecordAsync(String collectionIdOrName, String recordId, Object bodyData,
+                                                           @Nullable String expand, @Nullable String fields) {
+        String endpoint = "api/collections/" + collectionIdOrName + "/records/" + recordId;
+        RequestBody body = RequestBody.create(gson.toJson(bodyData), JSON);
+        return executeRequestAsync("PATCH", endpoint, body, recordQueryParams(expand, fields))
+                .thenApply(response -> gson.fromJson(response, JsonObject.class));
+    }
+
+    /**
+     * Asynchronous version of {@link #deleteRecord(String, String)}
+     */
+    @NotNull
+    public CompletableFuture<Void> deleteRecordAsync(String collectionIdOrName, String recordId) {
+        String endpoint = "api/collections/" + collectionIdOrName + "/records/" + recordId;
+        return executeRequestAsync("DELETE", endpoint, null, null).thenApply(response -> null);
+    }
+
+    /**
+     * Asynchronous version of {@link #batch(List)}. Chunks are still sent one after the other.
+     */
+    @NotNull
+    public CompletableFuture<List<JsonObject>> batchAsync(@NotNull List<BatchRequest> requests) {
+        CompletableFuture<List<JsonObject>> future = CompletableFuture.completedFuture(new ArrayList<>(requests.size()));
+
+        for (int start = 0; start < requests.size(); start += batchSize) {
+            List<BatchRequest> chunk = requests.subList(start, Math.min(start + batchSize, requests.size()));
+            future = future.thenCompose(results -> executeRequestAsync("POST", "api/batch", batchBody(chunk), null)
+                    .thenApply(response -> {
+                        results.addAll(parseBatchResponse(response));
+                        return results;
+                    }));
+        }
+
+        return future;
+    }
+
+    /**
+     * Gets the realtime client for this instance, creating it if needed. The event stream is opened on the first
+     * subscription.
+     *
+     * @return The realtime client
+     */
+    @NotNull
+    public synchronized PocketBaseRealtime realtime() {
+        if (realtime == null) {
+            realtime = new PocketBaseRealtime(this, client);
+        }
+        return realtime;
+    }
+
     /**
      * Creates a multipart request body for file uploads
      *
@@ -402,6 +1025,101 @@ public class PocketBase {
         this.token = token;
     }
 
+    /**
+     * Get the maximum number of requests sent in one batch
+     *
+     * @return Maximum batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set the maximum number of requests sent in one batch. This must not exceed the "Max allowed batch requests"
+     * setting of the PocketBase instance.
+     *
+     * @param batchSize New maximum batch size
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) throw new IllegalArgumentException("Batch size must be at least 1");
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Get the maximum number of pages requested at the same time by {@link #getFullList}
+     *
+     * @return Maximum number of pages in flight
+     */
+    public int getParallelPages() {
+        return parallelPages;
+    }
+
+    /**
+     * Set the maximum number of pages requested at the same time by {@link #getFullList}. Use 1 to request pages one
+     * after the other.
+     *
+     * @param parallelPages New maximum number of pages in flight
+     */
+    public void setParallelPages(int parallelPages) {
+        if (parallelPages < 1) throw new IllegalArgumentException("Parallel pages must be at least 1");
+        this.parallelPages = parallelPages;
+        if (client.dispatcher().getMaxRequestsPerHost() < parallelPages) {
+            client.dispatcher().setMaxRequestsPerHost(parallelPages);
+        }
+        if (client.dispatcher().getMaxRequests() < parallelPages) {
+            client.dispatcher().setMaxRequests(parallelPages);
+        }
+    }
+
+    /**
+     * Set the listener told about every request, for example to collect metrics. Requests made through the realtime
+     * stream are not included.
+     *
+     * @param requestListener The listener, or null to stop timing requests
+     */
+    public void setRequestListener(@Nullable RequestListener requestListener) {
+        this.requestListener = requestListener;
+    }
+
+    /**
+     * Told about every finished request. Called on the thread that made the request, so it must not block.
+     */
+    @FunctionalInterface
+    public interface RequestListener {
+        /**
+         * @param collection The collection the request was about, or the part of the API for other requests
+         * @param method     HTTP method
+         * @param nanos      Time from sending the request until the response headers arrived
+         * @param success    Whether a response with a successful status arrived
+         */
+        void onRequest(@NotNull String collection, @NotNull String method, long nanos, boolean success);
+    }
+
+    /**
+     * A single request in a {@link #batch(List)} call
+     *
+     * @param method HTTP method: POST, PATCH, PUT or DELETE
+     * @param url    Request URL relative to the PocketBase root, including any query parameters
+     * @param body   Optional request body
+     */
+    public record BatchRequest(@NotNull String method, @NotNull String url, @Nullable Object body) {
+
+        @NotNull
+        public static BatchRequest create(String collectionIdOrName, Object bodyData) {
+            return new BatchRequest("POST", "/api/collections/" + collectionIdOrName + "/records", bodyData);
+        }
+
+        @NotNull
+        public static BatchRequest update(String collectionIdOrName, String recordId, Object bodyData) {
+            return new BatchRequest("PATCH", "/api/collections/" + collectionIdOrName + "/records/" + recordId, bodyData);
+        }
+
+        @NotNull
+        public static BatchRequest delete(String collectionIdOrName, String recordId) {
+            return new BatchRequest("DELETE", "/api/collections/" + collectionIdOrName + "/records/" + recordId, null);
+        }
+    }
+
     /**
      * Response class for impersonation
      */
@@ -0,0 +1,315 @@
+package org.woftnw.dreamvisitorhub.pb;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import okhttp3.*;
+import okio.BufferedSource;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Client for the PocketBase realtime API ({@code api/realtime}).
+ *
+ * <p>
+ * PocketBase pushes record changes over a Server-Sent Events stream. The first event on a new connection is
+ * {@code PB_CONNECT}, which carries the client ID that subscriptions must be registered against with a
+ * {@code POST api/realtime}. After that, every change to a subscribed topic arrives as an event named after the
+ * topic (for example {@code chat_messages/*}) with an {@code action} and the affected {@code record}.
+ * </p>
+ * <p>
+ * The connection is opened lazily on the first subscription and re-established with exponential backoff whenever it
+ * drops. Subscriptions are re-registered on every reconnect, and {@link #onConnect(Runnable)} listeners are run
+ * afterwards so callers can catch up on anything they missed while disconnected.
+ * </p>
+ * <p>
+ * Listeners are called on the realtime connection thread, so they should return quickly.
+ * </p>
+ */
+public class PocketBaseRealtime {
+    private static final Logger LOGGER = Logger.getLogger(PocketBaseRealtime.class.getName());
+    private static final String ENDPOINT = "api/realtime";
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final long MIN_RECONNECT_DELAY_MS = 1000;
+    private static final long MAX_RECONNECT_DELAY_MS = 30000;
+    // PocketBase closes a realtime connection after 5 minutes without messages, so a silent stream that outlives this
+    // is half-open and has to be reopened
+    private static final long STREAM_READ_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(6);
+
+    private final PocketBase pocketBase;
+    private final OkHttpClient streamClient;
+    private final Map<String, List<Consumer<RealtimeEvent>>> listeners = new ConcurrentHashMap<>();
+    private final List<Runnable> connectListeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean running = false;
+    private volatile boolean connected = false;
+    private volatile String clientId;
+    private volatile Call streamCall;
+    private Thread thread;
+
+    /**
+     * Creates a realtime client for a PocketBase instance. Use {@link PocketBase#realtime()} instead of calling this
+     * directly.
+     *
+     * @param pocketBase The PocketBase client whose URL and token are used
+     * @param client     The HTTP client to derive the streaming client from
+     */
+    PocketBaseRealtime(@NotNull PocketBase pocketBase, @NotNull OkHttpClient client) {
+        this.pocketBase = pocketBase;
+        // The event stream is long-lived, so it gets a read timeout just above PocketBase's idle timeout
+        this.streamClient = client.newBuilder()
+                .readTimeout(STREAM_READ_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Subscribes to a realtime topic. Topics are either {@code <collection>/*} for every record in a collection or
+     * {@code <collection>/<recordId>} for a single record.
+     *
+     * @param topic    The topic to subscribe to
+     * @param listener Called for every event on the topic
+     */
+    public void subscribe(@NotNull String topic, @NotNull Consumer<RealtimeEvent> listener) {
+        boolean newTopic = !listeners.containsKey(topic);
+        listeners.computeIfAbsent(topic, t -> new CopyOnWriteArrayList<>()).add(listener);
+
+        start();
+        if (newTopic && connected) submitSubscriptions();
+    }
+
+    /**
+     * Removes all listeners for a topic and stops receiving its events.
+     *
+     * @param topic The topic to unsubscribe from
+     */
+    public void unsubscribe(@NotNull String topic) {
+        if (listeners.remove(topic) != null && connected) submitSubscriptions();
+    }
+
+    /**
+     * Registers a listener that is run every time the connection is (re-)established and all subscriptions have been
+     * registered. Events that happened while disconnected are not replayed by PocketBase, so this is the place to
+     * reconcile missed changes.
+     *
+     * @param listener The listener to run
+     */
+    public void onConnect(@NotNull Runnable listener) {
+        connectListeners.add(listener);
+    }
+
+    /**
+     * Whether the event stream is currently open and all subscriptions are registered.
+     *
+     * @return true if events are being received
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Starts the connection thread if it is not already running. This is called automatically by
+     * {@link #subscribe(String, Consumer)}.
+     */
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this::loop, "PocketBase-Realtime");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Closes the event stream and stops reconnecting.
+     */
+    public synchronized void close() {
+        running = false;
+        connected = false;
+        Call call = streamCall;
+        if (call != null) call.cancel();
+        if (thread != null) thread.interrupt();
+    }
+
+    private void loop() {
+        long reconnectDelay = MIN_RECONNECT_DELAY_MS;
+
+        while (running) {
+            try {
+                stream();
+            } catch (IOException e) {
+                if (running) LOGGER.log(Level.WARNING, "Realtime connection to PocketBase failed: " + e.getMessage());
+            } catch (RuntimeException e) {
+                if (running) LOGGER.log(Level.WARNING, "Realtime connection to PocketBase failed", e);
+            } finally {
+                // A connection that got as far as registering its subscriptions was healthy, however it ended
+                if (connected) reconnectDelay = MIN_RECONNECT_DELAY_MS;
+                connected = false;
+                clientId = null;
+            }
+
+            if (!running) break;
+
+            try {
+                Thread.sleep(reconnectDelay);
+            } catch (InterruptedException e) {
+                break;
+            }
+            reconnectDelay = Math.min(reconnectDelay * 2, MAX_RECONNECT_DELAY_MS);
+        }
+    }
+
+    /**
+     * Opens the event stream and dispatches events until it closes.
+     *
+     * @throws IOException If the stream could not be opened or read
+     */
+    private void stream() throws IOException {
+        Request request = new Request.Builder()
+                .url(pocketBase.buildUrl(ENDPOINT, null))
+                .header("Authorization", "Bearer " + pocketBase.getToken())
+                .header("Accept", "text/event-stream")
+                .get()
+                .build();
+
+        streamCall = streamClient.newCall(request);
+        try (Response response = streamCall.execute()) {
+            if (!response.isSuccessful() || response.body() == null) {
+                throw new IOException("Realtime request failed with code " + response.code());
+            }
+
+            BufferedSource source = response.body().source();
+            String event = null;
+            StringBuilder data = new StringBuilder();
+
+            String line;
+            while (running && (line = source.readUtf8Line()) != null) {
+                if (line.isEmpty()) {
+                    // A blank line terminates the event
+                    if (event != null || !data.isEmpty()) dispatch(event, data.toString());
+                    event = null;
+                    data.setLength(0);
+                } else if (line.startsWith(":")) {
+                    // Comment line used as a keep-alive
+                    continue;
+                } else if (line.startsWith("event:")) {
+                    event = fieldValue(line, "event:");
+                } else if (line.startsWith("data:")) {
+                    if (!data.isEmpty()) data.append('\n');
+                    data.append(fieldValue(line, "data:"));
+                }
+                // "id:" and "retry:" fields are not needed
+            }
+        }
+    }
+
+    @NotNull
+    private static String fieldValue(@NotNull String line, @NotNull String field) {
+        String value = line.substring(field.length());
+        return value.startsWith(" ") ? value.substring(1) : value;
+    }
+
+    private void dispatch(@Nullable String event, @NotNull String data) {
+        if (event == null) return;
+
+        if (event.equals("PB_CONNECT")) {
+            try {
+                JsonObject payload = JsonParser.parseString(data).getAsJsonObject();
+                clientId = PocketBaseUtils.getString(payload, "clientId");
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Could not parse realtime event " + event + ": " + data, e);
+                return;
+            }
+            if (!submitSubscriptions()) return;
+            connected = true;
+            LOGGER.info("Connected to PocketBase realtime with " + listeners.size() + " subscription(s)");
+            for (Runnable listener : connectListeners) {
+                try {
+                    listener.run();
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Realtime connect listener failed", e);
+                }
+            }
+            return;
+        }
+
+        List<Consumer<RealtimeEvent>> topicListeners = listeners.get(event);
+        if (topicListeners == null || topicListeners.isEmpty()) return;
+
+        RealtimeEvent realtimeEvent;
+        try {
+            JsonObject payload = JsonParser.parseString(data).getAsJsonObject();
+            realtimeEvent = new RealtimeEvent(event,
+                    PocketBaseUtils.getString(payload, "action"),
+                    PocketBaseUtils.getJsonObject(payload, "record"));
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Could not parse realtime event " + event + ": " + data, e);
+            return;
+        }
+
+        for (Consumer<RealtimeEvent> listener : topicListeners) {
+            try {
+                listener.accept(realtimeEvent);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Realtime listener for " + event + " failed", e);
+            }
+        }
+    }
+
+    /**
+     * Registers the current set of topics for this connection. PocketBase replaces the previous set with every call.
+     *
+     * @return true if the subscriptions were accepted
+     */
+    private boolean submitSubscriptions() {
+        String id = clientId;
+        if (id == null) return false;
+
+        JsonArray subscriptions = new JsonArray();
+        listeners.keySet().forEach(subscriptions::add);
+
+        JsonObject body = new JsonObject();
+        body.addProperty("clientId", id);
+        body.add("subscriptions", subscriptions);
+
+        Request request = new Request.Builder()
+                .url(pocketBase.buildUrl(ENDPOINT, null))
+                .header("Authorization", "Bearer " + pocketBase.getToken())
+                .post(RequestBody.create(body.toString(), JSON))
+                .build();
+
+        try (Response response = streamClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                String errorBody = response.body() != null ? response.body().string() : "No response body";
+                LOGGER.warning("Failed to register realtime subscriptions with code " + response.code() + ": " + errorBody);
+                Call call = streamCall;
+                if (call != null) call.cancel();
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to register realtime subscriptions: " + e.getMessage());
+            Call call = streamCall;
+            if (call != null) call.cancel();
+            return false;
+        }
+    }
+
+    /**
+     * A change to a record in a subscribed topic.
+     *
+     * @param topic  The topic the event was received on
+     * @param action The change that happened: {@code create}, {@code update} or {@code delete}
+     * @param record The record after the change (or the deleted record)
+     */
+    public record RealtimeEvent(String topic, String action, JsonObject record) {
+    }
+}
@@ -0,0 +1,203 @@
+package org.woftnw.mc_renderer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the meshes of each model in memory after the first load, shared by all renderers and threads.
+ *
+ * <p>
+ * If a directory is set with {@link #setDirectory(Path)}, loaded meshes are also written there in a compact binary
+ * form, named after the SHA-256 of the model file. The next process then reads them back without running Assimp.
+ * A changed model file has a different hash, so stale files are never used.
+ * </p>
+ */
+public final class MeshCache {
+    private static final Logger LOGGER = Logger.getLogger(MeshCache.class.getName());
+
+    // "DVMS", then the format version
+    private static final int MAGIC = 0x44564D53;
+    private static final int VERSION = 1;
+    private static final String EXTENSION = ".mesh";
+
+    private static final ConcurrentHashMap<String, Model> MODELS = new ConcurrentHashMap<>();
+    private static volatile Path directory;
+
+    private MeshCache() {
+    }
+
+    /**
+     * The meshes of a model
+     *
+     * @param meshes   The base meshes
+     * @param overlays The meshes of the outer skin layer, one per base mesh
+     */
+    public record Model(List<MeshData> meshes, List<MeshData> overlays) {
+    }
+
+    /**
+     * Set where meshes are stored between runs
+     *
+     * @param directory The directory, or null to only cache in memory
+     */
+    public static void setDirectory(Path directory) {
+        MeshCache.directory = directory;
+    }
+
+    /**
+     * Get the meshes of a model, loading them on first use. Concurrent callers for the same model wait for one load.
+     *
+     * @param modelPath Path to the model file
+     * @return The base meshes and their overlays
+     */
+    public static Model get(String modelPath) {
+        return MODELS.computeIfAbsent(modelPath, MeshCache::load);
+    }
+
+    /**
+     * Get the base meshes of a model, loading them on first use
+     *
+     * @param modelPath Path to the model file
+     * @return The base meshes
+     */
+    public static List<MeshData> getMeshes(String modelPath) {
+        return get(modelPath).meshes();
+    }
+
+    /**
+     * Forget all models held in memory. Files on disk are kept.
+     */
+    public static void clear() {
+        MODELS.clear();
+    }
+
+    private static Model load(String modelPath) {
+        long start = System.nanoTime();
+        ByteBuffer modelData = ModelRenderer.loadResourceAsBuffer(modelPath);
+        Path directory = MeshCache.directory;
+        Path file = directory == null ? null : directory.resolve(hash(modelData) + EXTENSION);
+
+        List<MeshData> meshes = null;
+        if (file != null) {
+            try {
+                meshes = read(file);
+            } catch (NoSuchFileException e) {
+                // Not cached yet
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Ignoring unreadable mesh cache file " + file, e);
+            }
+        }
+
+        boolean fromDisk = meshes != null;
+        if (!fromDisk) {
+            meshes = MeshLoader.load(modelData, ModelRenderer.determineModelFormat(modelPath), modelPath);
+            if (file != null) {
+                try {
+                    write(file, meshes);
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Could not write mesh cache file " + file, e);
+                }
+            }
+        }
+
+        LOGGER.fine("Loaded " + modelPath + (fromDisk ? " from the mesh cache" : " with Assimp") + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        meshes = List.copyOf(meshes);
+        return new Model(meshes, List.copyOf(MeshLoader.createOverlays(meshes)));
+    }
+
+    private static String hash(ByteBuffer data) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(data.duplicate());
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Read meshes written by {@link #write(Path, List)}
+     */
+    static List<MeshData> read(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        if (buffer.getInt() != MAGIC) throw new IOException("Not a mesh cache file");
+        if (buffer.getInt() != VERSION) throw new IOException("Unsupported mesh cache version");
+
+        int meshCount = buffer.getInt();
+        List<MeshData> meshes = new ArrayList<>(meshCount);
+        for (int i = 0; i < meshCount; i++) {
+            int vertexCount = buffer.getInt();
+            int indexCount = buffer.getInt();
+            float[] positions = new float[vertexCount * 3];
+            float[] normals = new float[vertexCount * 3];
+            float[] texCoords = new float[vertexCount * 2];
+            int[] indices = new int[indexCount];
+
+            buffer.asFloatBuffer().get(positions);
+            buffer.position(buffer.position() + positions.length * Float.BYTES);
+            buffer.asFloatBuffer().get(normals);
+            buffer.position(buffer.position() + normals.length * Float.BYTES);
+            buffer.asFloatBuffer().get(texCoords);
+            buffer.position(buffer.position() + texCoords.length * Float.BYTES);
+            buffer.asIntBuffer().get(indices);
+            buffer.position(buffer.position() + indices.length * Integer.BYTES);
+
+            meshes.add(new MeshData(positions, normals, texCoords, indices));
+        }
+        return meshes;
+    }
+
+    /**
+     * Write meshes in a little-endian binary form: a header of magic, version and mesh count, then per mesh the
+     * vertex and index counts followed by the positions, normals, texture coordinates and indices
+     */
+    static void write(Path file, List<MeshData> meshes) throws IOException {
+        int size = 3 * Integer.BYTES;
+        for (MeshData mesh : meshes) {
+            size += 2 * Integer.BYTES + mesh.getVertexCount() * 8 * Float.BYTES + mesh.getIndices().length * Integer.BYTES;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(meshes.size());
+        for (MeshData mesh : meshes) {
+            buffer.putInt(mesh.getVertexCount()).putInt(mesh.getIndices().length);
+            for (float value : mesh.getPositions()) buffer.putFloat(value);
+            for (float value : mesh.getNormals()) buffer.putFloat(value);
+            for (float value : mesh.getTexCoords()) buffer.putFloat(value);
+            for (int value : mesh.getIndices()) buffer.putInt(value);
+        }
+        buffer.flip();
+
+        // Write to a temporary file first, so that other processes never see a partial file
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) channel.write(buffer);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
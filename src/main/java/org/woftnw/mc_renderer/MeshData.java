@@ -0,0 +1,61 @@
+package org.woftnw.mc_renderer;
+
+/**
+ * The geometry of one mesh in primitive arrays, independent of any rendering backend.
+ *
+ * <p>
+ * Vertex {@code i} has its position at {@code positions[3i..3i+2]}, its normal at {@code normals[3i..3i+2]} and its
+ * texture coordinates at {@code texCoords[2i..2i+1]}. Every three entries of {@code indices} form a triangle.
+ * </p>
+ * <p>
+ * The arrays are shared, not copied, so they must not be changed once the mesh is built.
+ * </p>
+ */
+public final class MeshData {
+    private final float[] positions;
+    private final float[] normals;
+    private final float[] texCoords;
+    private final int[] indices;
+
+    /**
+     * @param positions Three floats per vertex
+     * @param normals   Three floats per vertex
+     * @param texCoords Two floats per vertex
+     * @param indices   Three vertex indices per triangle
+     */
+    public MeshData(float[] positions, float[] normals, float[] texCoords, int[] indices) {
+        if (positions.length % 3 != 0) throw new IllegalArgumentException("Positions must have three floats per vertex");
+        int vertexCount = positions.length / 3;
+        if (normals.length != vertexCount * 3) throw new IllegalArgumentException("Normals must have three floats per vertex");
+        if (texCoords.length != vertexCount * 2) throw new IllegalArgumentException("Texture coordinates must have two floats per vertex");
+        if (indices.length % 3 != 0) throw new IllegalArgumentException("Indices must form whole triangles");
+        this.positions = positions;
+        this.normals = normals;
+        this.texCoords = texCoords;
+        this.indices = indices;
+    }
+
+    public int getVertexCount() {
+        return positions.length / 3;
+    }
+
+    public int getTriangleCount() {
+        return indices.length / 3;
+    }
+
+    public float[] getPositions() {
+        return positions;
+    }
+
+    public float[] getNormals() {
+        return normals;
+    }
+
+    public float[] getTexCoords() {
+        return texCoords;
+    }
+
+    public int[] getIndices() {
+        return indices;
+    }
+}
@@ -0,0 +1,215 @@
+package org.woftnw.mc_renderer;
+
+import org.lwjgl.assimp.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Loads models into {@link MeshData} with Assimp. Loading needs the Assimp natives, but no OpenGL context, so it works
+ * on hosts without a GPU.
+ */
+public final class MeshLoader {
+
+    // Layer inflation constants for outer layer meshes
+    private static final float HEAD_INFLATION = 0.0f;
+    private static final float BODY_INFLATION = 0.0f;
+    private static final float LIMB_INFLATION = 0.0f;
+
+    private static final int IMPORT_FLAGS = Assimp.aiProcess_Triangulate |
+            Assimp.aiProcess_GenSmoothNormals |
+            Assimp.aiProcess_CalcTangentSpace |
+            Assimp.aiProcess_JoinIdenticalVertices |
+            Assimp.aiProcess_PreTransformVertices;
+
+    private MeshLoader() {
+    }
+
+    /**
+     * Load all meshes of a model
+     *
+     * @param modelPath Path to the model file
+     * @return The meshes in the order of the model hierarchy
+     */
+    public static List<MeshData> load(String modelPath) {
+        ByteBuffer modelData = ModelRenderer.loadResourceAsBuffer(modelPath);
+        return load(modelData, ModelRenderer.determineModelFormat(modelPath), modelPath);
+    }
+
+    /**
+     * Load all meshes of a model in memory
+     *
+     * @param modelData  The model file contents, in a direct buffer
+     * @param formatHint Hint about the format (e.g., "obj", "glb", "fbx")
+     * @param name       Name of the model for error messages
+     * @return The meshes in the order of the model hierarchy
+     */
+    public static List<MeshData> load(ByteBuffer modelData, String formatHint, String name) {
+        AIScene scene = Assimp.aiImportFileFromMemory(modelData, IMPORT_FLAGS, formatHint);
+
+        // If first attempt fails, try some common formats
+        if (scene == null) {
+            for (String format : new String[]{"obj", "gltf", "fbx", "dae", "blend"}) {
+                if (!format.equals(formatHint)) {
+                    scene = Assimp.aiImportFileFromMemory(modelData, IMPORT_FLAGS, format);
+                    if (scene != null) break;
+                }
+            }
+        }
+
+        if (scene == null) {
+            throw new RuntimeException("Failed to load model " + name + ": " + Assimp.aiGetErrorString());
+        }
+
+        try {
+            List<MeshData> meshes = new ArrayList<>();
+            processNode(scene.mRootNode(), scene, meshes);
+            return meshes;
+        } finally {
+            Assimp.aiReleaseImport(scene);
+        }
+    }
+
+    private static void processNode(AINode node, AIScene scene, List<MeshData> meshes) {
+        for (int i = 0; i < node.mNumMeshes(); i++) {
+            AIMesh aiMesh = AIMesh.create(scene.mMeshes().get(node.mMeshes().get(i)));
+            meshes.add(processMesh(aiMesh));
+        }
+
+        for (int i = 0; i < node.mNumChildren(); i++) {
+            processNode(AINode.create(node.mChildren().get(i)), scene, meshes);
+        }
+    }
+
+    private static MeshData processMesh(AIMesh mesh) {
+        int vertexCount = mesh.mNumVertices();
+        float[] positions = new float[vertexCount * 3];
+        float[] normals = new float[vertexCount * 3];
+        float[] texCoords = new float[vertexCount * 2];
+
+        AIVector3D.Buffer aiVertices = mesh.mVertices();
+        AIVector3D.Buffer aiNormals = mesh.mNormals();
+        AIVector3D.Buffer aiTexCoords = mesh.mTextureCoords(0);
+
+        for (int i = 0; i < vertexCount; i++) {
+            AIVector3D vertex = aiVertices.get(i);
+            positions[i * 3] = vertex.x();
+            positions[i * 3 + 1] = vertex.y();
+            positions[i * 3 + 2] = vertex.z();
+
+            // Smooth normals are generated on import, so they are only missing for broken models
+            float nx = 0, ny = 1, nz = 0;
+            if (aiNormals != null) {
+                AIVector3D normal = aiNormals.get(i);
+                nx = normal.x();
+                ny = normal.y();
+                nz = normal.z();
+            }
+            normals[i * 3] = nx;
+            normals[i * 3 + 1] = ny;
+            normals[i * 3 + 2] = nz;
+
+            if (aiTexCoords != null) {
+                AIVector3D texCoord = aiTexCoords.get(i);
+                texCoords[i * 2] = texCoord.x();
+                texCoords[i * 2 + 1] = texCoord.y();
+            } else {
+                // Generate texture coordinates from the position, projected along the dominant normal axis
+                float absX = Math.abs(nx);
+                float absY = Math.abs(ny);
+                float absZ = Math.abs(nz);
+                float u, v;
+                if (absY > absX && absY > absZ) {
+                    u = (vertex.x() + 8.0f) / 16.0f;
+                    v = (vertex.z() + 8.0f) / 16.0f;
+                } else if (absX > absZ) {
+                    u = (vertex.z() + 8.0f) / 16.0f;
+                    v = (vertex.y() + 8.0f) / 16.0f;
+                } else {
+                    u = (vertex.x() + 8.0f) / 16.0f;
+                    v = (vertex.y() + 8.0f) / 16.0f;
+                }
+                texCoords[i * 2] = u;
+                texCoords[i * 2 + 1] = v;
+            }
+        }
+
+        // Faces are triangles after aiProcess_Triangulate, but points and lines are skipped just in case
+        AIFace.Buffer faces = mesh.mFaces();
+        int[] indices = new int[mesh.mNumFaces() * 3];
+        int count = 0;
+        for (int i = 0; i < mesh.mNumFaces(); i++) {
+            AIFace face = faces.get(i);
+            if (face.mNumIndices() != 3) continue;
+            indices[count++] = face.mIndices().get(0);
+            indices[count++] = face.mIndices().get(1);
+            indices[count++] = face.mIndices().get(2);
+        }
+        if (count < indices.length) indices = Arrays.copyOf(indices, count);
+
+        return new MeshData(positions, normals, texCoords, indices);
+    }
+
+    /**
+     * Create the meshes for the outer layer of a Minecraft skin, inflated along their normals and mapped to the right
+     * half of the texture
+     *
+     * @param meshes The base meshes
+     * @return One overlay mesh per base mesh
+     */
+    public static List<MeshData> createOverlays(List<MeshData> meshes) {
+        List<MeshData> overlays = new ArrayList<>(meshes.size());
+        for (MeshData mesh : meshes) {
+            overlays.add(createOverlay(mesh));
+        }
+        return overlays;
+    }
+
+    private static MeshData createOverlay(MeshData mesh) {
+        float inflation = determineInflation(mesh);
+        float[] basePositions = mesh.getPositions();
+        float[] normals = mesh.getNormals();
+
+        float[] positions = new float[basePositions.length];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = basePositions[i] + normals[i] * inflation;
+        }
+
+        float[] texCoords = mesh.getTexCoords().clone();
+        for (int i = 0; i < texCoords.length; i += 2) {
+            // Move the left half of the texture to the right half, where the overlay is
+            if (texCoords[i] >= 0 && texCoords[i] <= 0.5f) texCoords[i] += 0.5f;
+        }
+
+        return new MeshData(positions, normals, texCoords, mesh.getIndices());
+    }
+
+    private static float determineInflation(MeshData mesh) {
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, minZ = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE, maxZ = -Float.MAX_VALUE;
+
+        float[] positions = mesh.getPositions();
+        for (int i = 0; i < positions.length; i += 3) {
+            minX = Math.min(minX, positions[i]);
+            minY = Math.min(minY, positions[i + 1]);
+            minZ = Math.min(minZ, positions[i + 2]);
+            maxX = Math.max(maxX, positions[i]);
+            maxY = Math.max(maxY, positions[i + 1]);
+            maxZ = Math.max(maxZ, positions[i + 2]);
+        }
+
+        float width = maxX - minX;
+        float height = maxY - minY;
+        float depth = maxZ - minZ;
+
+        if (Math.abs(width - 8) < 1 && Math.abs(height - 8) < 1 && Math.abs(depth - 8) < 1) {
+            return HEAD_INFLATION;
+        } else if (Math.abs(width - 8) < 1 && Math.abs(height - 12) < 1 && Math.abs(depth - 4) < 1) {
+            return BODY_INFLATION;
+        } else {
+            return LIMB_INFLATION;
+        }
+    }
+}
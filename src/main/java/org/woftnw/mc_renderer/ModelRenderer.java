@@ -3,7 +3,6 @@ package org.woftnw.mc_renderer;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 import org.lwjgl.BufferUtils;
-import org.lwjgl.assimp.*;
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.glfw.GLFWErrorCallback;
 import org.lwjgl.opengl.*;
@@ -78,10 +77,11 @@ public class ModelRenderer {
     private static final int MC_SKIN_WIDTH = 64;
     private static final int MC_SKIN_HEIGHT = 64;
 
-    // Layer inflation constants for outer layer meshes
-    private static final float HEAD_INFLATION = 0.0f; // Increased from 1.2f for even more visible effect
-    private static final float BODY_INFLATION = 0.0f; // Increased from 0.25f
-    private static final float LIMB_INFLATION = 0.0f; // Increased from 0.25f
+    // Floats per vertex in the interleaved vertex buffer
+    private static final int VERTEX_FLOATS = 8;
+
+    // Most images drawn into one framebuffer by a batch render
+    private static final int MAX_ATLAS_CELLS = 64;
 
     // Instance variables
     private final int width;
@@ -89,10 +89,11 @@ public class ModelRenderer {
     private String modelPath;
     private long window;
     private int shaderProgram;
-    private int fbo;
-    private int rbo;
-    private int textureColorbuffer;
+    private Framebuffer framebuffer;
+    private Framebuffer atlasFramebuffer;
     private int modelTexture;
+    private List<MeshData> meshData = new ArrayList<>();
+    private List<MeshData> overlayData;
     private List<Mesh> meshes = new ArrayList<>();
     private List<Mesh> overlayMeshes = new ArrayList<>(); // New list for overlay meshes
     private boolean isMinecraftSkin = false; // Flag to track if we're rendering a Minecraft skin
@@ -174,6 +175,30 @@ public class ModelRenderer {
         }
     }
 
+    /**
+     * Static method to render a model with the provided texture image, using the
+     * backend and settings of a configuration
+     *
+     * @param textureImage ByteBuffer containing the texture image data
+     * @param config       Renderer configuration
+     * @return ByteBuffer containing the rendered image data
+     */
+    public static ByteBuffer renderModelWithTexture(ByteBuffer textureImage, RendererConfig config) {
+        if (config.getBackend() == RendererConfig.Backend.SOFTWARE) {
+            return SoftwareRenderer.renderModelWithTexture(textureImage, config);
+        }
+
+        ModelRenderer renderer = new ModelRenderer(config);
+        try {
+            renderer.initialize();
+            renderer.loadModel();
+            renderer.loadTextureFromBuffer(textureImage);
+            return renderer.renderToBuffer();
+        } finally {
+            renderer.cleanUp();
+        }
+    }
+
     /**
      * Constructor with custom dimensions
      */
@@ -190,6 +215,21 @@ public class ModelRenderer {
         this.height = height;
     }
 
+    /**
+     * Constructor with the model, dimensions and scene settings of a configuration
+     */
+    public ModelRenderer(RendererConfig config) {
+        this(config.getModelPath(), config.getWidth(), config.getHeight());
+        Vector3f background = config.getBackgroundColor();
+        Vector3f light = config.getLightPosition();
+        Vector3f translation = config.getModelTranslation();
+        setBackgroundColor(background.x, background.y, background.z)
+                .setLightPosition(light.x, light.y, light.z)
+                .setModelScale(config.getModelScale())
+                .setModelRotationY(config.getModelRotationY())
+                .setModelTranslation(translation.x, translation.y, translation.z);
+    }
+
     /**
      * Default constructor
      */
@@ -286,6 +326,9 @@ public class ModelRenderer {
         GLFW.glfwMakeContextCurrent(window);
         GL.createCapabilities();
 
+        // Read pixels tightly packed, as the result buffers are sized for
+        GL11.glPixelStorei(GL11.GL_PACK_ALIGNMENT, 1);
+
         // Create shaders
         shaderProgram = createShaderProgram();
 
@@ -297,15 +340,28 @@ public class ModelRenderer {
      * Load a texture from a ByteBuffer containing image data
      */
     public void loadTextureFromBuffer(ByteBuffer textureData) {
-        modelTexture = GL11.glGenTextures();
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, modelTexture);
+        Texture texture = uploadTexture(textureData);
+        modelTexture = texture.id();
 
-        // Set texture wrapping and filtering options
-        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL11.GL_REPEAT);
-        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL11.GL_REPEAT);
-        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
-        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+        // Store texture dimensions
+        textureWidth = texture.width();
+        textureHeight = texture.height();
+
+        // Check if this is likely a Minecraft skin (64x64 or 64x32)
+        isMinecraftSkin = texture.isMinecraftSkin();
 
+        // If this is a Minecraft skin and we've already loaded the model, create
+        // overlay meshes. They only depend on the model, so they are kept when the
+        // texture is replaced.
+        if (isMinecraftSkin && !meshes.isEmpty() && overlayMeshes.isEmpty()) {
+            createOverlayMeshes();
+        }
+    }
+
+    /**
+     * Decode an image and upload it to the GPU as a texture
+     */
+    private Texture uploadTexture(ByteBuffer textureData) {
         // Load texture image
         IntBuffer width = BufferUtils.createIntBuffer(1);
         IntBuffer height = BufferUtils.createIntBuffer(1);
@@ -320,19 +376,14 @@ public class ModelRenderer {
             throw new RuntimeException("Failed to load texture: " + STBImage.stbi_failure_reason());
         }
 
-        // Store texture dimensions
-        textureWidth = width.get(0);
-        textureHeight = height.get(0);
-
-        // Check if this is likely a Minecraft skin (64x64 or 64x32)
-        isMinecraftSkin = (textureWidth == MC_SKIN_WIDTH &&
-                (textureHeight == MC_SKIN_HEIGHT || textureHeight == MC_SKIN_HEIGHT / 2));
+        int texture = GL11.glGenTextures();
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
 
-        // If this is a Minecraft skin and we've already loaded the model, create
-        // overlay meshes
-        if (isMinecraftSkin && !meshes.isEmpty()) {
-            createOverlayMeshes();
-        }
+        // Set texture wrapping and filtering options
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL11.GL_REPEAT);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL11.GL_REPEAT);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
 
         // Upload texture to GPU
         GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, width.get(0), height.get(0),
@@ -343,55 +394,33 @@ public class ModelRenderer {
         STBImage.stbi_image_free(imageData);
 
         GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+        return new Texture(texture, width.get(0), height.get(0));
     }
 
     /**
-     * Load the model from resources
+     * Replace the texture, keeping the context, shaders, framebuffer and meshes.
+     * This lets one renderer draw many skins.
      */
-    public void loadModel() {
-        // Load model using Assimp
-        AIScene scene = null;
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            ByteBuffer modelData = loadResourceAsBuffer(modelPath);
-
-            // Try to determine the model format from the path
-            String formatHint = determineModelFormat(modelPath);
-
-            // Update flags for model processing
-            int flags = Assimp.aiProcess_Triangulate |
-                    Assimp.aiProcess_GenSmoothNormals |
-                    Assimp.aiProcess_CalcTangentSpace |
-                    Assimp.aiProcess_JoinIdenticalVertices |
-                    Assimp.aiProcess_PreTransformVertices;
-
-            // Import the model
-            scene = Assimp.aiImportFileFromMemory(modelData, flags, formatHint);
-
-            // If first attempt fails, try some common formats
-            if (scene == null) {
-                for (String format : new String[]{"obj", "gltf", "fbx", "dae", "blend"}) {
-                    if (!format.equals(formatHint)) {
-                        scene = Assimp.aiImportFileFromMemory(modelData, flags, format);
-                        if (scene != null) {
-                            System.out.println("Successfully loaded model as " + format);
-                            break;
-                        }
-                    }
-                }
-            }
-
-            if (scene == null) {
-                throw new RuntimeException("Failed to load model " + modelPath + ": " + Assimp.aiGetErrorString());
-            }
-
-            // Process meshes
-            processNode(scene.mRootNode(), scene);
+    public void replaceTexture(ByteBuffer textureData) {
+        if (modelTexture != 0) {
+            GL11.glDeleteTextures(modelTexture);
+            modelTexture = 0;
         }
+        loadTextureFromBuffer(textureData);
+    }
+
+    /**
+     * Load the model from resources. The meshes are parsed once per model and
+     * shared through the {@link MeshCache}.
+     */
+    public void loadModel() {
+        MeshCache.Model model = MeshCache.get(modelPath);
+        uploadMeshes(model.meshes());
+        overlayData = model.overlays();
 
         // If this is a Minecraft skin (determined by texture dimensions) and texture is
-        // loaded,
-        // create overlay meshes
-        if (isMinecraftSkin && textureWidth > 0 && textureHeight > 0) {
+        // loaded, create overlay meshes
+        if (isMinecraftSkin && textureWidth > 0 && textureHeight > 0 && overlayMeshes.isEmpty()) {
             createOverlayMeshes();
         }
     }
@@ -399,7 +428,7 @@ public class ModelRenderer {
     /**
      * Determine the model format from its path
      */
-    private String determineModelFormat(String path) {
+    static String determineModelFormat(String path) {
         int dotIndex = path.lastIndexOf('.');
         if (dotIndex > 0 && dotIndex < path.length() - 1) {
             return path.substring(dotIndex + 1).toLowerCase();
@@ -414,294 +443,78 @@ public class ModelRenderer {
      * @param formatHint Hint about the format (e.g., "obj", "glb", "fbx")
      */
     public void loadModelFromBuffer(ByteBuffer modelData, String formatHint) {
-        AIScene scene = null;
-        int flags = Assimp.aiProcess_Triangulate |
-                Assimp.aiProcess_GenSmoothNormals |
-                Assimp.aiProcess_CalcTangentSpace |
-                Assimp.aiProcess_JoinIdenticalVertices |
-                Assimp.aiProcess_PreTransformVertices;
-
-        scene = Assimp.aiImportFileFromMemory(modelData, flags, formatHint);
-
-        if (scene == null) {
-            throw new RuntimeException("Failed to load model from buffer: " + Assimp.aiGetErrorString());
-        }
-
-        // Process meshes
-        processNode(scene.mRootNode(), scene);
+        uploadMeshes(MeshLoader.load(modelData, formatHint, "from buffer"));
+        overlayData = null;
     }
 
     /**
-     * Process a node in the model hierarchy
+     * Upload base meshes to the GPU
      */
-    private void processNode(AINode node, AIScene scene) {
-        // Process all meshes in the current node
-        for (int i = 0; i < node.mNumMeshes(); i++) {
-            AIMesh aiMesh = AIMesh.create(scene.mMeshes().get(node.mMeshes().get(i)));
-            meshes.add(processMesh(aiMesh, scene));
-        }
-
-        // Process child nodes
-        for (int i = 0; i < node.mNumChildren(); i++) {
-            processNode(AINode.create(node.mChildren().get(i)), scene);
+    private void uploadMeshes(List<MeshData> meshDataList) {
+        for (MeshData data : meshDataList) {
+            meshData.add(data);
+            meshes.add(createMesh(data));
         }
     }
 
     /**
-     * Process a mesh in the model
-     */
-    private Mesh processMesh(AIMesh mesh, AIScene scene) {
-        List<Float> vertices = new ArrayList<>();
-        List<Float> normals = new ArrayList<>();
-        List<Float> texCoords = new ArrayList<>();
-        List<Integer> indices = new ArrayList<>();
-
-        // Process vertices
-        for (int i = 0; i < mesh.mNumVertices(); i++) {
-            AIVector3D vertex = mesh.mVertices().get(i);
-            vertices.add(vertex.x());
-            vertices.add(vertex.y());
-            vertices.add(vertex.z());
-
-            // Process normals if available
-            if (mesh.mNormals() != null) {
-                AIVector3D normal = mesh.mNormals().get(i);
-                normals.add(normal.x());
-                normals.add(normal.y());
-                normals.add(normal.z());
-            }
-
-            // Process texture coordinates
-            if (mesh.mTextureCoords(0) != null) {
-                AIVector3D texCoord = mesh.mTextureCoords(0).get(i);
-                texCoords.add(texCoord.x());
-                texCoords.add(texCoord.y());
-            } else {
-                // Generate texture coordinates based on position if not available
-                float u, v;
-                // Generate texture coordinates based on position and normal
-                AIVector3D normal = mesh.mNormals() != null ? mesh.mNormals().get(i) : new AIVector3D(null);
-                if (mesh.mNormals() == null) {
-                    normal.x(0f);
-                    normal.y(1f);
-                    normal.z(0f);
-                }
-
-                // Determine dominant face direction
-                float absX = Math.abs(normal.x());
-                float absY = Math.abs(normal.y());
-                float absZ = Math.abs(normal.z());
-
-                if (absY > absX && absY > absZ) {
-                    // Top or bottom face
-                    u = (vertex.x() + 8.0f) / 16.0f;
-                    v = (vertex.z() + 8.0f) / 16.0f;
-                } else if (absX > absZ) {
-                    // Left or right face
-                    u = (vertex.z() + 8.0f) / 16.0f;
-                    v = (vertex.y() + 8.0f) / 16.0f;
-                } else {
-                    // Front or back face
-                    u = (vertex.x() + 8.0f) / 16.0f;
-                    v = (vertex.y() + 8.0f) / 16.0f;
-                }
-                texCoords.add(u);
-                texCoords.add(v);
-            }
-        }
-
-        // Process faces (indices)
-        for (int i = 0; i < mesh.mNumFaces(); i++) {
-            AIFace face = mesh.mFaces().get(i);
-            for (int j = 0; j < face.mNumIndices(); j++) {
-                indices.add(face.mIndices().get(j));
-            }
-        }
-
-        // Create mesh VAO/VBO
-        int vao = createMeshVAO(vertices, normals, texCoords, indices);
-        return new Mesh(vao, indices.size(), vertices, normals, texCoords, indices);
-    }
-
-    /**
-     * Create inflated overlay meshes for Minecraft skin outer layer
+     * Create overlay meshes for Minecraft skin outer layer
      */
     private void createOverlayMeshes() {
-        overlayMeshes.clear();
-
-        for (Mesh baseMesh : meshes) {
-            // Create an inflated version of each mesh for the overlay
-            Mesh overlayMesh = createInflatedMesh(baseMesh);
-            if (overlayMesh != null) {
-                overlayMeshes.add(overlayMesh);
-            }
-        }
-    }
-
-    /**
-     * Create an inflated version of a mesh for the outer layer
-     */
-    private Mesh createInflatedMesh(Mesh baseMesh) {
-        List<Float> vertices = new ArrayList<>(baseMesh.vertices);
-        List<Float> normals = new ArrayList<>(baseMesh.normals);
-        List<Float> texCoords = new ArrayList<>();
-        List<Integer> indices = new ArrayList<>(baseMesh.indices);
-
-        // Determine inflation amount based on mesh size
-        float inflation = determineMeshInflation(baseMesh);
-
-        // Inflate vertices outward along normals
-        List<Float> inflatedVertices = new ArrayList<>();
-        for (int i = 0; i < vertices.size(); i += 3) {
-            float x = vertices.get(i);
-            float y = vertices.get(i + 1);
-            float z = vertices.get(i + 2);
-
-            float nx = normals.get(i);
-            float ny = normals.get(i + 1);
-            float nz = normals.get(i + 2);
-
-            // Inflate vertex position along normal direction
-            inflatedVertices.add(x + nx * inflation);
-            inflatedVertices.add(y + ny * inflation);
-            inflatedVertices.add(z + nz * inflation);
+        if (overlayData == null) {
+            overlayData = MeshLoader.createOverlays(meshData);
         }
-
-        // Adjust texture coordinates for outer layer (shift to overlay section)
-        for (int i = 0; i < baseMesh.texCoords.size(); i += 2) {
-            float u = baseMesh.texCoords.get(i);
-            float v = baseMesh.texCoords.get(i + 1);
-
-            // Map to overlay section (typically at offset 32,0 for head, etc.)
-            // For simplicity, this implementation uses base texcoords with offset
-            // A more complete solution would map correctly for each body part
-            if (u >= 0 && u <= 0.5f) { // Left half of texture
-                u += 0.5f; // Move to right half for overlay
-            }
-
-            texCoords.add(u);
-            texCoords.add(v);
+        for (MeshData overlay : overlayData) {
+            overlayMeshes.add(createMesh(overlay));
         }
-
-        // Create VAO for overlay mesh
-        int vao = createMeshVAO(inflatedVertices, normals, texCoords, indices);
-        return new Mesh(vao, indices.size(), inflatedVertices, normals, texCoords, indices);
     }
 
     /**
-     * Determine the inflation amount for a mesh based on its dimensions
+     * Create a VAO for a mesh, with the vertex attributes interleaved in one VBO
      */
-    private float determineMeshInflation(Mesh mesh) {
-        // Calculate mesh bounding box
-        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, minZ = Float.MAX_VALUE;
-        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE, maxZ = -Float.MAX_VALUE;
-
-        for (int i = 0; i < mesh.vertices.size(); i += 3) {
-            float x = mesh.vertices.get(i);
-            float y = mesh.vertices.get(i + 1);
-            float z = mesh.vertices.get(i + 2);
+    private Mesh createMesh(MeshData data) {
+        float[] positions = data.getPositions();
+        float[] normals = data.getNormals();
+        float[] texCoords = data.getTexCoords();
+        int vertexCount = data.getVertexCount();
 
-            minX = Math.min(minX, x);
-            minY = Math.min(minY, y);
-            minZ = Math.min(minZ, z);
-            maxX = Math.max(maxX, x);
-            maxY = Math.max(maxY, y);
-            maxZ = Math.max(maxZ, z);
+        // Position (3), normal (3) and texture coordinates (2) of each vertex
+        FloatBuffer vertexBuffer = BufferUtils.createFloatBuffer(vertexCount * VERTEX_FLOATS);
+        for (int i = 0; i < vertexCount; i++) {
+            vertexBuffer.put(positions, i * 3, 3);
+            vertexBuffer.put(normals, i * 3, 3);
+            vertexBuffer.put(texCoords, i * 2, 2);
         }
+        vertexBuffer.flip();
 
-        // Calculate dimensions
-        float width = maxX - minX;
-        float height = maxY - minY;
-        float depth = maxZ - minZ;
+        IntBuffer indexBuffer = BufferUtils.createIntBuffer(data.getIndices().length);
+        indexBuffer.put(data.getIndices()).flip();
 
-        // Determine mesh type based on dimensions (approximate)
-        if (Math.abs(width - 8) < 1 && Math.abs(height - 8) < 1 && Math.abs(depth - 8) < 1) {
-            // Head (8x8x8)
-            return HEAD_INFLATION;
-        } else if (Math.abs(width - 8) < 1 && Math.abs(height - 12) < 1 && Math.abs(depth - 4) < 1) {
-            // Torso (8x12x4)
-            return BODY_INFLATION;
-        } else {
-            // Arms/Legs (4x12x4) or other
-            return LIMB_INFLATION;
-        }
-    }
-
-    /**
-     * Create a VAO for a mesh
-     */
-    private int createMeshVAO(List<Float> vertices, List<Float> normals,
-                              List<Float> texCoords, List<Integer> indices) {
         // Create and bind VAO
         int vao = GL30.glGenVertexArrays();
         GL30.glBindVertexArray(vao);
 
-        // Create and bind VBO for vertices
         int vbo = GL15.glGenBuffers();
         GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, vertexBuffer, GL15.GL_STATIC_DRAW);
 
-        // Convert List<Float> to FloatBuffer
-        FloatBuffer verticesBuffer = BufferUtils.createFloatBuffer(vertices.size());
-        for (float value : vertices) {
-            verticesBuffer.put(value);
-        }
-        verticesBuffer.flip();
-
-        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, verticesBuffer, GL15.GL_STATIC_DRAW);
-        GL20.glVertexAttribPointer(0, 3, GL11.GL_FLOAT, false, 0, 0);
+        int stride = VERTEX_FLOATS * Float.BYTES;
+        GL20.glVertexAttribPointer(0, 3, GL11.GL_FLOAT, false, stride, 0);
         GL20.glEnableVertexAttribArray(0);
-
-        // Create and bind VBO for normals if available
-        if (!normals.isEmpty()) {
-            int normalVBO = GL15.glGenBuffers();
-            GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, normalVBO);
-
-            // Convert List<Float> to FloatBuffer
-            FloatBuffer normalsBuffer = BufferUtils.createFloatBuffer(normals.size());
-            for (float value : normals) {
-                normalsBuffer.put(value);
-            }
-            normalsBuffer.flip();
-
-            GL15.glBufferData(GL15.GL_ARRAY_BUFFER, normalsBuffer, GL15.GL_STATIC_DRAW);
-            GL20.glVertexAttribPointer(1, 3, GL11.GL_FLOAT, false, 0, 0);
-            GL20.glEnableVertexAttribArray(1);
-        }
-
-        // Create and bind VBO for texture coordinates
-        if (!texCoords.isEmpty()) {
-            int texCoordVBO = GL15.glGenBuffers();
-            GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, texCoordVBO);
-
-            // Convert List<Float> to FloatBuffer
-            FloatBuffer texCoordsBuffer = BufferUtils.createFloatBuffer(texCoords.size());
-            for (float value : texCoords) {
-                texCoordsBuffer.put(value);
-            }
-            texCoordsBuffer.flip();
-
-            GL15.glBufferData(GL15.GL_ARRAY_BUFFER, texCoordsBuffer, GL15.GL_STATIC_DRAW);
-            GL20.glVertexAttribPointer(2, 2, GL11.GL_FLOAT, false, 0, 0);
-            GL20.glEnableVertexAttribArray(2);
-        }
+        GL20.glVertexAttribPointer(1, 3, GL11.GL_FLOAT, false, stride, 3 * Float.BYTES);
+        GL20.glEnableVertexAttribArray(1);
+        GL20.glVertexAttribPointer(2, 2, GL11.GL_FLOAT, false, stride, 6 * Float.BYTES);
+        GL20.glEnableVertexAttribArray(2);
 
         // Create and bind element array buffer for indices
         int ebo = GL15.glGenBuffers();
         GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, ebo);
-
-        // Convert List<Integer> to IntBuffer
-        IntBuffer indicesBuffer = BufferUtils.createIntBuffer(indices.size());
-        for (int value : indices) {
-            indicesBuffer.put(value);
-        }
-        indicesBuffer.flip();
-
-        GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, indicesBuffer, GL15.GL_STATIC_DRAW);
+        GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, indexBuffer, GL15.GL_STATIC_DRAW);
 
         // Unbind VAO
         GL30.glBindVertexArray(0);
 
-        return vao;
+        return new Mesh(vao, vbo, ebo, data.getIndices().length);
     }
 
     /**
@@ -740,49 +553,128 @@ public class ModelRenderer {
      * Create a framebuffer for offscreen rendering
      */
     private void createFramebuffer() {
-        // Generate and bind framebuffer
-        fbo = GL30.glGenFramebuffers();
-        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, fbo);
-
-        // Create a color attachment texture
-        textureColorbuffer = GL11.glGenTextures();
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureColorbuffer);
-        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGB, width, height, 0, GL11.GL_RGB, GL11.GL_UNSIGNED_BYTE,
-                (ByteBuffer) null);
-        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
-        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
-        GL32.glFramebufferTexture(GL30.GL_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0, textureColorbuffer, 0);
-
-        // Create a renderbuffer object for depth and stencil attachment
-        rbo = GL30.glGenRenderbuffers();
-        GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, rbo);
-        GL30.glRenderbufferStorage(GL30.GL_RENDERBUFFER, GL30.GL_DEPTH24_STENCIL8, width, height);
-        GL30.glFramebufferRenderbuffer(GL30.GL_FRAMEBUFFER, GL30.GL_DEPTH_STENCIL_ATTACHMENT, GL30.GL_RENDERBUFFER, rbo);
-
-        // Check if framebuffer is complete
-        if (GL30.glCheckFramebufferStatus(GL30.GL_FRAMEBUFFER) != GL30.GL_FRAMEBUFFER_COMPLETE) {
-            throw new RuntimeException("Framebuffer is not complete!");
-        }
-
-        // Unbind framebuffer
-        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+        framebuffer = Framebuffer.create(width, height);
     }
 
     /**
      * Render the model to a buffer and return the image data
      */
     public ByteBuffer renderToBuffer() {
-        // Bind framebuffer
-        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, fbo);
-
-        // Clear the framebuffer with the configured background color
-        GL11.glClearColor(backgroundColor.x, backgroundColor.y, backgroundColor.z, 1.0f);
-        GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT);
-        GL11.glEnable(GL11.GL_DEPTH_TEST);
+        // Bind framebuffer and clear it with the configured background color
+        framebuffer.bindAndClear(backgroundColor);
 
         // Set viewport
         GL11.glViewport(0, 0, width, height);
 
+        beginDraw();
+        drawModel(modelTexture, isMinecraftSkin);
+        endDraw();
+
+        // Read the rendered image from the framebuffer
+        ByteBuffer buffer = BufferUtils.createByteBuffer(width * height * 3);
+        GL11.glReadPixels(0, 0, width, height, GL11.GL_RGB, GL11.GL_UNSIGNED_BYTE, buffer);
+
+        // Unbind framebuffer
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+
+        return buffer;
+    }
+
+    /**
+     * Render the model once per texture and return one image per texture, in the
+     * same order and format as {@link #renderToBuffer()}.
+     *
+     * <p>
+     * The images are drawn side by side into one large framebuffer, each in its own
+     * viewport, and read back with a single call. This costs about one frame for
+     * the whole batch instead of one frame per texture. Batches larger than
+     * {@link #MAX_ATLAS_CELLS} or the GPU's framebuffer size limit are split into
+     * several such passes.
+     * </p>
+     *
+     * @param textures ByteBuffers containing the texture image data
+     * @return ByteBuffers containing the rendered image data
+     */
+    public List<ByteBuffer> renderBatchToBuffers(List<ByteBuffer> textures) {
+        int maxSize = Math.min(GL11.glGetInteger(GL30.GL_MAX_RENDERBUFFER_SIZE),
+                GL11.glGetInteger(GL11.GL_MAX_TEXTURE_SIZE));
+        int maxColumns = Math.max(1, maxSize / width);
+        int maxRows = Math.max(1, maxSize / height);
+        int cellsPerPass = Math.min(MAX_ATLAS_CELLS, maxColumns * maxRows);
+
+        List<ByteBuffer> images = new ArrayList<>(textures.size());
+        for (int start = 0; start < textures.size(); start += cellsPerPass) {
+            List<ByteBuffer> pass = textures.subList(start, Math.min(textures.size(), start + cellsPerPass));
+            images.addAll(renderAtlas(pass, maxColumns));
+        }
+        return images;
+    }
+
+    /**
+     * Render one pass of a batch into a grid of viewports and slice the result
+     */
+    private List<ByteBuffer> renderAtlas(List<ByteBuffer> textures, int maxColumns) {
+        int count = textures.size();
+        // Keep the grid close to square, so the atlas stays within the size limits
+        int columns = Math.min(maxColumns, (int) Math.ceil(Math.sqrt(count)));
+        int rows = (count + columns - 1) / columns;
+        int atlasWidth = columns * width;
+        int atlasHeight = rows * height;
+
+        if (atlasFramebuffer == null || atlasFramebuffer.width < atlasWidth || atlasFramebuffer.height < atlasHeight) {
+            if (atlasFramebuffer != null) atlasFramebuffer.delete();
+            atlasFramebuffer = Framebuffer.create(atlasWidth, atlasHeight);
+        }
+
+        int[] textureIds = new int[count];
+        try {
+            Texture[] uploaded = new Texture[count];
+            for (int i = 0; i < count; i++) {
+                uploaded[i] = uploadTexture(textures.get(i));
+                textureIds[i] = uploaded[i].id();
+                if (uploaded[i].isMinecraftSkin() && !meshes.isEmpty() && overlayMeshes.isEmpty()) {
+                    createOverlayMeshes();
+                }
+            }
+
+            atlasFramebuffer.bindAndClear(backgroundColor);
+            beginDraw();
+            for (int i = 0; i < count; i++) {
+                // Every cell has the size of a single image, so the projection is the same
+                GL11.glViewport((i % columns) * width, (i / columns) * height, width, height);
+                drawModel(uploaded[i].id(), uploaded[i].isMinecraftSkin());
+            }
+            endDraw();
+
+            // Read the whole grid back at once
+            ByteBuffer atlas = BufferUtils.createByteBuffer(atlasWidth * atlasHeight * 3);
+            GL11.glReadPixels(0, 0, atlasWidth, atlasHeight, GL11.GL_RGB, GL11.GL_UNSIGNED_BYTE, atlas);
+            GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+
+            List<ByteBuffer> images = new ArrayList<>(count);
+            int rowBytes = width * 3;
+            for (int i = 0; i < count; i++) {
+                int x = (i % columns) * width;
+                int y = (i / columns) * height;
+                ByteBuffer image = BufferUtils.createByteBuffer(width * height * 3);
+                for (int row = 0; row < height; row++) {
+                    image.put(atlas.slice(((y + row) * atlasWidth + x) * 3, rowBytes));
+                }
+                image.flip();
+                images.add(image);
+            }
+            return images;
+        } finally {
+            GL11.glDeleteTextures(textureIds);
+        }
+    }
+
+    /**
+     * Set up the shader, its uniforms and the render state shared by every draw
+     */
+    private void beginDraw() {
+        GL11.glEnable(GL11.GL_DEPTH_TEST);
+
         // Use shader program
         GL20.glUseProgram(shaderProgram);
 
@@ -835,52 +727,43 @@ public class ModelRenderer {
             GL20.glUniform1i(textureLoc, 0); // 0 corresponds to GL_TEXTURE0
         }
 
-        // Activate texture unit and bind texture
+        // Activate texture unit
         GL13.glActiveTexture(GL13.GL_TEXTURE0);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, modelTexture);
 
         // Enable alpha blending for transparent textures
         GL11.glEnable(GL11.GL_BLEND);
         GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+    }
 
-        // Regular (two-pass) render for Minecraft skins with overlays
-        if (isMinecraftSkin && !overlayMeshes.isEmpty()) {
-            // First pass: render base mesh
-            for (Mesh mesh : meshes) {
-                GL30.glBindVertexArray(mesh.getVao());
-                GL11.glDrawElements(GL11.GL_TRIANGLES, mesh.getIndicesCount(), GL11.GL_UNSIGNED_INT, 0);
-                GL30.glBindVertexArray(0);
-            }
+    /**
+     * Draw the model with a texture into the current viewport
+     */
+    private void drawModel(int texture, boolean minecraftSkin) {
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
 
-            // Second pass: render overlay mesh with alpha blending
+        // First pass: render base mesh
+        for (Mesh mesh : meshes) {
+            GL30.glBindVertexArray(mesh.getVao());
+            GL11.glDrawElements(GL11.GL_TRIANGLES, mesh.getIndicesCount(), GL11.GL_UNSIGNED_INT, 0);
+            GL30.glBindVertexArray(0);
+        }
+
+        // Second pass for Minecraft skins: render overlay mesh with alpha blending
+        if (minecraftSkin) {
             for (Mesh mesh : overlayMeshes) {
                 GL30.glBindVertexArray(mesh.getVao());
                 GL11.glDrawElements(GL11.GL_TRIANGLES, mesh.getIndicesCount(), GL11.GL_UNSIGNED_INT, 0);
                 GL30.glBindVertexArray(0);
             }
-        } else {
-            // Standard render for non-skin models
-            for (Mesh mesh : meshes) {
-                GL30.glBindVertexArray(mesh.getVao());
-                GL11.glDrawElements(GL11.GL_TRIANGLES, mesh.getIndicesCount(), GL11.GL_UNSIGNED_INT, 0);
-                GL30.glBindVertexArray(0);
-            }
         }
+    }
 
+    private void endDraw() {
         // Disable blending
         GL11.glDisable(GL11.GL_BLEND);
 
         // Unbind texture
         GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
-
-        // Read the rendered image from the framebuffer
-        ByteBuffer buffer = BufferUtils.createByteBuffer(width * height * 3);
-        GL11.glReadPixels(0, 0, width, height, GL11.GL_RGB, GL11.GL_UNSIGNED_BYTE, buffer);
-
-        // Unbind framebuffer
-        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
-
-        return buffer;
     }
 
     /**
@@ -888,9 +771,12 @@ public class ModelRenderer {
      */
     public void cleanUp() {
         // Delete framebuffer resources
-        GL30.glDeleteFramebuffers(fbo);
-        GL30.glDeleteRenderbuffers(rbo);
-        GL11.glDeleteTextures(textureColorbuffer);
+        if (framebuffer != null) {
+            framebuffer.delete();
+        }
+        if (atlasFramebuffer != null) {
+            atlasFramebuffer.delete();
+        }
 
         // Delete texture
         GL11.glDeleteTextures(modelTexture);
@@ -900,12 +786,12 @@ public class ModelRenderer {
 
         // Delete mesh resources
         for (Mesh mesh : meshes) {
-            GL30.glDeleteVertexArrays(mesh.getVao());
+            mesh.delete();
         }
 
         // Delete overlay mesh resources
         for (Mesh mesh : overlayMeshes) {
-            GL30.glDeleteVertexArrays(mesh.getVao());
+            mesh.delete();
         }
 
         // Terminate GLFW
@@ -948,7 +834,7 @@ public class ModelRenderer {
         }
     }
 
-    private static ByteBuffer loadResourceAsBuffer(String resourcePath) {
+    static ByteBuffer loadResourceAsBuffer(String resourcePath) {
         try (InputStream inputStream = new FileInputStream(new File(resourcePath))) {
             if (inputStream == null) {
                 throw new RuntimeException("Resource not found: " + resourcePath);
@@ -970,23 +856,18 @@ public class ModelRenderer {
         }
     }
 
-    // Utility class to represent a mesh
+    // Utility class to represent a mesh uploaded to the GPU
     private static class Mesh {
         private final int vao;
+        private final int vbo;
+        private final int ebo;
         private final int indicesCount;
-        private final List<Float> vertices;
-        private final List<Float> normals;
-        private final List<Float> texCoords;
-        private final List<Integer> indices;
 
-        public Mesh(int vao, int indicesCount, List<Float> vertices, List<Float> normals,
-                    List<Float> texCoords, List<Integer> indices) {
+        public Mesh(int vao, int vbo, int ebo, int indicesCount) {
             this.vao = vao;
+            this.vbo = vbo;
+            this.ebo = ebo;
             this.indicesCount = indicesCount;
-            this.vertices = vertices;
-            this.normals = normals;
-            this.texCoords = texCoords;
-            this.indices = indices;
         }
 
         public int getVao() {
@@ -996,5 +877,83 @@ public class ModelRenderer {
         public int getIndicesCount() {
             return indicesCount;
         }
+
+        public void delete() {
+            GL30.glDeleteVertexArrays(vao);
+            GL15.glDeleteBuffers(vbo);
+            GL15.glDeleteBuffers(ebo);
+        }
+    }
+
+    // A decoded texture uploaded to the GPU
+    private record Texture(int id, int width, int height) {
+        // A Minecraft skin is 64x64, or 64x32 in the old format
+        boolean isMinecraftSkin() {
+            return width == MC_SKIN_WIDTH && (height == MC_SKIN_HEIGHT || height == MC_SKIN_HEIGHT / 2);
+        }
+    }
+
+    // Utility class to represent an offscreen framebuffer
+    private static class Framebuffer {
+        private final int fbo;
+        private final int colorbuffer;
+        private final int rbo;
+        private final int width;
+        private final int height;
+
+        private Framebuffer(int fbo, int colorbuffer, int rbo, int width, int height) {
+            this.fbo = fbo;
+            this.colorbuffer = colorbuffer;
+            this.rbo = rbo;
+            this.width = width;
+            this.height = height;
+        }
+
+        static Framebuffer create(int width, int height) {
+            // Generate and bind framebuffer
+            int fbo = GL30.glGenFramebuffers();
+            GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, fbo);
+
+            // Create a color attachment texture
+            int colorbuffer = GL11.glGenTextures();
+            GL11.glBindTexture(GL11.GL_TEXTURE_2D, colorbuffer);
+            GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGB, width, height, 0, GL11.GL_RGB, GL11.GL_UNSIGNED_BYTE,
+                    (ByteBuffer) null);
+            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
+            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+            GL32.glFramebufferTexture(GL30.GL_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0, colorbuffer, 0);
+            GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+
+            // Create a renderbuffer object for depth and stencil attachment
+            int rbo = GL30.glGenRenderbuffers();
+            GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, rbo);
+            GL30.glRenderbufferStorage(GL30.GL_RENDERBUFFER, GL30.GL_DEPTH24_STENCIL8, width, height);
+            GL30.glFramebufferRenderbuffer(GL30.GL_FRAMEBUFFER, GL30.GL_DEPTH_STENCIL_ATTACHMENT, GL30.GL_RENDERBUFFER, rbo);
+
+            Framebuffer framebuffer = new Framebuffer(fbo, colorbuffer, rbo, width, height);
+
+            // Check if framebuffer is complete
+            if (GL30.glCheckFramebufferStatus(GL30.GL_FRAMEBUFFER) != GL30.GL_FRAMEBUFFER_COMPLETE) {
+                GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+                framebuffer.delete();
+                throw new RuntimeException("Framebuffer is not complete!");
+            }
+
+            // Unbind framebuffer
+            GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+            return framebuffer;
+        }
+
+        void bindAndClear(Vector3f backgroundColor) {
+            GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, fbo);
+            GL11.glClearColor(backgroundColor.x, backgroundColor.y, backgroundColor.z, 1.0f);
+            GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT);
+        }
+
+        void delete() {
+            GL30.glDeleteFramebuffers(fbo);
+            GL30.glDeleteRenderbuffers(rbo);
+            GL11.glDeleteTextures(colorbuffer);
+        }
     }
 }
@@ -0,0 +1,364 @@
+package org.woftnw.mc_renderer;
+
+import org.joml.Vector3f;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Keeps rendered PNG images, so that rendering the same skin with the same settings again costs no decoding or
+ * rendering.
+ *
+ * <p>
+ * Images are looked up by a {@link Key} derived from the SHA-256 of the skin and the settings that change the output.
+ * The first tier is in memory and evicts the least recently used images once their total size exceeds a byte budget.
+ * The optional second tier is a directory of PNG files named after their key, which survives restarts. Images found
+ * on disk are moved back into memory. The directory has its own byte budget, and the least recently used files are
+ * deleted once it is exceeded. A file's modification time is its last use, so the order survives restarts too.
+ * </p>
+ */
+public class RenderCache {
+    private static final Logger LOGGER = Logger.getLogger(RenderCache.class.getName());
+    private static final String EXTENSION = ".png";
+
+    private final long maxMemoryBytes;
+    private final Path directory;
+    private final long maxDiskBytes;
+    // Access-ordered, so iteration starts at the least recently used image
+    private final LinkedHashMap<Key, byte[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes = 0;
+    // Sizes of the files on disk, access-ordered like memory. Guarded by itself.
+    private final LinkedHashMap<Key, Long> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private long diskBytes = 0;
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Produces an image that is not cached yet
+     */
+    @FunctionalInterface
+    public interface ImageSupplier {
+        /**
+         * @return the encoded PNG image
+         * @throws IOException If the image could not be produced
+         */
+        byte[] get() throws IOException;
+    }
+
+    /**
+     * Identifies a rendered image
+     *
+     * @param hash Hex SHA-256 over the skin hash, the kind of image and the render settings
+     */
+    public record Key(String hash) {
+
+        /**
+         * Create the key of an image
+         *
+         * @param skin   The encoded skin texture
+         * @param kind   What is made of the skin, such as "model" or "head", so that different images of the same skin
+         *               and settings do not collide
+         * @param config The render settings
+         * @return The key
+         */
+        public static Key of(byte[] skin, String kind, RendererConfig config) {
+            MessageDigest digest = sha256();
+            byte[] skinHash = digest.digest(skin);
+
+            StringBuilder settings = new StringBuilder(kind)
+                    .append('|').append(config.getModelPath())
+                    .append('|').append(config.getWidth()).append('x').append(config.getHeight())
+                    .append('|').append(config.getModelRotationY())
+                    .append('|').append(config.getModelScale());
+            appendVector(settings, config.getModelTranslation());
+            appendVector(settings, config.getBackgroundColor());
+            appendVector(settings, config.getLightPosition());
+            appendVector(settings, config.getViewPosition());
+            appendVector(settings, config.getLightColor());
+            settings.append('|').append(config.isDebugMode());
+
+            digest.update(skinHash);
+            digest.update(settings.toString().getBytes(StandardCharsets.UTF_8));
+            return new Key(HexFormat.of().formatHex(digest.digest()));
+        }
+
+        private static void appendVector(StringBuilder builder, Vector3f vector) {
+            builder.append('|').append(vector.x).append(',').append(vector.y).append(',').append(vector.z);
+        }
+    }
+
+    /**
+     * Create a render cache. Images already in the directory are counted against its budget, oldest first.
+     *
+     * @param maxMemoryBytes How many bytes of images to keep in memory
+     * @param directory      Where to store images on disk, or null to only cache in memory
+     * @param maxDiskBytes   How many bytes of images to keep on disk
+     */
+    public RenderCache(long maxMemoryBytes, Path directory, long maxDiskBytes) {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        if (directory != null) loadDiskIndex();
+    }
+
+    /**
+     * Get an image, producing and storing it if it is not cached
+     *
+     * @param key      The key of the image
+     * @param supplier Produces the image on a miss
+     * @return the encoded PNG image. It must not be modified.
+     * @throws IOException If the supplier failed
+     */
+    public byte[] get(Key key, ImageSupplier supplier) throws IOException {
+        byte[] image = get(key);
+        if (image != null) return image;
+
+        misses.increment();
+        image = supplier.get();
+        put(key, image);
+        return image;
+    }
+
+    /**
+     * Get a cached image
+     *
+     * @param key The key of the image
+     * @return the encoded PNG image, or null if it is not cached. It must not be modified.
+     */
+    public byte[] get(Key key) {
+        byte[] image;
+        synchronized (this) {
+            image = memory.get(key);
+        }
+        if (image != null) {
+            memoryHits.increment();
+            return image;
+        }
+
+        if (directory == null) return null;
+        Path file = fileOf(key);
+        try {
+            image = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not read cached render " + file, e);
+            return null;
+        }
+        diskHits.increment();
+        touchOnDisk(key, file, image.length);
+        putInMemory(key, image);
+        return image;
+    }
+
+    /**
+     * Store an image in both tiers
+     *
+     * @param key   The key of the image
+     * @param image The encoded PNG image. It must not be modified afterward.
+     */
+    public void put(Key key, byte[] image) {
+        putInMemory(key, image);
+        if (directory == null) return;
+
+        Path file = fileOf(key);
+        if (Files.exists(file)) return;
+        try {
+            // Write to a temporary file first, so that readers never see a partial image
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), key.hash(), ".tmp");
+            try {
+                Files.write(temp, image);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not write cached render " + file, e);
+            return;
+        }
+        addToDisk(key, image.length);
+    }
+
+    /**
+     * Count the images already on disk, least recently used first, and delete the oldest if they exceed the budget
+     */
+    private void loadDiskIndex() {
+        if (!Files.isDirectory(directory)) return;
+
+        record CachedFile(Key key, long size, FileTime lastUsed) {
+        }
+        List<CachedFile> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(directory, 2)) {
+            for (Path file : (Iterable<Path>) paths::iterator) {
+                String name = file.getFileName().toString();
+                // Keys are hex SHA-256 hashes; anything else was not written by this cache
+                if (name.length() != 64 + EXTENSION.length() || !name.endsWith(EXTENSION)) continue;
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (!attributes.isRegularFile()) continue;
+                Key key = new Key(name.substring(0, name.length() - EXTENSION.length()));
+                files.add(new CachedFile(key, attributes.size(), attributes.lastModifiedTime()));
+            }
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.log(Level.WARNING, "Could not list cached renders in " + directory, e);
+        }
+
+        files.sort(Comparator.comparing(CachedFile::lastUsed));
+        synchronized (disk) {
+            for (CachedFile file : files) {
+                disk.put(file.key(), file.size());
+                diskBytes += file.size();
+            }
+            pruneDisk();
+        }
+    }
+
+    /**
+     * Mark an image on disk as the most recently used
+     */
+    private void touchOnDisk(Key key, Path file, long size) {
+        synchronized (disk) {
+            if (disk.get(key) == null) {
+                disk.put(key, size);
+                diskBytes += size;
+            }
+        }
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Only the order after a restart is affected
+            LOGGER.log(Level.FINE, "Could not update the last use of cached render " + file, e);
+        }
+    }
+
+    private void addToDisk(Key key, long size) {
+        synchronized (disk) {
+            Long previous = disk.put(key, size);
+            if (previous != null) diskBytes -= previous;
+            diskBytes += size;
+            pruneDisk();
+        }
+    }
+
+    /**
+     * Delete the least recently used images until the disk tier fits its budget. Must be called while holding the
+     * lock of disk.
+     */
+    private void pruneDisk() {
+        Iterator<Map.Entry<Key, Long>> eldest = disk.entrySet().iterator();
+        while (diskBytes > maxDiskBytes && eldest.hasNext()) {
+            Map.Entry<Key, Long> entry = eldest.next();
+            Path file = fileOf(entry.getKey());
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not delete cached render " + file, e);
+            }
+            diskBytes -= entry.getValue();
+            eldest.remove();
+        }
+    }
+
+    private synchronized void putInMemory(Key key, byte[] image) {
+        // An image larger than the whole budget would only evict everything else
+        if (image.length > maxMemoryBytes) return;
+
+        byte[] previous = memory.put(key, image);
+        if (previous != null) memoryBytes -= previous.length;
+        memoryBytes += image.length;
+
+        Iterator<Map.Entry<Key, byte[]>> eldest = memory.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+            memoryBytes -= eldest.next().getValue().length;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Images are spread over subdirectories by the first two characters of their key, to keep directories small
+     */
+    private Path fileOf(Key key) {
+        return directory.resolve(key.hash().substring(0, 2)).resolve(key.hash() + EXTENSION);
+    }
+
+    /**
+     * @return how many bytes of images are held in memory
+     */
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    /**
+     * @return how many bytes of images are stored on disk
+     */
+    public long getDiskBytes() {
+        synchronized (disk) {
+            return diskBytes;
+        }
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.sum();
+    }
+
+    public long getDiskHits() {
+        return diskHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Encode an RGB image as returned by the renderers, bottom row first, as a PNG
+     *
+     * @param pixels RGB bytes, bottom row first
+     * @param width  Width in pixels
+     * @param height Height in pixels
+     * @return the encoded PNG image
+     * @throws IOException If encoding failed
+     */
+    public static byte[] encodePng(ByteBuffer pixels, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int offset = ((height - 1 - y) * width + x) * 3;
+                int r = pixels.get(offset) & 0xFF;
+                int g = pixels.get(offset + 1) & 0xFF;
+                int b = pixels.get(offset + 2) & 0xFF;
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,197 @@
+package org.woftnw.mc_renderer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Renders models on one long-lived thread, so that the setup is paid once instead of for every image.
+ *
+ * <p>
+ * With the OpenGL backend, the render thread owns a {@link ModelRenderer} whose context, shaders, framebuffer and
+ * meshes are created on the first request and kept; each request only replaces the texture. With the software
+ * backend, the meshes come from the {@link MeshCache} and are shared by every request.
+ * </p>
+ * <p>
+ * Requests wait in a bounded queue. When it is full, new requests fail with a {@link RejectedExecutionException}
+ * instead of piling up behind a slow renderer.
+ * </p>
+ *
+ * <pre>
+ * RenderService service = new RenderService(new RendererConfig(), 32);
+ * service.render(skinPng).thenAccept(image -> ...);
+ * </pre>
+ */
+public class RenderService implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(RenderService.class.getName());
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final RendererConfig config;
+    private final ThreadPoolExecutor executor;
+
+    // Only touched on the render thread
+    private ModelRenderer glRenderer;
+    private SoftwareRenderer softwareRenderer;
+
+    /**
+     * Create a render service. Nothing is loaded until the first request.
+     *
+     * @param config        Renderer configuration for every image
+     * @param queueCapacity How many requests may wait for the render thread
+     */
+    public RenderService(RendererConfig config, int queueCapacity) {
+        this.config = config;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "RenderThread");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Render the model with a texture
+     *
+     * @param textureImage ByteBuffer containing the encoded texture image. It is copied, so the caller may reuse it.
+     * @return A future of the rendered RGB image, bottom row first. It fails with a
+     * {@link RejectedExecutionException} if the queue is full or the service is closed.
+     */
+    public CompletableFuture<ByteBuffer> render(ByteBuffer textureImage) {
+        ByteBuffer copy = directCopy(textureImage);
+        try {
+            return CompletableFuture.supplyAsync(() -> renderOnThread(copy), executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Render the model once per texture as one request. With the OpenGL backend, the images are drawn together into
+     * one framebuffer and read back at once, which costs about as much as a single image.
+     *
+     * @param textureImages ByteBuffers containing the encoded texture images. They are copied, so the caller may
+     *                      reuse them.
+     * @return A future of the rendered RGB images in the order of the textures, each with the bottom row first. It
+     * fails with a {@link RejectedExecutionException} if the queue is full or the service is closed.
+     */
+    public CompletableFuture<List<ByteBuffer>> renderBatch(List<ByteBuffer> textureImages) {
+        List<ByteBuffer> copies = new ArrayList<>(textureImages.size());
+        for (ByteBuffer textureImage : textureImages) {
+            copies.add(directCopy(textureImage));
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> renderBatchOnThread(copies), executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static ByteBuffer directCopy(ByteBuffer buffer) {
+        // STB can only read direct buffers
+        ByteBuffer copy = ByteBuffer.allocateDirect(buffer.remaining());
+        copy.put(buffer.duplicate()).flip();
+        return copy;
+    }
+
+    /**
+     * @return how many requests are waiting for the render thread
+     */
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    private ByteBuffer renderOnThread(ByteBuffer textureImage) {
+        if (config.getBackend() == RendererConfig.Backend.SOFTWARE) {
+            return getSoftwareRenderer().render(textureImage);
+        }
+
+        try {
+            ModelRenderer renderer = getGlRenderer();
+            renderer.replaceTexture(textureImage);
+            return renderer.renderToBuffer();
+        } catch (RuntimeException e) {
+            // The context may be unusable now, so start over with the next request
+            releaseGlRenderer();
+            throw e;
+        }
+    }
+
+    private List<ByteBuffer> renderBatchOnThread(List<ByteBuffer> textureImages) {
+        if (config.getBackend() == RendererConfig.Backend.SOFTWARE) {
+            // Each image is already rasterized in parallel, so there is nothing to gain from drawing them together
+            SoftwareRenderer renderer = getSoftwareRenderer();
+            List<ByteBuffer> images = new ArrayList<>(textureImages.size());
+            for (ByteBuffer textureImage : textureImages) {
+                images.add(renderer.render(textureImage));
+            }
+            return images;
+        }
+
+        try {
+            return getGlRenderer().renderBatchToBuffers(textureImages);
+        } catch (RuntimeException e) {
+            releaseGlRenderer();
+            throw e;
+        }
+    }
+
+    private SoftwareRenderer getSoftwareRenderer() {
+        if (softwareRenderer == null) {
+            MeshCache.Model model = MeshCache.get(config.getModelPath());
+            softwareRenderer = new SoftwareRenderer(model.meshes(), model.overlays(), config,
+                    ForkJoinPool.commonPool());
+        }
+        return softwareRenderer;
+    }
+
+    private ModelRenderer getGlRenderer() {
+        if (glRenderer == null) {
+            long start = System.nanoTime();
+            ModelRenderer renderer = new ModelRenderer(config);
+            glRenderer = renderer;
+            renderer.initialize();
+            renderer.loadModel();
+            LOGGER.info("Render context ready after " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+        return glRenderer;
+    }
+
+    private void releaseGlRenderer() {
+        if (glRenderer == null) return;
+        try {
+            glRenderer.cleanUp();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to clean up the render context", e);
+        }
+        glRenderer = null;
+    }
+
+    /**
+     * Stop taking requests, finish the queued ones and release the render context
+     */
+    @Override
+    public void close() {
+        try {
+            executor.execute(this::releaseGlRenderer);
+        } catch (RejectedExecutionException e) {
+            // Already closed, or the queue is full. In the latter case the context is left to the process exit.
+            LOGGER.warning("Could not schedule the release of the render context");
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warning("Render thread did not finish within " + SHUTDOWN_TIMEOUT_SECONDS + " seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -7,7 +7,23 @@ import org.joml.Vector3f;
  * Provides various settings to customize the rendering process.
  */
 public class RendererConfig {
+
+    /**
+     * How models are rendered
+     */
+    public enum Backend {
+        /**
+         * On the GPU with OpenGL, in a hidden GLFW window
+         */
+        OPENGL,
+        /**
+         * On the CPU with the {@link SoftwareRenderer}, for hosts without a GPU or display
+         */
+        SOFTWARE
+    }
+
     // Default values
+    private Backend backend = Backend.OPENGL;
     private int width = 300;
     private int height = 600;
     private String modelPath = "minecraft-steve/source/steve.glb";
@@ -123,7 +139,22 @@ public class RendererConfig {
         return this;
     }
 
+    /**
+     * Set the rendering backend
+     *
+     * @param backend The backend to render with
+     * @return this instance for method chaining
+     */
+    public RendererConfig setBackend(Backend backend) {
+        this.backend = backend;
+        return this;
+    }
+
     // Getters
+    public Backend getBackend() {
+        return backend;
+    }
+
     public int getWidth() {
         return width;
     }
@@ -0,0 +1,760 @@
+package org.woftnw.mc_renderer;
+
+import org.joml.Matrix3f;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Renders models on the CPU, for hosts without a GPU or display.
+ *
+ * <p>
+ * The output matches that of {@link ModelRenderer#renderToBuffer()}: the same camera, the same lighting model as
+ * {@code shaders/fragment.glsl}, nearest-neighbour texture sampling, a depth test and alpha blending, and RGB bytes
+ * with the bottom row first.
+ * </p>
+ * <p>
+ * Vertices are transformed once, and triangles crossing the near plane are clipped to it like on the GPU. The
+ * triangles are then sorted into square tiles of the image by their bounding boxes. The tiles are rasterized in
+ * parallel on a {@link ForkJoinPool}. Within a tile, triangles are drawn in the order they were submitted, one span of
+ * covered pixels per row, so that blending gives the same result as on the GPU.
+ * </p>
+ */
+public class SoftwareRenderer {
+    private static final int TILE_SIZE = 32;
+
+    // Layout of a transformed vertex: window coordinates, 1/w, world position, world normal, texture coordinates and
+    // clip coordinates
+    private static final int SX = 0, SY = 1, SZ = 2, INV_W = 3;
+    private static final int PX = 4, PY = 5, PZ = 6;
+    private static final int NX = 7, NY = 8, NZ = 9;
+    private static final int TU = 10, TV = 11;
+    private static final int CX = 12, CY = 13, CZ = 14, CW = 15;
+    private static final int STRIDE = 16;
+
+    private static final float NEAR_PLANE = 0.1f;
+    private static final float FAR_PLANE = 100.0f;
+
+    // Minecraft skin texture dimensions (standard 64x64 skin)
+    private static final int MC_SKIN_WIDTH = 64;
+    private static final int MC_SKIN_HEIGHT = 64;
+
+    private final List<MeshData> meshes;
+    private final List<MeshData> overlays;
+    private final RendererConfig config;
+    private final ForkJoinPool pool;
+
+    /**
+     * Render a model with the provided texture image
+     *
+     * @param textureImage ByteBuffer containing the encoded texture image
+     * @param config       Renderer configuration, including the model path
+     * @return ByteBuffer containing the rendered RGB image, bottom row first
+     */
+    public static ByteBuffer renderModelWithTexture(ByteBuffer textureImage, RendererConfig config) {
+        MeshCache.Model model = MeshCache.get(config.getModelPath());
+        return new SoftwareRenderer(model.meshes(), model.overlays(), config, ForkJoinPool.commonPool())
+                .render(textureImage);
+    }
+
+    /**
+     * Create a renderer for loaded meshes
+     *
+     * @param meshes The base meshes of the model
+     * @param config Renderer configuration
+     */
+    public SoftwareRenderer(List<MeshData> meshes, RendererConfig config) {
+        this(meshes, config, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a renderer for loaded meshes
+     *
+     * @param meshes The base meshes of the model
+     * @param config Renderer configuration
+     * @param pool   The pool to rasterize the tiles on
+     */
+    public SoftwareRenderer(List<MeshData> meshes, RendererConfig config, ForkJoinPool pool) {
+        this(meshes, MeshLoader.createOverlays(meshes), config, pool);
+    }
+
+    /**
+     * Create a renderer for loaded meshes and their overlays, such as those of the {@link MeshCache}
+     *
+     * @param meshes   The base meshes of the model
+     * @param overlays The meshes of the outer skin layer
+     * @param config   Renderer configuration
+     * @param pool     The pool to rasterize the tiles on
+     */
+    public SoftwareRenderer(List<MeshData> meshes, List<MeshData> overlays, RendererConfig config, ForkJoinPool pool) {
+        this.meshes = meshes;
+        this.overlays = overlays;
+        this.config = config;
+        this.pool = pool;
+    }
+
+    /**
+     * Render the model with a texture
+     *
+     * @param textureImage ByteBuffer containing the encoded texture image
+     * @return ByteBuffer containing the rendered RGB image, bottom row first
+     */
+    public ByteBuffer render(ByteBuffer textureImage) {
+        return render(Texture.decode(textureImage));
+    }
+
+    /**
+     * Render the model with a decoded texture
+     *
+     * @param texture The texture
+     * @return ByteBuffer containing the rendered RGB image, bottom row first
+     */
+    public ByteBuffer render(Texture texture) {
+        int width = config.getWidth();
+        int height = config.getHeight();
+
+        // Overlay meshes for the outer skin layer are drawn after the base meshes
+        List<MeshData> drawList = new ArrayList<>(meshes);
+        boolean isMinecraftSkin = texture.width() == MC_SKIN_WIDTH
+                && (texture.height() == MC_SKIN_HEIGHT || texture.height() == MC_SKIN_HEIGHT / 2);
+        if (isMinecraftSkin) drawList.addAll(overlays);
+
+        Geometry geometry = clipNearPlane(transform(drawList, width, height), width, height);
+
+        int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+        int[][] tileTriangles = binTriangles(geometry, tilesX, tilesY, width, height);
+
+        float[] color = new float[width * height * 3];
+        float[] depth = new float[width * height];
+        Vector3f background = config.getBackgroundColor();
+        color[0] = clamp(background.x);
+        color[1] = clamp(background.y);
+        color[2] = clamp(background.z);
+        // Fill the rest by doubling the part already filled
+        for (int filled = 3; filled < color.length; filled *= 2) {
+            System.arraycopy(color, 0, color, filled, Math.min(filled, color.length - filled));
+        }
+        Arrays.fill(depth, 1.0f);
+
+        Shader shader = new Shader(config, texture);
+        pool.invoke(new TileTask(geometry, tileTriangles, tilesX, 0, tilesX * tilesY, width, height, color, depth, shader));
+
+        byte[] bytes = new byte[color.length];
+        for (int i = 0; i < color.length; i++) {
+            bytes[i] = (byte) (int) (color[i] * 255.0f + 0.5f);
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length).order(ByteOrder.nativeOrder());
+        buffer.put(bytes).flip();
+        return buffer;
+    }
+
+    /**
+     * Run the vertex stage on all meshes and gather the triangles in draw order
+     */
+    private Geometry transform(List<MeshData> drawList, int width, int height) {
+        Matrix4f projection = new Matrix4f().perspective((float) Math.toRadians(45.0f),
+                (float) width / (float) height, NEAR_PLANE, FAR_PLANE);
+        Matrix4f view = new Matrix4f().lookAt(
+                new Vector3f(0.0f, 0.0f, 50.0f),
+                new Vector3f(0.0f, 0.0f, 0.0f),
+                new Vector3f(0.0f, 1.0f, 0.0f));
+        Matrix4f model = new Matrix4f().identity()
+                .translate(config.getModelTranslation())
+                .rotate((float) Math.toRadians(config.getModelRotationY()), new Vector3f(0, 1, 0))
+                .scale(config.getModelScale());
+        Matrix4f mvp = new Matrix4f(projection).mul(view).mul(model);
+        Matrix3f normalMatrix = model.normal(new Matrix3f());
+
+        int vertexCount = 0;
+        int indexCount = 0;
+        for (MeshData mesh : drawList) {
+            vertexCount += mesh.getVertexCount();
+            indexCount += mesh.getIndices().length;
+        }
+
+        float[] vertices = new float[vertexCount * STRIDE];
+        int[] indices = new int[indexCount];
+        int vertexBase = 0;
+        int indexOffset = 0;
+
+        for (MeshData mesh : drawList) {
+            float[] positions = mesh.getPositions();
+            float[] normals = mesh.getNormals();
+            float[] texCoords = mesh.getTexCoords();
+
+            for (int v = 0; v < mesh.getVertexCount(); v++) {
+                float x = positions[v * 3], y = positions[v * 3 + 1], z = positions[v * 3 + 2];
+                int o = (vertexBase + v) * STRIDE;
+
+                vertices[o + CX] = mvp.m00() * x + mvp.m10() * y + mvp.m20() * z + mvp.m30();
+                vertices[o + CY] = mvp.m01() * x + mvp.m11() * y + mvp.m21() * z + mvp.m31();
+                vertices[o + CZ] = mvp.m02() * x + mvp.m12() * y + mvp.m22() * z + mvp.m32();
+                vertices[o + CW] = mvp.m03() * x + mvp.m13() * y + mvp.m23() * z + mvp.m33();
+                project(vertices, o, width, height);
+
+                vertices[o + PX] = model.m00() * x + model.m10() * y + model.m20() * z + model.m30();
+                vertices[o + PY] = model.m01() * x + model.m11() * y + model.m21() * z + model.m31();
+                vertices[o + PZ] = model.m02() * x + model.m12() * y + model.m22() * z + model.m32();
+
+                float nx = normals[v * 3], ny = normals[v * 3 + 1], nz = normals[v * 3 + 2];
+                float wnx = normalMatrix.m00() * nx + normalMatrix.m10() * ny + normalMatrix.m20() * nz;
+                float wny = normalMatrix.m01() * nx + normalMatrix.m11() * ny + normalMatrix.m21() * nz;
+                float wnz = normalMatrix.m02() * nx + normalMatrix.m12() * ny + normalMatrix.m22() * nz;
+                float length = (float) Math.sqrt(wnx * wnx + wny * wny + wnz * wnz);
+                if (length > 0) {
+                    wnx /= length;
+                    wny /= length;
+                    wnz /= length;
+                }
+                vertices[o + NX] = wnx;
+                vertices[o + NY] = wny;
+                vertices[o + NZ] = wnz;
+
+                vertices[o + TU] = texCoords[v * 2];
+                vertices[o + TV] = texCoords[v * 2 + 1];
+            }
+
+            for (int index : mesh.getIndices()) {
+                indices[indexOffset++] = vertexBase + index;
+            }
+            vertexBase += mesh.getVertexCount();
+        }
+
+        return new Geometry(vertices, indices);
+    }
+
+    /**
+     * Compute the window coordinates of a vertex from its clip coordinates
+     */
+    private static void project(float[] vertices, int o, int width, int height) {
+        float invW = 1.0f / vertices[o + CW];
+        // Viewport transform, with the origin in the bottom left corner like OpenGL
+        vertices[o + SX] = (vertices[o + CX] * invW + 1.0f) * 0.5f * width;
+        vertices[o + SY] = (vertices[o + CY] * invW + 1.0f) * 0.5f * height;
+        vertices[o + SZ] = (vertices[o + CZ] * invW + 1.0f) * 0.5f;
+        vertices[o + INV_W] = invW;
+    }
+
+    /**
+     * Distance of a vertex in front of the near plane, which is where z = -w in clip space
+     */
+    private static float nearDistance(float[] vertices, int vertex) {
+        return vertices[vertex * STRIDE + CZ] + vertices[vertex * STRIDE + CW];
+    }
+
+    /**
+     * Clip the triangles against the near plane. Triangles entirely in front of it are kept, those entirely behind it
+     * are dropped, and the rest are cut down to the part in front, which takes one or two triangles. The draw order is
+     * kept.
+     */
+    private static Geometry clipNearPlane(Geometry geometry, int width, int height) {
+        float[] vertices = geometry.vertices();
+        int[] indices = geometry.indices();
+        int vertexCount = vertices.length / STRIDE;
+
+        boolean allInFront = true;
+        for (int vertex = 0; vertex < vertexCount && allInFront; vertex++) {
+            allInFront = nearDistance(vertices, vertex) >= 0;
+        }
+        if (allInFront) return geometry;
+
+        // Cutting a triangle adds at most two vertices and one triangle
+        float[] clipped = Arrays.copyOf(vertices, vertices.length + indices.length / 3 * 2 * STRIDE);
+        int[] clippedIndices = new int[indices.length * 2];
+        int indexCount = 0;
+        int[] corners = new int[3];
+        int[] polygon = new int[4];
+
+        for (int triangle = 0; triangle < indices.length / 3; triangle++) {
+            System.arraycopy(indices, triangle * 3, corners, 0, 3);
+            int corner = 0;
+            for (int edge = 0; edge < 3; edge++) {
+                int from = corners[edge];
+                int to = corners[(edge + 1) % 3];
+                float fromDistance = nearDistance(vertices, from);
+                float toDistance = nearDistance(vertices, to);
+                if (fromDistance >= 0) polygon[corner++] = from;
+                if ((fromDistance >= 0) != (toDistance >= 0)) {
+                    // Interpolate from the vertex in front, so that both triangles sharing the edge get the same vertex
+                    int inside = fromDistance >= 0 ? from : to;
+                    int outside = fromDistance >= 0 ? to : from;
+                    float insideDistance = nearDistance(vertices, inside);
+                    float t = insideDistance / (insideDistance - nearDistance(vertices, outside));
+                    int o = vertexCount * STRIDE;
+                    for (int attribute = 0; attribute < STRIDE; attribute++) {
+                        float start = vertices[inside * STRIDE + attribute];
+                        clipped[o + attribute] = start + (vertices[outside * STRIDE + attribute] - start) * t;
+                    }
+                    project(clipped, o, width, height);
+                    polygon[corner++] = vertexCount++;
+                }
+            }
+            // A fan over the part in front keeps the winding of the triangle
+            for (int k = 1; k + 1 < corner; k++) {
+                clippedIndices[indexCount++] = polygon[0];
+                clippedIndices[indexCount++] = polygon[k];
+                clippedIndices[indexCount++] = polygon[k + 1];
+            }
+        }
+
+        return new Geometry(Arrays.copyOf(clipped, vertexCount * STRIDE), Arrays.copyOf(clippedIndices, indexCount));
+    }
+
+    /**
+     * Sort the triangles into the tiles their bounding boxes touch, keeping the draw order within each tile
+     *
+     * @return For each tile, the indices of its triangles, ending with -1 if the array is not full
+     */
+    private static int[][] binTriangles(Geometry geometry, int tilesX, int tilesY, int width, int height) {
+        int[][] bins = new int[tilesX * tilesY][];
+        int[] counts = new int[bins.length];
+        float[] vertices = geometry.vertices();
+        int[] indices = geometry.indices();
+
+        for (int triangle = 0; triangle < indices.length / 3; triangle++) {
+            int a = indices[triangle * 3] * STRIDE;
+            int b = indices[triangle * 3 + 1] * STRIDE;
+            int c = indices[triangle * 3 + 2] * STRIDE;
+
+            float minX = Math.min(vertices[a + SX], Math.min(vertices[b + SX], vertices[c + SX]));
+            float maxX = Math.max(vertices[a + SX], Math.max(vertices[b + SX], vertices[c + SX]));
+            float minY = Math.min(vertices[a + SY], Math.min(vertices[b + SY], vertices[c + SY]));
+            float maxY = Math.max(vertices[a + SY], Math.max(vertices[b + SY], vertices[c + SY]));
+            if (maxX < 0 || maxY < 0 || minX >= width || minY >= height) continue;
+
+            int firstTileX = Math.max(0, (int) minX / TILE_SIZE);
+            int lastTileX = Math.min(tilesX - 1, (int) maxX / TILE_SIZE);
+            int firstTileY = Math.max(0, (int) minY / TILE_SIZE);
+            int lastTileY = Math.min(tilesY - 1, (int) maxY / TILE_SIZE);
+
+            for (int tileY = firstTileY; tileY <= lastTileY; tileY++) {
+                for (int tileX = firstTileX; tileX <= lastTileX; tileX++) {
+                    int tile = tileY * tilesX + tileX;
+                    int[] bin = bins[tile];
+                    if (bin == null) {
+                        bin = bins[tile] = new int[16];
+                    } else if (counts[tile] == bin.length) {
+                        bin = bins[tile] = Arrays.copyOf(bin, bin.length * 2);
+                    }
+                    bin[counts[tile]++] = triangle;
+                }
+            }
+        }
+
+        for (int tile = 0; tile < bins.length; tile++) {
+            if (bins[tile] == null) bins[tile] = new int[0];
+            else if (counts[tile] < bins[tile].length) bins[tile][counts[tile]] = -1;
+        }
+        return bins;
+    }
+
+    private static float clamp(float value) {
+        return value < 0 ? 0 : (value > 1 ? 1 : value);
+    }
+
+    /**
+     * Vertices after the vertex stage and the triangles referring to them
+     */
+    private record Geometry(float[] vertices, int[] indices) {
+    }
+
+    /**
+     * A decoded texture as non-premultiplied ARGB pixels, bottom row first like a texture loaded by the
+     * {@link ModelRenderer}
+     *
+     * @param width  Width in pixels
+     * @param height Height in pixels
+     * @param pixels ARGB pixels
+     */
+    public record Texture(int width, int height, int[] pixels) {
+
+        /**
+         * Decode an image
+         *
+         * @param textureImage ByteBuffer containing the encoded image, such as a PNG
+         * @return The decoded texture
+         */
+        public static Texture decode(ByteBuffer textureImage) {
+            byte[] bytes = new byte[textureImage.remaining()];
+            textureImage.duplicate().get(bytes);
+            BufferedImage image;
+            try {
+                image = ImageIO.read(new ByteArrayInputStream(bytes));
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to load texture", e);
+            }
+            if (image == null) throw new RuntimeException("Failed to load texture: unknown image format");
+            return fromImage(image);
+        }
+
+        /**
+         * Take the pixels of an image
+         *
+         * @param image The image
+         * @return The texture
+         */
+        public static Texture fromImage(BufferedImage image) {
+            int width = image.getWidth();
+            int height = image.getHeight();
+            int[] rows = image.getRGB(0, 0, width, height, null, 0, width);
+            // Flip vertically, as textures are uploaded to OpenGL
+            int[] pixels = new int[rows.length];
+            for (int y = 0; y < height; y++) {
+                System.arraycopy(rows, (height - 1 - y) * width, pixels, y * width, width);
+            }
+            return new Texture(width, height, pixels);
+        }
+    }
+
+    /**
+     * The fragment stage, following {@code shaders/fragment.glsl}
+     */
+    private static final class Shader {
+        private final Texture texture;
+        private final boolean debugMode;
+        private final float lightX, lightY, lightZ;
+        private final float viewX, viewY, viewZ;
+        private final float lightR, lightG, lightB;
+
+        Shader(RendererConfig config, Texture texture) {
+            this.texture = texture;
+            this.debugMode = config.isDebugMode();
+            Vector3f light = config.getLightPosition();
+            Vector3f view = config.getViewPosition();
+            Vector3f lightColor = config.getLightColor();
+            lightX = light.x;
+            lightY = light.y;
+            lightZ = light.z;
+            viewX = view.x;
+            viewY = view.y;
+            viewZ = view.z;
+            lightR = lightColor.x;
+            lightG = lightColor.y;
+            lightB = lightColor.z;
+        }
+
+        /**
+         * Shade one fragment
+         *
+         * @param out Receives red, green, blue and alpha
+         * @return false if the fragment is discarded
+         */
+        boolean shade(float px, float py, float pz, float nx, float ny, float nz, float u, float v, float[] out) {
+            if (debugMode) {
+                out[0] = u;
+                out[1] = v;
+                out[2] = 0;
+                out[3] = 1;
+                return true;
+            }
+
+            float s = fract(u);
+            float t = fract(v);
+            int texelX = Math.min((int) (s * texture.width()), texture.width() - 1);
+            int texelY = Math.min((int) (t * texture.height()), texture.height() - 1);
+            int texel = texture.pixels()[texelY * texture.width() + texelX];
+            float r = ((texel >> 16) & 0xFF) / 255.0f;
+            float g = ((texel >> 8) & 0xFF) / 255.0f;
+            float b = (texel & 0xFF) / 255.0f;
+            float a = ((texel >>> 24) & 0xFF) / 255.0f;
+
+            boolean isOverlay = s > 0.5f;
+            if (isOverlay && a < 0.1f) return false;
+
+            float inverseNormalLength = 1.0f / (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+            float normX = nx * inverseNormalLength, normY = ny * inverseNormalLength, normZ = nz * inverseNormalLength;
+
+            float vx = viewX - px, vy = viewY - py, vz = viewZ - pz;
+            float inverseViewLength = 1.0f / (float) Math.sqrt(vx * vx + vy * vy + vz * vz);
+            vx *= inverseViewLength;
+            vy *= inverseViewLength;
+            vz *= inverseViewLength;
+
+            if (isOverlay) {
+                float nDotV = normX * vx + normY * vy + normZ * vz;
+                float outline = 1.0f - smoothstep(0.0f, 0.6f, nDotV);
+                float outlineStrength = outline * outline * 0.5f;
+
+                if (t < 0.25f) {
+                    // Hat and head overlay
+                    float rimFactor = 1.0f - Math.max(0.0f, nDotV);
+                    // pow(rimFactor, 2.5)
+                    rimFactor = rimFactor * rimFactor * (float) Math.sqrt(rimFactor) * 0.7f;
+                    r = r * 1.25f + rimFactor;
+                    g = g * 1.25f + rimFactor;
+                    b = b * 1.25f + rimFactor;
+                    r = mix(r, r * 0.9f, 0.15f);
+                    g = mix(g, g * 0.95f, 0.15f);
+                    b = mix(b, b * 1.1f, 0.15f);
+                    outlineStrength *= 1.5f;
+                } else {
+                    // Jacket, sleeves and trousers
+                    r = mix(r, r * 1.05f, 0.1f) * 1.1f;
+                    g = mix(g, g * 1.05f, 0.1f) * 1.1f;
+                    b = mix(b, b * 1.08f, 0.1f) * 1.1f;
+                }
+
+                r = mix(r, r * 0.8f, outlineStrength);
+                g = mix(g, g * 0.8f, outlineStrength);
+                b = mix(b, b * 0.8f, outlineStrength);
+            } else if (a < 0.1f) {
+                // Checker pattern for missing texture
+                float checker = mod(floor(px * 2) + floor(py * 2) + floor(pz * 2), 2.0f);
+                r = checker * 0.8f;
+                g = 0.2f;
+                b = 1.0f - checker * 0.8f;
+                a = 1.0f;
+            }
+
+            float ambientStrength = isOverlay ? 0.35f : 0.3f;
+
+            float lx = lightX - px, ly = lightY - py, lz = lightZ - pz;
+            float inverseLightLength = 1.0f / (float) Math.sqrt(lx * lx + ly * ly + lz * lz);
+            lx *= inverseLightLength;
+            ly *= inverseLightLength;
+            lz *= inverseLightLength;
+            float nDotL = normX * lx + normY * ly + normZ * lz;
+            float diff = Math.max(nDotL, 0.0f);
+            if (isOverlay) diff = (float) Math.pow(diff, 0.9) * 1.1f;
+
+            // reflect(-lightDir, norm)
+            float rx = 2 * nDotL * normX - lx;
+            float ry = 2 * nDotL * normY - ly;
+            float rz = 2 * nDotL * normZ - lz;
+            float specularStrength = isOverlay ? 0.7f : 0.5f;
+            // pow(x, 32), or pow(x, 64) for the overlay, by squaring
+            float spec = Math.max(vx * rx + vy * ry + vz * rz, 0.0f);
+            for (int i = isOverlay ? 6 : 5; i > 0; i--) spec *= spec;
+
+            float light = ambientStrength + diff + specularStrength * spec;
+            r *= light * lightR;
+            g *= light * lightG;
+            b *= light * lightB;
+
+            if (isOverlay) {
+                // Values of 1 and more stay at least 1, which the color buffer clamps to 1 anyway
+                if (r < 1) r = (float) Math.pow(r, 0.95);
+                if (g < 1) g = (float) Math.pow(g, 0.95);
+                if (b < 1) b = (float) Math.pow(b, 0.95);
+            }
+
+            out[0] = r;
+            out[1] = g;
+            out[2] = b;
+            out[3] = a;
+            return true;
+        }
+
+        private static float fract(float x) {
+            return x - (float) Math.floor(x);
+        }
+
+        private static float floor(float x) {
+            return (float) Math.floor(x);
+        }
+
+        private static float mod(float x, float y) {
+            return x - y * (float) Math.floor(x / y);
+        }
+
+        private static float mix(float x, float y, float a) {
+            return x * (1 - a) + y * a;
+        }
+
+        private static float smoothstep(float edge0, float edge1, float x) {
+            float t = clamp((x - edge0) / (edge1 - edge0));
+            return t * t * (3 - 2 * t);
+        }
+    }
+
+    /**
+     * Rasterizes a range of tiles, splitting it until one tile is left
+     */
+    private static final class TileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Geometry geometry;
+        private final int[][] tileTriangles;
+        private final int tilesX;
+        private final int from;
+        private final int to;
+        private final int width;
+        private final int height;
+        private final float[] color;
+        private final float[] depth;
+        private final Shader shader;
+
+        TileTask(Geometry geometry, int[][] tileTriangles, int tilesX, int from, int to, int width, int height,
+                 float[] color, float[] depth, Shader shader) {
+            this.geometry = geometry;
+            this.tileTriangles = tileTriangles;
+            this.tilesX = tilesX;
+            this.from = from;
+            this.to = to;
+            this.width = width;
+            this.height = height;
+            this.color = color;
+            this.depth = depth;
+            this.shader = shader;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TileTask(geometry, tileTriangles, tilesX, from, middle, width, height, color, depth, shader),
+                        new TileTask(geometry, tileTriangles, tilesX, middle, to, width, height, color, depth, shader));
+                return;
+            }
+
+            int tile = from;
+            int tileMinX = (tile % tilesX) * TILE_SIZE;
+            int tileMinY = (tile / tilesX) * TILE_SIZE;
+            int tileMaxX = Math.min(tileMinX + TILE_SIZE, width) - 1;
+            int tileMaxY = Math.min(tileMinY + TILE_SIZE, height) - 1;
+            float[] fragment = new float[4];
+
+            for (int triangle : tileTriangles[tile]) {
+                if (triangle < 0) break;
+                rasterize(triangle, tileMinX, tileMinY, tileMaxX, tileMaxY, fragment);
+            }
+        }
+
+        private void rasterize(int triangle, int tileMinX, int tileMinY, int tileMaxX, int tileMaxY, float[] fragment) {
+            float[] vertices = geometry.vertices();
+            int[] indices = geometry.indices();
+            int a = indices[triangle * 3] * STRIDE;
+            int b = indices[triangle * 3 + 1] * STRIDE;
+            int c = indices[triangle * 3 + 2] * STRIDE;
+
+            float ax = vertices[a + SX], ay = vertices[a + SY];
+            float bx = vertices[b + SX], by = vertices[b + SY];
+            float cx = vertices[c + SX], cy = vertices[c + SY];
+
+            float area = (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+            if (area == 0 || Float.isNaN(area)) return;
+            // Faces are not culled, so clockwise triangles are turned around
+            if (area < 0) {
+                int swap = b;
+                b = c;
+                c = swap;
+                bx = vertices[b + SX];
+                by = vertices[b + SY];
+                cx = vertices[c + SX];
+                cy = vertices[c + SY];
+                area = -area;
+            }
+
+            int minX = Math.max(tileMinX, (int) Math.floor(Math.min(ax, Math.min(bx, cx))));
+            int maxX = Math.min(tileMaxX, (int) Math.ceil(Math.max(ax, Math.max(bx, cx))));
+            int minY = Math.max(tileMinY, (int) Math.floor(Math.min(ay, Math.min(by, cy))));
+            int maxY = Math.min(tileMaxY, (int) Math.ceil(Math.max(ay, Math.max(by, cy))));
+            if (minX > maxX || minY > maxY) return;
+
+            // Edge functions, positive inside: e(x, y) = dx * x + dy * y + constant. They are evaluated in double
+            // precision, since the vertices of clipped triangles can lie far outside the image.
+            double e0dx = by - cy, e0dy = cx - bx, e0c = (double) bx * cy - (double) by * cx;
+            double e1dx = cy - ay, e1dy = ax - cx, e1c = (double) cx * ay - (double) cy * ax;
+            double e2dx = ay - by, e2dy = bx - ax, e2c = (double) ax * by - (double) ay * bx;
+            // Top-left fill rule, so that pixels on an edge shared by two triangles are drawn once
+            boolean topLeft0 = isTopLeft(e0dx, e0dy);
+            boolean topLeft1 = isTopLeft(e1dx, e1dy);
+            boolean topLeft2 = isTopLeft(e2dx, e2dy);
+            // The edge functions add up to twice the area everywhere, as their slopes cancel out
+            double invArea = 1.0 / (e0c + e1c + e2c);
+
+            float za = vertices[a + SZ], zb = vertices[b + SZ], zc = vertices[c + SZ];
+            float wa = vertices[a + INV_W], wb = vertices[b + INV_W], wc = vertices[c + INV_W];
+            // The attributes are kept in locals, since the compiler can't tell that writing the buffers leaves them as
+            // they are
+            float pxa = vertices[a + PX], pxb = vertices[b + PX], pxc = vertices[c + PX];
+            float pya = vertices[a + PY], pyb = vertices[b + PY], pyc = vertices[c + PY];
+            float pza = vertices[a + PZ], pzb = vertices[b + PZ], pzc = vertices[c + PZ];
+            float nxa = vertices[a + NX], nxb = vertices[b + NX], nxc = vertices[c + NX];
+            float nya = vertices[a + NY], nyb = vertices[b + NY], nyc = vertices[c + NY];
+            float nza = vertices[a + NZ], nzb = vertices[b + NZ], nzc = vertices[c + NZ];
+            float tua = vertices[a + TU], tub = vertices[b + TU], tuc = vertices[c + TU];
+            float tva = vertices[a + TV], tvb = vertices[b + TV], tvc = vertices[c + TV];
+
+            for (int y = minY; y <= maxY; y++) {
+                double sampleY = y + 0.5;
+                double row0 = e0dy * sampleY + e0c;
+                double row1 = e1dy * sampleY + e1c;
+                double row2 = e2dy * sampleY + e2c;
+
+                // Narrow the row down to the pixels between the edges, give or take one for rounding
+                int spanMinX = minX, spanMaxX = maxX;
+                if (e0dx > 0) spanMinX = Math.max(spanMinX, (int) Math.floor(-row0 / e0dx - 0.5));
+                else if (e0dx < 0) spanMaxX = Math.min(spanMaxX, (int) Math.ceil(-row0 / e0dx - 0.5));
+                if (e1dx > 0) spanMinX = Math.max(spanMinX, (int) Math.floor(-row1 / e1dx - 0.5));
+                else if (e1dx < 0) spanMaxX = Math.min(spanMaxX, (int) Math.ceil(-row1 / e1dx - 0.5));
+                if (e2dx > 0) spanMinX = Math.max(spanMinX, (int) Math.floor(-row2 / e2dx - 0.5));
+                else if (e2dx < 0) spanMaxX = Math.min(spanMaxX, (int) Math.ceil(-row2 / e2dx - 0.5));
+
+                for (int x = spanMinX; x <= spanMaxX; x++) {
+                    double sampleX = x + 0.5;
+                    double w0 = e0dx * sampleX + row0;
+                    double w1 = e1dx * sampleX + row1;
+                    double w2 = e2dx * sampleX + row2;
+                    if (!covers(w0, topLeft0) || !covers(w1, topLeft1) || !covers(w2, topLeft2)) continue;
+
+                    float l0 = (float) (w0 * invArea), l1 = (float) (w1 * invArea), l2 = (float) (w2 * invArea);
+                    float z = l0 * za + l1 * zb + l2 * zc;
+                    int pixel = y * width + x;
+                    if (z < 0 || z > 1 || !(z < depth[pixel])) continue;
+
+                    // Perspective-correct weights for the other attributes
+                    float p0 = l0 * wa, p1 = l1 * wb, p2 = l2 * wc;
+                    float sum = p0 + p1 + p2;
+                    p0 /= sum;
+                    p1 /= sum;
+                    p2 /= sum;
+
+                    boolean drawn = shader.shade(
+                            pxa * p0 + pxb * p1 + pxc * p2,
+                            pya * p0 + pyb * p1 + pyc * p2,
+                            pza * p0 + pzb * p1 + pzc * p2,
+                            nxa * p0 + nxb * p1 + nxc * p2,
+                            nya * p0 + nyb * p1 + nyc * p2,
+                            nza * p0 + nzb * p1 + nzc * p2,
+                            tua * p0 + tub * p1 + tuc * p2,
+                            tva * p0 + tvb * p1 + tvc * p2,
+                            fragment);
+                    if (!drawn) continue;
+
+                    depth[pixel] = z;
+                    // Blend with GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA into the clamped fixed-point color buffer
+                    float alpha = clamp(fragment[3]);
+                    int o = pixel * 3;
+                    color[o] = clamp(fragment[0]) * alpha + color[o] * (1 - alpha);
+                    color[o + 1] = clamp(fragment[1]) * alpha + color[o + 1] * (1 - alpha);
+                    color[o + 2] = clamp(fragment[2]) * alpha + color[o + 2] * (1 - alpha);
+                }
+            }
+        }
+
+        private static boolean covers(double edge, boolean topLeft) {
+            return edge > 0 || (edge == 0 && topLeft);
+        }
+
+        /**
+         * With counter-clockwise triangles and y pointing up, a top edge runs to the left and a left edge runs down
+         */
+        private static boolean isTopLeft(double edgeDx, double edgeDy) {
+            // edgeDx is the negated change in y along the edge, edgeDy the change in x
+            return (edgeDx == 0 && edgeDy < 0) || edgeDx > 0;
+        }
+    }
+}
@@ -74,6 +74,23 @@ public class TextureLoader {
         }
     }
 
+    /**
+     * Downloads an image from a URL without decoding it, such as to look it up in a {@link RenderCache}
+     *
+     * @param url The URL to load the image from
+     * @return the image file exactly as served
+     */
+    public static byte[] loadBytesFromUrl(String url) throws IOException {
+        URLConnection connection = new URL(url).openConnection();
+
+        // Set user agent to avoid being blocked by some servers
+        connection.setRequestProperty("User-Agent", "Mozilla/5.0");
+
+        try (InputStream inputStream = connection.getInputStream()) {
+            return inputStream.readAllBytes();
+        }
+    }
+
     /**
      * Loads a texture from an input stream
      *
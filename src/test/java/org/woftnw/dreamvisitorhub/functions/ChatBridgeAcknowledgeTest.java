@@ -0,0 +1,144 @@
+package org.woftnw.dreamvisitorhub.functions;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.woftnw.dreamvisitorhub.data.repository.PocketBaseChatMessageRepository;
+import org.woftnw.dreamvisitorhub.data.type.ChatMessage;
+import org.woftnw.dreamvisitorhub.pb.PocketBase;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks how relayed chat messages are deleted from a stand-in PocketBase
+ */
+class ChatBridgeAcknowledgeTest {
+    private static final String RECORDS = "/api/collections/chat_messages/records/";
+
+    private HttpServer server;
+    private PocketBaseChatMessageRepository repository;
+
+    // Behavior and log of the stand-in PocketBase
+    private volatile boolean failBatches = false;
+    private volatile Set<String> missingRecords = Set.of();
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+    private final List<JsonArray> batches = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api/batch", this::handleBatch);
+        server.createContext(RECORDS, this::handleDelete);
+        server.start();
+        PocketBase pocketBase = new PocketBase("http://127.0.0.1:" + server.getAddress().getPort(), null);
+        repository = new PocketBaseChatMessageRepository(pocketBase);
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void deliveredMessagesAreDeletedWithOneBatchRequest() {
+        ChatBridge.acknowledge(repository, messages("a", "b", "c"));
+
+        assertEquals(List.of("POST /api/batch"), requests);
+        JsonArray batch = batches.get(0);
+        assertEquals(3, batch.size());
+        List<String> urls = new ArrayList<>();
+        for (JsonElement request : batch) {
+            assertEquals("DELETE", request.getAsJsonObject().get("method").getAsString());
+            urls.add(request.getAsJsonObject().get("url").getAsString());
+        }
+        assertEquals(List.of(RECORDS + "a", RECORDS + "b", RECORDS + "c"), urls);
+    }
+
+    @Test
+    void failedBatchFallsBackToDeletingEachRecord() {
+        failBatches = true;
+        // Already gone, which is what fails a real batch. The other deletes must still be sent.
+        missingRecords = Set.of("b");
+
+        ChatBridge.acknowledge(repository, messages("a", "b", "c"));
+
+        assertEquals(List.of("POST /api/batch", "DELETE " + RECORDS + "a", "DELETE " + RECORDS + "b",
+                "DELETE " + RECORDS + "c"), requests);
+    }
+
+    @Test
+    void largeAcknowledgementIsSplitIntoBatchSizedRequests() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 120; i++) ids.add("id" + i);
+
+        ChatBridge.acknowledge(repository, messages(ids.toArray(new String[0])));
+
+        assertEquals(List.of("POST /api/batch", "POST /api/batch", "POST /api/batch"), requests);
+        assertEquals(PocketBase.DEFAULT_BATCH_SIZE, batches.get(0).size());
+        assertEquals(120 - 2 * PocketBase.DEFAULT_BATCH_SIZE, batches.get(2).size());
+    }
+
+    private static List<ChatMessage> messages(String... ids) {
+        List<ChatMessage> messages = new ArrayList<>();
+        for (String id : ids) {
+            ChatMessage message = new ChatMessage();
+            message.setId(id);
+            message.setSource(ChatMessage.Source.MINECRAFT);
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        requests.add(exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath());
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        JsonArray batch = JsonParser.parseString(body).getAsJsonObject().getAsJsonArray("requests");
+        batches.add(batch);
+
+        if (failBatches) {
+            respond(exchange, 400, "{\"code\":400,\"message\":\"Batch transaction failed.\",\"data\":{}}");
+            return;
+        }
+        JsonArray results = new JsonArray();
+        for (int i = 0; i < batch.size(); i++) {
+            JsonObject result = new JsonObject();
+            result.addProperty("status", 204);
+            results.add(result);
+        }
+        respond(exchange, 200, results.toString());
+    }
+
+    private void handleDelete(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        requests.add(exchange.getRequestMethod() + " " + path);
+        if (missingRecords.contains(path.substring(RECORDS.length()))) {
+            respond(exchange, 404, "{\"code\":404,\"message\":\"The requested resource wasn't found.\",\"data\":{}}");
+        } else {
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
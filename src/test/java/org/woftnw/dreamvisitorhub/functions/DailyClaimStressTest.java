@@ -0,0 +1,216 @@
+package org.woftnw.dreamvisitorhub.functions;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.woftnw.dreamvisitorhub.data.repository.PocketBaseUserRepository;
+import org.woftnw.dreamvisitorhub.data.repository.UserRepository;
+import org.woftnw.dreamvisitorhub.data.type.DVUser;
+import org.woftnw.dreamvisitorhub.pb.PocketBase;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Claims the daily reward from many threads at once and checks that it is paid out once.
+ */
+class DailyClaimStressTest {
+    private static final int THREADS = 32;
+    private static final int CLAIMS = 400;
+    private static final double REWARD = 10;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private ExecutorService clients;
+
+    // State of the stand-in PocketBase
+    private final Set<String> dailyClaims = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger balanceChanges = new AtomicInteger();
+    private double balance = 0;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api/batch", this::handleBatch);
+        server.createContext("/api/collections/daily_claims/records", this::handleClaimLookup);
+        serverExecutor = Executors.newFixedThreadPool(THREADS);
+        server.setExecutor(serverExecutor);
+        server.start();
+        clients = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        clients.shutdownNow();
+    }
+
+    @Test
+    void concurrentClaimsArePaidOnce() throws Exception {
+        PocketBase pocketBase = new PocketBase("http://127.0.0.1:" + server.getAddress().getPort() + "/", null);
+        UserRepository repository = new PocketBaseUserRepository(pocketBase, true);
+        LocalDate today = LocalDate.now();
+
+        // Every claim loads its own copy of the user, as separate interactions or hubs would
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<CompletableFuture<DVUser>>> submitted = new ArrayList<>();
+        for (int i = 0; i < CLAIMS; i++) {
+            String interaction = "interaction" + i;
+            submitted.add(clients.submit(() -> {
+                DVUser user = loadedUser();
+                user.setLastDailyInteraction(interaction);
+                start.await();
+                return repository.claimDailyAsync(user, REWARD, today);
+            }));
+        }
+        start.countDown();
+
+        int paid = 0;
+        int rejected = 0;
+        for (Future<CompletableFuture<DVUser>> future : submitted) {
+            try {
+                future.get(30, TimeUnit.SECONDS).get(30, TimeUnit.SECONDS);
+                paid++;
+            } catch (ExecutionException e) {
+                assertInstanceOf(UserRepository.DailyAlreadyClaimedException.class, PocketBase.unwrap(e.getCause()));
+                rejected++;
+            }
+        }
+
+        assertEquals(1, paid);
+        assertEquals(CLAIMS - 1, rejected);
+        assertEquals(1, balanceChanges.get());
+        assertEquals(REWARD, balance);
+    }
+
+    @Test
+    void claimsOfDifferentUsersDoNotBlockEachOther() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> locked = new ArrayList<>();
+        for (int i = 0; i < CLAIMS; i++) {
+            long snowflakeId = 1_000_000L + i;
+            locked.add(clients.submit(() -> {
+                start.await();
+                return Economy.tryLockDaily(snowflakeId);
+            }));
+        }
+        start.countDown();
+
+        for (Future<Boolean> future : locked) {
+            assertTrue(future.get(30, TimeUnit.SECONDS));
+        }
+        for (int i = 0; i < CLAIMS; i++) {
+            Economy.unlockDaily(1_000_000L + i);
+        }
+    }
+
+    @Test
+    void concurrentClaimsOfOneUserTakeTheGuardOnce() throws Exception {
+        long snowflakeId = 42;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> locked = new ArrayList<>();
+        for (int i = 0; i < CLAIMS; i++) {
+            locked.add(clients.submit(() -> {
+                start.await();
+                return Economy.tryLockDaily(snowflakeId);
+            }));
+        }
+        start.countDown();
+
+        int taken = 0;
+        for (Future<Boolean> future : locked) {
+            if (future.get(30, TimeUnit.SECONDS)) taken++;
+        }
+        Economy.unlockDaily(snowflakeId);
+
+        assertEquals(1, taken);
+        assertTrue(Economy.tryLockDaily(snowflakeId));
+        Economy.unlockDaily(snowflakeId);
+    }
+
+    private static DVUser loadedUser() {
+        DVUser user = new DVUser();
+        user.setId("user000000000001");
+        user.setDiscordId("123456789012345678");
+        user.setBalance(0.0);
+        user.setDailyStreak(0);
+        user.clearDirty();
+        return user;
+    }
+
+    /**
+     * Runs the claim record and the balance change as one transaction, like PocketBase does. The unique index on
+     * discord_id and day is modelled by the set of claims.
+     */
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        JsonArray requests = JsonParser.parseString(readBody(exchange)).getAsJsonObject().getAsJsonArray("requests");
+        JsonObject claim = requests.get(0).getAsJsonObject().getAsJsonObject("body");
+        JsonObject userChange = requests.get(1).getAsJsonObject().getAsJsonObject("body");
+
+        String key = claim.get("discord_id").getAsString() + "|" + claim.get("day").getAsString();
+        double newBalance;
+        synchronized (this) {
+            if (!dailyClaims.add(key)) {
+                respond(exchange, 400, "{\"code\":400,\"message\":\"Batch transaction failed.\",\"data\":{}}");
+                return;
+            }
+            balance += userChange.get("balance+").getAsDouble();
+            newBalance = balance;
+            balanceChanges.incrementAndGet();
+        }
+
+        JsonObject user = new JsonObject();
+        user.addProperty("id", "user000000000001");
+        user.addProperty("discord_id", claim.get("discord_id").getAsString());
+        user.addProperty("balance", newBalance);
+        respond(exchange, 200, "[{\"status\":200,\"body\":{\"id\":\"claim\"}},{\"status\":200,\"body\":" + user + "}]");
+    }
+
+    private void handleClaimLookup(HttpExchange exchange) throws IOException {
+        String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), StandardCharsets.UTF_8);
+        boolean found = dailyClaims.stream().anyMatch(key -> {
+            String[] parts = key.split("\\|");
+            return query.contains("discord_id = '" + parts[0] + "'") && query.contains("day = '" + parts[1] + "'");
+        });
+        String items = found ? "[{\"id\":\"claim\"}]" : "[]";
+        respond(exchange, 200, "{\"page\":1,\"perPage\":1,\"totalItems\":-1,\"totalPages\":-1,\"items\":" + items + "}");
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        return new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
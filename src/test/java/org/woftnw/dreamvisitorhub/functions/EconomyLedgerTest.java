@@ -0,0 +1,182 @@
+package org.woftnw.dreamvisitorhub.functions;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.woftnw.dreamvisitorhub.data.repository.BalanceSnapshotRepository;
+import org.woftnw.dreamvisitorhub.data.repository.TransactionRepository;
+import org.woftnw.dreamvisitorhub.data.type.BalanceSnapshot;
+import org.woftnw.dreamvisitorhub.data.type.Transaction;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EconomyLedgerTest {
+    private static final int BATCH_SIZE = 3;
+    private static final int TRANSACTIONS = 7;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void failedBatchDoesNotResendEarlierBatches() throws Exception {
+        Path wal = directory.resolve("ledger.log");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            lines.add("{\"key\":\"" + key(i) + "\",\"user\":\"user\",\"type\":\"DAILY\",\"amount\":1.0,\"reference\":null}");
+        }
+        Files.write(wal, lines, StandardCharsets.UTF_8);
+
+        // The second batch fails once, after the first one was sent
+        FlakyTransactionRepository transactions = new FlakyTransactionRepository(2);
+        EconomyLedger ledger = new EconomyLedger(transactions, new NoSnapshots(), wal, BATCH_SIZE,
+                Duration.ofMillis(20), Duration.ofHours(1));
+        ledger.start();
+        try {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (ledger.getPendingCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        } finally {
+            ledger.stop();
+        }
+
+        List<String> keys = new ArrayList<>();
+        for (List<Transaction> batch : transactions.batches) {
+            assertTrue(batch.size() <= BATCH_SIZE);
+            for (Transaction transaction : batch) keys.add(transaction.getKey());
+        }
+        assertEquals(TRANSACTIONS, keys.size());
+        assertEquals(TRANSACTIONS, new HashSet<>(keys).size());
+        assertEquals(1, ledger.getFailedFlushCount());
+        assertTrue(Files.readAllLines(wal, StandardCharsets.UTF_8).isEmpty());
+    }
+
+    @Test
+    void logHoldsOnlyUnsentBatchesAfterFailure() throws IOException {
+        Path wal = directory.resolve("ledger.log");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            lines.add("{\"key\":\"" + key(i) + "\",\"user\":\"user\",\"type\":\"WORK\",\"amount\":1.0,\"reference\":null}");
+        }
+        Files.write(wal, lines, StandardCharsets.UTF_8);
+
+        // Every batch after the first fails, so the ledger is stopped with work left
+        FlakyTransactionRepository transactions = new FlakyTransactionRepository(Integer.MAX_VALUE) {
+            @Override
+            public void saveAll(Collection<Transaction> batch) {
+                if (!batches.isEmpty()) throw new RuntimeException("PocketBase is down");
+                super.saveAll(batch);
+            }
+        };
+        EconomyLedger ledger = new EconomyLedger(transactions, new NoSnapshots(), wal, BATCH_SIZE,
+                Duration.ofHours(1), Duration.ofHours(1));
+        ledger.start();
+        ledger.stop();
+
+        assertEquals(1, transactions.batches.size());
+        assertEquals(TRANSACTIONS - BATCH_SIZE, Files.readAllLines(wal, StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    void replayedTransactionsAlreadyStoredAreNotSentAgain() throws IOException {
+        Path wal = directory.resolve("ledger.log");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            lines.add("{\"key\":\"" + key(i) + "\",\"user\":\"user\",\"type\":\"WORK\",\"amount\":1.0,\"reference\":null}");
+        }
+        Files.write(wal, lines, StandardCharsets.UTF_8);
+
+        // The first batch was sent before the hub stopped, but the log was not cut down
+        FlakyTransactionRepository transactions = new FlakyTransactionRepository(Integer.MAX_VALUE);
+        List<Transaction> sent = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setKey(key(i));
+            sent.add(transaction);
+        }
+        transactions.batches.add(sent);
+
+        EconomyLedger ledger = new EconomyLedger(transactions, new NoSnapshots(), wal, BATCH_SIZE,
+                Duration.ofHours(1), Duration.ofHours(1));
+        ledger.start();
+        ledger.stop();
+
+        List<String> keys = new ArrayList<>();
+        for (List<Transaction> batch : transactions.batches) {
+            for (Transaction transaction : batch) keys.add(transaction.getKey());
+        }
+        assertEquals(TRANSACTIONS, keys.size());
+        assertEquals(TRANSACTIONS, new HashSet<>(keys).size());
+        assertTrue(Files.readAllLines(wal, StandardCharsets.UTF_8).isEmpty());
+    }
+
+    private static String key(int i) {
+        return String.format("00000000-0000-0000-0000-%012d", i);
+    }
+
+    /**
+     * Keeps every batch it is given, except that one of them fails the first time
+     */
+    private static class FlakyTransactionRepository implements TransactionRepository {
+        final List<List<Transaction>> batches = new ArrayList<>();
+        private final int failingCall;
+        private int calls = 0;
+
+        FlakyTransactionRepository(int failingCall) {
+            this.failingCall = failingCall;
+        }
+
+        @Override
+        public synchronized void saveAll(Collection<Transaction> transactions) {
+            if (++calls == failingCall) throw new RuntimeException("Batch failed");
+            batches.add(new ArrayList<>(transactions));
+        }
+
+        @Override
+        public List<Transaction> findByUser(String userId) {
+            return List.of();
+        }
+
+        @Override
+        public List<Transaction> findByUserBetween(String userId, OffsetDateTime after, OffsetDateTime through) {
+            return List.of();
+        }
+
+        @Override
+        public List<Transaction> getAllWhere(String filter) {
+            return List.of();
+        }
+
+        @Override
+        public synchronized Set<String> findExistingKeys(Collection<String> keys) {
+            return batches.stream().flatMap(List::stream).map(Transaction::getKey)
+                    .filter(keys::contains).collect(Collectors.toSet());
+        }
+    }
+
+    private static class NoSnapshots implements BalanceSnapshotRepository {
+        @Override
+        public Optional<BalanceSnapshot> findLatestByUser(String userId) {
+            return Optional.empty();
+        }
+
+        @Override
+        public BalanceSnapshot save(BalanceSnapshot snapshot) {
+            return snapshot;
+        }
+    }
+}
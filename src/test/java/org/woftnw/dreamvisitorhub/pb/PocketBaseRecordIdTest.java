@@ -0,0 +1,30 @@
+package org.woftnw.dreamvisitorhub.pb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that record IDs can't change the filter built by {@link PocketBase#getRecordsByIds}
+ */
+class PocketBaseRecordIdTest {
+    // Nothing listens here. The IDs must be rejected before any request is sent.
+    private final PocketBase pocketBase = new PocketBase("http://127.0.0.1:9/", null);
+
+    @Test
+    void idsThatCouldBreakOutOfTheFilterAreRejected() {
+        for (String id : List.of("abc' || id != '", "abc'", "ABC", "a b", "a_b", "")) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> pocketBase.getRecordsByIds("users", List.of("valid123", id), null, null), id);
+        }
+    }
+
+    @Test
+    void nullIdIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> pocketBase.getRecordsByIds("users", Arrays.asList("valid123", null), null, null));
+    }
+}